@@ -1,7 +1,9 @@
 package test.widget.server.autoconfigure;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
 import test.widget.server.repository.WidgetRepository;
 import test.widget.server.repository.impl.WidgetDatabaseRepository;
 
@@ -24,4 +26,14 @@ public class ContextIsAliveWithDatabaseTest extends ContextIsAliveTestBase {
         assertThat(getApplicationContext().getBean(WidgetRepository.class))
                 .isInstanceOf(WidgetDatabaseRepository.class);
     }
+
+    /**
+     * Asserts that transactions are managed by JPA, so that repository calls outside of web requests
+     * and second-level cache locking run in Hibernate transactions.
+     */
+    @Test
+    public void testContextTransactionManagerType() {
+        assertThat(getApplicationContext().getBean(PlatformTransactionManager.class))
+                .isInstanceOf(JpaTransactionManager.class);
+    }
 }
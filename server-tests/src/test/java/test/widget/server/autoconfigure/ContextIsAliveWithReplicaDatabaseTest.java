@@ -0,0 +1,43 @@
+package test.widget.server.autoconfigure;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import test.widget.server.datasource.ReplicaRoutingDataSource;
+import test.widget.server.datasource.ReplicaStalenessGuard;
+import test.widget.server.repository.WidgetRepository;
+import test.widget.server.repository.impl.WidgetDatabaseRepository;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testing context startup with embedded primary and replica databases.
+ *
+ * @author Mikhail Kondratev
+ */
+@ActiveProfiles("test-h2")
+@TestPropertySource(properties = {
+        "server.widget.replica-datasource-url=jdbc:h2:mem:replicadb",
+        "server.widget.replica-datasource-username=sa",
+        "server.widget.replica-datasource-password=password"
+})
+public class ContextIsAliveWithReplicaDatabaseTest extends ContextIsAliveTestBase {
+
+    /**
+     * Asserts that spring context is alive and data source routes queries between primary and replica
+     * when replica database is set.
+     */
+    @Test
+    public void testContextDataSourceType() {
+        assertThat(getApplicationContext().getBean(WidgetRepository.class))
+                .isInstanceOf(WidgetDatabaseRepository.class);
+        assertThat(getApplicationContext().getBean(ReplicaStalenessGuard.class))
+                .isNotNull();
+        assertThat(getApplicationContext().getBean(DataSource.class))
+                .isInstanceOfSatisfying(LazyConnectionDataSourceProxy.class, dataSource ->
+                        assertThat(dataSource.getTargetDataSource()).isInstanceOf(ReplicaRoutingDataSource.class));
+    }
+}
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.web.WebAppConfiguration;
@@ -14,6 +15,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import test.widget.server.ServerConfigurationProperties;
+import test.widget.server.controller.converter.WidgetBinaryHttpMessageConverter;
 import test.widget.server.domain.Widget;
 import test.widget.server.repository.WidgetRepository;
 
@@ -23,8 +25,12 @@ import static javax.json.Json.createObjectBuilder;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -575,6 +581,102 @@ public class WidgetControllerTest {
 
     }
 
+    /**
+     * Filtering in intersects mode should return widgets partially inside the area, and count them the same way.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    void testFilteringIntersecting() throws Exception {
+        //given
+        createWidget(0, 0, 100, 100);
+        createWidget(90, 90, 100, 100);
+        createWidget(500, 500, 10, 10);
+
+        //when
+        final MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH)
+                .param("x", "50")
+                .param("y", "50")
+                .param("width", "50")
+                .param("height", "50")
+                .param("mode", "INTERSECTS")
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        //then
+        final JSONArray arrayOfX = JsonPath.read(result.getResponse().getContentAsString(), "$[*]['x']");
+        assertThat(arrayOfX).containsExactlyInAnyOrder(0, 90);
+
+        mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH + "/count")
+                .param("x", "50")
+                .param("y", "50")
+                .param("width", "50")
+                .param("height", "50")
+                .param("mode", "INTERSECTS")
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().string("2"));
+    }
+
+    /**
+     * Hit-testing should return widgets under the point, the topmost first, up to the limit.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    void testWidgetsAtPoint() throws Exception {
+        //given
+        final String bottomId = createWidget(0, 0, 100, 100);
+        createWidget(200, 200, 10, 10);
+        final String topId = createWidget(40, 40, 20, 20);
+
+        //when
+        //then
+        mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH + "/at")
+                .param("x", "50")
+                .param("y", "50")
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(topId));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH + "/at")
+                .param("x", "50")
+                .param("y", "50")
+                .param("limit", "10")
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(topId))
+                .andExpect(jsonPath("$[1].id").value(bottomId));
+    }
+
+    /**
+     * Nearest widgets should be returned by distance to their nearest edge, up to the requested count.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    void testNearestWidgets() throws Exception {
+        //given
+        final String farId = createWidget(0, 0, 10, 10);
+        final String nearId = createWidget(100, 0, 50, 50);
+        createWidget(500, 500, 10, 10);
+
+        //when
+        //then
+        mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH + "/nearest")
+                .param("x", "80")
+                .param("y", "20")
+                .param("count", "2")
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(nearId))
+                .andExpect(jsonPath("$[1].id").value(farId));
+    }
+
     /**
      * Test missing filter params.
      *
@@ -593,6 +695,463 @@ public class WidgetControllerTest {
 
     }
 
+    /**
+     * Asserts that widgets request with entity tag of current canvas version is answered with
+     * {@link HttpStatus#NOT_MODIFIED}, until any widget is changed.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    void testConditionalGet() throws Exception {
+        //given
+        final MvcResult createResult = mockMvc.perform(MockMvcRequestBuilders.post(WidgetControllerApiPath.WIDGETS_PATH)
+                .content(createObjectBuilder()
+                        .add("x", "10")
+                        .add("y", "10")
+                        .add("width", "10")
+                        .add("height", "10")
+                        .build()
+                        .toString()
+                )
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        final String id = JsonPath.read(createResult.getResponse().getContentAsString(), "$.id");
+
+        final String eTag = mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH)
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        //when
+        //then
+        mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH + "/" + id)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(put(WidgetControllerApiPath.WIDGETS_PATH + "/" + id)
+                .content(createObjectBuilder()
+                        .add("x", "20")
+                        .build()
+                        .toString()
+                )
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].x").value(20));
+    }
+
+    /**
+     * Asserts that changes request without version returns all widgets,
+     * and request with returned version returns only changes made after it.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    void testChanges() throws Exception {
+        //given
+        final String firstId = createWidget(10, 10, 10, 10);
+        final String secondId = createWidget(20, 20, 10, 10);
+
+        final MvcResult fullResult = mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH + "/changes")
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fullResync").value(true))
+                .andExpect(jsonPath("$.updated.length()").value(2))
+                .andReturn();
+
+        final Number version = JsonPath.read(fullResult.getResponse().getContentAsString(), "$.version");
+
+        //when
+        mockMvc.perform(put(WidgetControllerApiPath.WIDGETS_PATH + "/" + firstId)
+                .content(createObjectBuilder()
+                        .add("x", "30")
+                        .build()
+                        .toString()
+                )
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete(WidgetControllerApiPath.WIDGETS_PATH + "/" + secondId))
+                .andExpect(status().isOk());
+
+        //then
+        mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH + "/changes")
+                .param("since", version.toString())
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fullResync").value(false))
+                .andExpect(jsonPath("$.updated[*].id").value(firstId))
+                .andExpect(jsonPath("$.updated[0].x").value(30))
+                .andExpect(jsonPath("$.deleted[*]").value(secondId));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH + "/changes")
+                .param("since", "0")
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fullResync").value(true));
+    }
+
+    /**
+     * Asserts that subscription to widget events receives event about widget created inside it's area.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    void testWidgetEvents() throws Exception {
+        //given
+        final MvcResult eventsResult = mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH + "/events")
+                .param("x", "0")
+                .param("y", "0")
+                .param("width", "100")
+                .param("height", "100")
+                .accept(TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //when
+        createWidget(500, 500, 10, 10);
+        final String id = createWidget(10, 10, 10, 10);
+
+        //then
+        for (int attempt = 0; attempt < 50 && eventsResult.getResponse().getContentAsString().isEmpty(); attempt++) {
+            Thread.sleep(100);
+        }
+
+        assertThat(eventsResult.getResponse().getContentAsString())
+                .startsWith("event:created")
+                .contains(id)
+                .containsOnlyOnce("event:");
+    }
+
+    /**
+     * Asynchronous endpoints should create, get and validate widgets like synchronous ones.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    void testAsyncRequests() throws Exception {
+        //given
+        final MvcResult createResult = mockMvc.perform(MockMvcRequestBuilders.post(WidgetControllerApiPath.ASYNC_WIDGETS_PATH)
+                .content(createObjectBuilder()
+                        .add("x", 10)
+                        .add("y", 20)
+                        .add("width", 30)
+                        .add("height", 40)
+                        .build()
+                        .toString()
+                )
+                .contentType(APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        final String id = JsonPath.read(mockMvc.perform(asyncDispatch(createResult))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), "$.id");
+
+        //when
+        final MvcResult getResult = mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.ASYNC_WIDGETS_PATH + "/" + id))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        final MvcResult invalidResult = mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.ASYNC_WIDGETS_PATH)
+                .param("x", "0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(getResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(id))
+                .andExpect(jsonPath("$.x").value(10))
+                .andExpect(jsonPath("$.height").value(40));
+
+        mockMvc.perform(asyncDispatch(invalidResult))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Asynchronous requests with entity tag of current version should be answered as not modified,
+     * with entity tag checked before dispatching to executor.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    void testAsyncNotModified() throws Exception {
+        //given
+        final String id = createWidget(10, 10, 10, 10);
+
+        final MvcResult getResult = mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.ASYNC_WIDGETS_PATH + "/" + id)
+                .accept(APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn();
+
+        final String eTag = getResult.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(asyncDispatch(getResult))
+                .andExpect(status().isOk());
+
+        //when
+        final MvcResult notModifiedResult = mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.ASYNC_WIDGETS_PATH)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .accept(APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(notModifiedResult))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    /**
+     * Widgets should be returned in binary format, if it is requested in accept header,
+     * and as JSON of known length, written by widgets converter, otherwise.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    void testBinaryWidgets() throws Exception {
+        //given
+        createWidget(0, 0, 10, 10);
+        createWidget(20, 20, 10, 10);
+
+        //when
+        final MvcResult binaryResult = mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH)
+                .accept(WidgetBinaryHttpMessageConverter.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        //then
+        assertThat(binaryResult.getResponse().getContentType()).isEqualTo(WidgetBinaryHttpMessageConverter.MEDIA_TYPE_VALUE);
+        assertThat(binaryResult.getResponse().getContentAsByteArray()).hasSize(1 + 2 * (1 + 16 + 4 * 4 + 1 + 8));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON.toString()))
+                .andExpect(header().exists(HttpHeaders.CONTENT_LENGTH));
+    }
+
+    /**
+     * JSON and binary representations should have different entity tags and vary by accept header,
+     * so that a tag of one representation never revalidates the other.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    void testEntityTagOfRepresentation() throws Exception {
+        //given
+        createWidget(0, 0, 10, 10);
+
+        final String binaryETag = mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH)
+                .accept(WidgetBinaryHttpMessageConverter.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        //when
+        //then
+        mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH)
+                .header(HttpHeaders.IF_NONE_MATCH, binaryETag)
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON.toString()));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH)
+                .header(HttpHeaders.IF_NONE_MATCH, binaryETag)
+                .accept(WidgetBinaryHttpMessageConverter.MEDIA_TYPE))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+    }
+
+    /**
+     * Widgets should be returned with requested fields only, unknown fields should be rejected.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    void testProjectedWidgets() throws Exception {
+        //given
+        final String id = createWidget(10, 20, 30, 40);
+
+        //when
+        //then
+        mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH)
+                .param("fields", "id,x,y"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(id))
+                .andExpect(jsonPath("$[0].x").value(10))
+                .andExpect(jsonPath("$[0].y").value(20))
+                .andExpect(jsonPath("$[0].z").doesNotExist())
+                .andExpect(jsonPath("$[0].lastModified").doesNotExist());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH + "/" + id)
+                .param("fields", "width, height"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.width").value(30))
+                .andExpect(jsonPath("$.height").value(40))
+                .andExpect(jsonPath("$.id").doesNotExist());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH)
+                .param("fields", "id,color"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Count should respect filtering params, stats should hold bounding box and z-index range of all widgets.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    void testCountAndStats() throws Exception {
+        //given
+        createWidget(0, 0, 10, 10);
+        createWidget(20, 30, 10, 10);
+        createWidget(-5, 100, 50, 10);
+
+        //when
+        //then
+        mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH + "/count")
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().string("3"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH + "/count")
+                .param("x", "0")
+                .param("y", "0")
+                .param("width", "50")
+                .param("height", "50")
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().string("2"));
+
+        final MvcResult statsResult = mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH + "/stats")
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(3))
+                .andExpect(jsonPath("$.minX").value(-5))
+                .andExpect(jsonPath("$.minY").value(0))
+                .andExpect(jsonPath("$.maxX").value(45))
+                .andExpect(jsonPath("$.maxY").value(110))
+                .andReturn();
+
+        final int minZ = JsonPath.read(statsResult.getResponse().getContentAsString(), "$.minZ");
+        final int maxZ = JsonPath.read(statsResult.getResponse().getContentAsString(), "$.maxZ");
+        assertThat(maxZ - minZ).isEqualTo(2);
+    }
+
+    /**
+     * Canvases addressed by path prefix should hold their own widgets and z-order,
+     * independent of each other and of default canvas. Canvas should be created by saving a widget, not by reading.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    void testCanvases() throws Exception {
+        //given
+        final String firstCanvasPath = WidgetControllerApiPath.CANVASES_PATH + "/first/widgets";
+        final String secondCanvasPath = WidgetControllerApiPath.CANVASES_PATH + "/second/widgets";
+        final String defaultId = createWidget(0, 0, 10, 10);
+
+        //when
+        final String firstId = JsonPath.read(mockMvc.perform(MockMvcRequestBuilders.post(firstCanvasPath)
+                .content(createObjectBuilder()
+                        .add("x", 10)
+                        .add("y", 20)
+                        .add("z", 5)
+                        .add("width", 30)
+                        .add("height", 40)
+                        .build()
+                        .toString()
+                )
+                .contentType(APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), "$.id");
+
+        final MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.CANVASES_PATH
+                + "/first/async/widgets/" + firstId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(MockMvcRequestBuilders.get(firstCanvasPath))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(firstId))
+                .andExpect(jsonPath("$[0].z").value(5));
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(firstId));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(secondCanvasPath))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(secondCanvasPath + "/" + firstId))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(WidgetControllerApiPath.WIDGETS_PATH))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(defaultId));
+
+        mockMvc.perform(MockMvcRequestBuilders.delete(firstCanvasPath + "/" + firstId))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * Creates widget through endpoint.
+     *
+     * @param x      x coordinate.
+     * @param y      y coordinate.
+     * @param width  widget width.
+     * @param height widget height.
+     * @return created widget identifier.
+     * @throws Exception on request error.
+     */
+    protected String createWidget(final int x, final int y, final int width, final int height) throws Exception {
+        final MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.post(WidgetControllerApiPath.WIDGETS_PATH)
+                .content(createObjectBuilder()
+                        .add("x", x)
+                        .add("y", y)
+                        .add("width", width)
+                        .add("height", height)
+                        .build()
+                        .toString()
+                )
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        return JsonPath.read(mvcResult.getResponse().getContentAsString(), "$.id");
+    }
+
     /**
      * Creates widgets and saves them in repository.
      * Widgets will have from 1 to widgetNumber id and z-index.
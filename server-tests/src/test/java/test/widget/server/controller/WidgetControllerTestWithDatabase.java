@@ -11,6 +11,9 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.util.List;
+import java.util.Map;
+
 import static javax.json.Json.createObjectBuilder;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
@@ -71,4 +74,98 @@ public class WidgetControllerTestWithDatabase {
                 .andExpect(jsonPath("$.height").value("200"));
     }
 
+    /**
+     * Test getting widgets with a part of fields, loaded from database by projection query.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    void testGettingProjectedWidgets() throws Exception {
+        //given
+        mockMvc.perform(MockMvcRequestBuilders.post(WidgetControllerApiPath.WIDGETS_PATH)
+                .content(createObjectBuilder()
+                        .add("x", "10")
+                        .add("y", "20")
+                        .add("width", "30")
+                        .add("height", "40")
+                        .build()
+                        .toString()
+                )
+                .contentType(APPLICATION_JSON))
+                .andExpect(status().isCreated());
+
+        //when
+        final MvcResult mvcResult = mockMvc.perform(get(WidgetControllerApiPath.WIDGETS_PATH)
+                .param("fields", "id,x,y,z")
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        //then
+        final List<Map<String, Object>> widgets = JsonPath.read(mvcResult.getResponse().getContentAsString(), "$");
+
+        assertThat(widgets).isNotEmpty();
+        assertThat(widgets).allSatisfy(widget -> assertThat(widget).containsOnlyKeys("id", "x", "y", "z"));
+        assertThat(widgets).anySatisfy(widget -> assertThat(widget).containsEntry("x", 10).containsEntry("y", 20));
+    }
+
+    /**
+     * Count and stats should be calculated by database.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    void testCountAndStats() throws Exception {
+        //given
+        mockMvc.perform(MockMvcRequestBuilders.post(WidgetControllerApiPath.WIDGETS_PATH)
+                .content(createObjectBuilder()
+                        .add("x", Integer.MAX_VALUE - 10)
+                        .add("y", "-20")
+                        .add("width", "30")
+                        .add("height", "40")
+                        .build()
+                        .toString()
+                )
+                .contentType(APPLICATION_JSON))
+                .andExpect(status().isCreated());
+
+        //when
+        final MvcResult countResult = mockMvc.perform(get(WidgetControllerApiPath.WIDGETS_PATH + "/count")
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        final MvcResult statsResult = mockMvc.perform(get(WidgetControllerApiPath.WIDGETS_PATH + "/stats")
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        //then
+        final long count = Long.parseLong(countResult.getResponse().getContentAsString());
+        final String stats = statsResult.getResponse().getContentAsString();
+
+        assertThat(count).isPositive();
+        assertThat(((Number) JsonPath.read(stats, "$.count")).longValue()).isEqualTo(count);
+        assertThat(((Number) JsonPath.read(stats, "$.minY")).intValue()).isLessThanOrEqualTo(-20);
+        assertThat(((Number) JsonPath.read(stats, "$.maxX")).longValue()).isEqualTo((long) Integer.MAX_VALUE + 20);
+
+        mockMvc.perform(get(WidgetControllerApiPath.WIDGETS_PATH + "/count")
+                .param("x", Integer.toString(Integer.MAX_VALUE - 10))
+                .param("y", "-20")
+                .param("width", "30")
+                .param("height", "40")
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(1));
+
+        mockMvc.perform(get(WidgetControllerApiPath.WIDGETS_PATH + "/count")
+                .param("x", Integer.toString(Integer.MAX_VALUE))
+                .param("y", "0")
+                .param("width", "0")
+                .param("height", "0")
+                .param("mode", "INTERSECTS")
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(1));
+    }
 }
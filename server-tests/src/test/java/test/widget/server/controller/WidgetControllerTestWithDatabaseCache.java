@@ -0,0 +1,114 @@
+package test.widget.server.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import test.widget.server.domain.Widget;
+
+import javax.persistence.EntityManagerFactory;
+
+import static javax.json.Json.createObjectBuilder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Asserts that cached widgets and query results are invalidated when widgets are changed in database.
+ *
+ * @author Mikhail Kondratev
+ */
+@SpringBootTest
+@WebAppConfiguration
+@ActiveProfiles("test-h2")
+@TestPropertySource(properties = "server.widget.database-cache-enabled=true")
+@AutoConfigureMockMvc
+public class WidgetControllerTestWithDatabaseCache {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Cached widget should have new z-index after it was shifted by another widget,
+     * and cached count should include new widgets.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    void testCacheInvalidation() throws Exception {
+        //given
+        final String id = createWidget(100);
+        final long count = getCount();
+
+        mockMvc.perform(get(WidgetControllerApiPath.WIDGETS_PATH + "/" + id)
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.z").value(100));
+
+        assertThat(entityManagerFactory.getCache().contains(Widget.class, id)).isTrue();
+
+        //when
+        createWidget(100);
+
+        //then
+        mockMvc.perform(get(WidgetControllerApiPath.WIDGETS_PATH + "/" + id)
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.z").value(101));
+
+        assertThat(getCount()).isEqualTo(count + 1);
+    }
+
+    /**
+     * Creates widget with specified z-index.
+     *
+     * @param z z-index.
+     * @return identifier of created widget.
+     * @throws Exception on request error.
+     */
+    private String createWidget(final int z) throws Exception {
+        final MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.post(WidgetControllerApiPath.WIDGETS_PATH)
+                .content(createObjectBuilder()
+                        .add("x", "10")
+                        .add("y", "20")
+                        .add("z", Integer.toString(z))
+                        .add("width", "30")
+                        .add("height", "40")
+                        .build()
+                        .toString()
+                )
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        return JsonPath.read(mvcResult.getResponse().getContentAsString(), "$.id");
+    }
+
+    /**
+     * Gets count of all widgets.
+     *
+     * @return widgets count.
+     * @throws Exception on request error.
+     */
+    private long getCount() throws Exception {
+        final MvcResult mvcResult = mockMvc.perform(get(WidgetControllerApiPath.WIDGETS_PATH + "/count")
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        return Long.parseLong(mvcResult.getResponse().getContentAsString());
+    }
+}
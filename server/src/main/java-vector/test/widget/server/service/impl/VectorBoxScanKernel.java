@@ -0,0 +1,75 @@
+package test.widget.server.service.impl;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link BoxScanKernel}, that compares edges of several boxes at once by Vector API,
+ * e.g. 4 boxes with AVX2 or 8 boxes with AVX-512, and takes match bits right from comparison masks.
+ * <p/>
+ * Built from a separate source root by JDK 17 or later, and loaded by {@link VectorizedWidgetFilteringService}
+ * only if module <code>jdk.incubator.vector</code> is added to the JVM.
+ *
+ * @author Mikhail Kondratev
+ */
+public class VectorBoxScanKernel implements BoxScanKernel {
+
+    /**
+     * Widest vector shape supported by the CPU. Number of lanes divides 64, so that lanes never cross bitmap words.
+     */
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    @Override
+    public void scanInside(final long[] left, final long[] top, final long[] right, final long[] bottom, final int count,
+                           final long areaLeft, final long areaTop, final long areaRight, final long areaBottom,
+                           final long[] matches) {
+        final int bound = SPECIES.loopBound(count);
+
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            final VectorMask<Long> match = LongVector.fromArray(SPECIES, left, i).compare(VectorOperators.GE, areaLeft)
+                    .and(LongVector.fromArray(SPECIES, top, i).compare(VectorOperators.GE, areaTop))
+                    .and(LongVector.fromArray(SPECIES, right, i).compare(VectorOperators.LE, areaRight))
+                    .and(LongVector.fromArray(SPECIES, bottom, i).compare(VectorOperators.LE, areaBottom));
+
+            matches[i >>> 6] |= match.toLong() << i;
+        }
+
+        for (; i < count; i++) {
+            final boolean match = left[i] >= areaLeft
+                    & top[i] >= areaTop
+                    & right[i] <= areaRight
+                    & bottom[i] <= areaBottom;
+
+            matches[i >>> 6] |= (match ? 1L : 0L) << i;
+        }
+    }
+
+    @Override
+    public void scanIntersecting(final long[] left, final long[] top, final long[] right, final long[] bottom, final int count,
+                                 final long areaLeft, final long areaTop, final long areaRight, final long areaBottom,
+                                 final long[] matches) {
+        final int bound = SPECIES.loopBound(count);
+
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            final VectorMask<Long> match = LongVector.fromArray(SPECIES, left, i).compare(VectorOperators.LE, areaRight)
+                    .and(LongVector.fromArray(SPECIES, top, i).compare(VectorOperators.LE, areaBottom))
+                    .and(LongVector.fromArray(SPECIES, right, i).compare(VectorOperators.GE, areaLeft))
+                    .and(LongVector.fromArray(SPECIES, bottom, i).compare(VectorOperators.GE, areaTop));
+
+            matches[i >>> 6] |= match.toLong() << i;
+        }
+
+        for (; i < count; i++) {
+            final boolean match = left[i] <= areaRight
+                    & top[i] <= areaBottom
+                    & right[i] >= areaLeft
+                    & bottom[i] >= areaTop;
+
+            matches[i >>> 6] |= (match ? 1L : 0L) << i;
+        }
+    }
+}
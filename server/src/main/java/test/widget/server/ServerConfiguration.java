@@ -1,13 +1,27 @@
 package test.widget.server;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import test.widget.server.controller.CanvasArgumentResolver;
 import test.widget.server.controller.WidgetController;
+import test.widget.server.controller.converter.WidgetBinaryHttpMessageConverter;
+import test.widget.server.controller.converter.WidgetJsonHttpMessageConverter;
+import test.widget.server.service.CanvasRegistry;
 import test.widget.server.service.WidgetFilteringService;
 import test.widget.server.service.WidgetService;
+import test.widget.server.service.impl.BasicWidgetFilteringService;
 import test.widget.server.service.impl.RTreeWidgetFilteringService;
 
+import java.util.List;
+
 /**
  * Widget server spring context configuration.
  *
@@ -15,11 +29,80 @@ import test.widget.server.service.impl.RTreeWidgetFilteringService;
  */
 @Configuration
 @ComponentScan(basePackageClasses = {WidgetController.class, WidgetService.class})
-public class ServerConfiguration {
+public class ServerConfiguration implements WebMvcConfigurer {
+
+    /**
+     * Provider of canvas registry, resolved lazily, as the registry depends on beans of this configuration.
+     */
+    private final ObjectProvider<CanvasRegistry> canvasRegistryProvider;
+
+    /**
+     * Constructor.
+     *
+     * @param canvasRegistryProvider provider of canvas registry.
+     */
+    public ServerConfiguration(final ObjectProvider<CanvasRegistry> canvasRegistryProvider) {
+        this.canvasRegistryProvider = canvasRegistryProvider;
+    }
 
+    /**
+     * Service for filtering widgets inside an area.
+     *
+     * @param serverConfigurationProperties general server configuration properties.
+     * @return scanning service if spatial index is disabled, otherwise R-tree service.
+     */
     @Bean
-    public WidgetFilteringService widgetFilteringService() {
+    public WidgetFilteringService widgetFilteringService(final ServerConfigurationProperties serverConfigurationProperties) {
+        if (!serverConfigurationProperties.isSpatialIndexEnabled()) {
+            return new BasicWidgetFilteringService(serverConfigurationProperties.getFilteringParallelism(),
+                    serverConfigurationProperties.getFilteringParallelThreshold());
+        }
+
         return new RTreeWidgetFilteringService();
     }
 
+    /**
+     * Executor for asynchronous widget requests.
+     * Lock waits and repository calls of these requests occupy it's threads instead of servlet container threads.
+     * If virtual threads are enabled, every request is executed on a new virtual thread.
+     *
+     * @param serverConfigurationProperties general server configuration properties.
+     * @return widget requests executor.
+     */
+    @Bean
+    public TaskExecutor widgetTaskExecutor(final ServerConfigurationProperties serverConfigurationProperties) {
+        if (serverConfigurationProperties.isVirtualThreadsEnabled()) {
+            return new TaskExecutorAdapter(VirtualThreads.newThreadPerTaskExecutor("widget-task-"));
+        }
+
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(serverConfigurationProperties.getAsyncPoolSize());
+        executor.setMaxPoolSize(serverConfigurationProperties.getAsyncPoolSize());
+        executor.setQueueCapacity(serverConfigurationProperties.getAsyncQueueCapacity());
+        executor.setThreadNamePrefix("widget-task-");
+
+        return executor;
+    }
+
+    /**
+     * Adds JSON widgets converter before default ones, so that it replaces Jackson for widgets,
+     * and binary widgets converter after default ones, so that it is used only if requested explicitly in <code>Accept</code> header.
+     *
+     * @param converters configured converters.
+     */
+    @Override
+    public void extendMessageConverters(final List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new WidgetJsonHttpMessageConverter());
+        converters.add(new WidgetBinaryHttpMessageConverter());
+    }
+
+    /**
+     * Adds resolver of canvas, addressed by request path.
+     *
+     * @param resolvers configured resolvers.
+     */
+    @Override
+    public void addArgumentResolvers(final List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new CanvasArgumentResolver(canvasRegistryProvider.getObject()));
+    }
 }
@@ -3,6 +3,7 @@ package test.widget.server;
 import lombok.Data;
 import org.hibernate.validator.constraints.Range;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.annotation.Validated;
 
@@ -46,4 +47,162 @@ public class ServerConfigurationProperties {
      * <code>false</code> - widgets should be stored in heap.
      */
     private boolean databaseEnabled;
+
+    /**
+     * <code>true</code> - widgets found inside an area should be cached until changed.
+     */
+    private boolean resultCacheEnabled;
+
+    /**
+     * Max number of areas held in result cache.
+     */
+    @Range(min = 1, max = Integer.MAX_VALUE)
+    private int resultCacheMaxSize = 1000;
+
+    /**
+     * Max number of widget changes held in memory for answering changes requests.
+     */
+    @Range(min = 1, max = Integer.MAX_VALUE)
+    private int changeLogCapacity = 10000;
+
+    /**
+     * Timeout of widget events subscription, in seconds.
+     */
+    @Range(min = 1, max = Integer.MAX_VALUE)
+    private int subscriptionTimeout = 3600;
+
+    /**
+     * Max number of widget events queued for one subscription.
+     * Subscription, which client doesn't read events fast enough to keep it's queue from filling up, is cancelled.
+     */
+    @Range(min = 1, max = Integer.MAX_VALUE)
+    private int subscriptionQueueCapacity = 1000;
+
+    /**
+     * Number of threads delivering widget events to subscriptions.
+     */
+    @Range(min = 1, max = Integer.MAX_VALUE)
+    private int subscriptionDeliveryThreads = 4;
+
+    /**
+     * Max time of sending one widget event to a subscription, in milliseconds.
+     * Subscription, which client blocks sending for longer, is cancelled, so that it doesn't hold a delivery thread.
+     */
+    @Range(min = 1, max = Integer.MAX_VALUE)
+    private long subscriptionSendTimeout = 5000;
+
+    /**
+     * Number of threads for executing asynchronous widget requests.
+     */
+    @Range(min = 1, max = Integer.MAX_VALUE)
+    private int asyncPoolSize = 16;
+
+    /**
+     * Max number of asynchronous widget requests waiting for execution.
+     */
+    @Range(min = 0, max = Integer.MAX_VALUE)
+    private int asyncQueueCapacity = 10000;
+
+    /**
+     * Flag for handling requests on virtual threads. Requires JDK with virtual threads support.
+     */
+    private boolean virtualThreadsEnabled;
+
+    /**
+     * Flag for filtering widgets by spatial index. If disabled, widgets are filtered by a scan.
+     */
+    private boolean spatialIndexEnabled = true;
+
+    /**
+     * Number of threads for scanning widgets in parallel, when spatial index is disabled.
+     * One means sequential scans.
+     */
+    @Range(min = 1, max = Short.MAX_VALUE)
+    private int filteringParallelism = 1;
+
+    /**
+     * Min number of widgets to be scanned in parallel.
+     */
+    @Range(min = 1, max = Integer.MAX_VALUE)
+    private int filteringParallelThreshold = 100000;
+
+    /**
+     * Flag for indexing widgets of heap repository by packed R-tree, bulk-built from primitive arrays,
+     * when tile size is not set.
+     */
+    private boolean packedIndexEnabled;
+
+    /**
+     * Number of widgets written since the last build of packed R-tree, after which it is rebuilt in background.
+     */
+    @Range(min = 1, max = Integer.MAX_VALUE)
+    private int packedIndexRebuildThreshold = 1000;
+
+    /**
+     * Time in seconds, after which a canvas without requests is considered idle.
+     */
+    @Range(min = 1, max = Integer.MAX_VALUE)
+    private int canvasIdleTimeout = 600;
+
+    /**
+     * Side of tiles, into which heap repository partitions the plane, at least 2, or 0 for no partitioning.
+     * Tiles have their own locks and are scanned in parallel by area queries.
+     */
+    @Range(min = 0, max = Integer.MAX_VALUE)
+    private int tileSize;
+
+    /**
+     * Loopback port, on which the server streams widget changes to replicas, or 0 if replication is disabled.
+     */
+    @Range(min = 0, max = 65535)
+    private int replicationPort;
+
+    /**
+     * Address of the leader in <code>host:port</code> form, if the server is a read-only replica.
+     */
+    @Nullable
+    private String replicationLeader;
+
+    /**
+     * JDBC URL of the read replica database, if read-only transactions should be routed to it.
+     */
+    @Nullable
+    private String replicaDatasourceUrl;
+
+    /**
+     * User name of the read replica database.
+     */
+    @Nullable
+    private String replicaDatasourceUsername;
+
+    /**
+     * Password of the read replica database.
+     */
+    @Nullable
+    private String replicaDatasourcePassword;
+
+    /**
+     * Interval of checking the commits reached by the read replica, in milliseconds.
+     * Replica serves reads only after it has reached all commits, so the interval bounds the delay of using it after writes.
+     */
+    @Range(min = 1, max = Long.MAX_VALUE)
+    private long replicaCheckInterval = 1000;
+
+    /**
+     * <code>true</code> - widgets and aggregate queries should be cached in Hibernate second-level cache,
+     * when widgets are stored in DB.
+     */
+    private boolean databaseCacheEnabled;
+
+    /**
+     * Max number of entries held in each second-level cache region.
+     */
+    @Range(min = 1, max = Integer.MAX_VALUE)
+    private int databaseCacheMaxSize = 100000;
+
+    /**
+     * Number of rows fetched from DB in one round trip, or 0 for the driver default.
+     */
+    @Range(min = 0, max = Integer.MAX_VALUE)
+    private int databaseFetchSize;
 }
@@ -0,0 +1,58 @@
+package test.widget.server;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads of JDK 21 and later.
+ * <p/>
+ * Server is compiled for JDK 11, so virtual threads API is accessed through reflection.
+ *
+ * @author Mikhail Kondratev
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return <code>true</code> if current JDK supports virtual threads.
+     */
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates executor, that starts a new virtual thread for each task.
+     *
+     * @param namePrefix prefix of thread names, followed by thread number.
+     * @return created executor.
+     * @throws IllegalStateException if current JDK does not support virtual threads.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(final String namePrefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads are not supported by JDK " + Runtime.version());
+        }
+
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+
+            final ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Failed to create virtual threads executor", e);
+        }
+    }
+}
@@ -1,25 +1,52 @@
 package test.widget.server.autoconfigure;
 
+import org.ehcache.config.ResourcePools;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import test.widget.server.ServerConfigurationProperties;
+import test.widget.server.datasource.ReplicaRoutingDataSource;
+import test.widget.server.datasource.ReplicaStalenessGuard;
 import test.widget.server.domain.Widget;
 import test.widget.server.repository.WidgetRepository;
 import test.widget.server.repository.impl.WidgetDatabaseRepository;
 
+import javax.cache.CacheManager;
+import javax.cache.Caching;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.sql.DataSource;
+import java.net.URI;
+import java.util.UUID;
+
+import static java.util.Objects.requireNonNull;
 
 /**
  * Auto-configuration for creating {@link WidgetRepository} if any type of {@link DataSource} exists.
+ * <p/>
+ * JPA auto-configuration is imported first, so that transactions are managed by JPA transaction manager,
+ * rather than by plain data source one, which would be registered otherwise.
+ * If replica database is set, read-only transactions are routed to it, while it has all committed modifications.
+ * If database cache is enabled, widgets and aggregate queries are cached in local second-level cache.
+ * Rows are fetched in batches of configured fetch size.
  *
  * @author Mikhail Kondratev
  */
@@ -27,8 +54,8 @@ import javax.sql.DataSource;
 @AutoConfigureAfter(HeapWidgetRepositoryConfiguration.class)
 @ConditionalOnMissingBean(WidgetRepository.class)
 @Import({DataSourceAutoConfiguration.class,
-        DataSourceTransactionManagerAutoConfiguration.class,
-        HibernateJpaAutoConfiguration.class})
+        HibernateJpaAutoConfiguration.class,
+        DataSourceTransactionManagerAutoConfiguration.class})
 @EnableTransactionManagement
 class EntityManagerBasedConfiguration {
 
@@ -37,7 +64,82 @@ class EntityManagerBasedConfiguration {
 
     @Bean
     public WidgetRepository widgetJpaRepository() {
-        return new WidgetDatabaseRepository(new SimpleJpaRepository<>(Widget.class, entityManager));
+        return new WidgetDatabaseRepository(new SimpleJpaRepository<>(Widget.class, entityManager), entityManager);
+    }
+
+    /**
+     * Static, as entity manager factory is customized before this configuration can be injected with entity manager.
+     */
+    @Bean
+    public static HibernatePropertiesCustomizer fetchSizeCustomizer(final ServerConfigurationProperties serverConfigurationProperties) {
+        return properties -> {
+            if (serverConfigurationProperties.getDatabaseFetchSize() > 0) {
+                properties.put(AvailableSettings.STATEMENT_FETCH_SIZE, serverConfigurationProperties.getDatabaseFetchSize());
+            }
+        };
     }
 
+    /**
+     * Configuration of primary and replica databases, replacing the default data source.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = "server.widget", name = "replica-datasource-url")
+    static class ReplicaDataSourceConfiguration {
+
+        @Bean(initMethod = "start", destroyMethod = "close")
+        public ReplicaStalenessGuard replicaStalenessGuard(final DataSourceProperties dataSourceProperties,
+                                                           final ServerConfigurationProperties serverConfigurationProperties) {
+            final DataSource replica = DataSourceBuilder.create()
+                    .url(requireNonNull(serverConfigurationProperties.getReplicaDatasourceUrl()))
+                    .username(serverConfigurationProperties.getReplicaDatasourceUsername())
+                    .password(serverConfigurationProperties.getReplicaDatasourcePassword())
+                    .build();
+
+            return new ReplicaStalenessGuard(dataSourceProperties.initializeDataSourceBuilder().build(), replica,
+                    serverConfigurationProperties.getReplicaCheckInterval());
+        }
+
+        @Bean
+        public DataSource dataSource(final ReplicaStalenessGuard replicaStalenessGuard) {
+            return ReplicaRoutingDataSource.create(replicaStalenessGuard);
+        }
+    }
+
+    /**
+     * Configuration of Hibernate second-level and query caches, held in heap by Ehcache.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = "server.widget", name = "database-cache-enabled", havingValue = "true")
+    static class SecondLevelCacheConfiguration {
+
+        @Bean(destroyMethod = "close")
+        public CacheManager widgetCacheManager(final ServerConfigurationProperties serverConfigurationProperties) {
+            final ResourcePools resourcePools = ResourcePoolsBuilder.heap(serverConfigurationProperties.getDatabaseCacheMaxSize()).build();
+
+            final org.ehcache.config.Configuration configuration = ConfigurationBuilder.newConfigurationBuilder()
+                    .withCache(Widget.class.getName(),
+                            CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class, resourcePools))
+                    .withCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                            CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class, resourcePools))
+                    .withCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                            CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class, resourcePools))
+                    .build();
+
+            final EhcacheCachingProvider cachingProvider =
+                    (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+
+            return cachingProvider.getCacheManager(URI.create("urn:widgets:" + UUID.randomUUID()), configuration);
+        }
+
+        @Bean
+        public HibernatePropertiesCustomizer secondLevelCacheCustomizer(final CacheManager widgetCacheManager) {
+            return properties -> {
+                properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+                properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+                properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+                properties.put(ConfigSettings.CACHE_MANAGER, widgetCacheManager);
+                properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            };
+        }
+    }
 }
@@ -3,11 +3,15 @@ package test.widget.server.autoconfigure;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import test.widget.server.ServerConfigurationProperties;
 import test.widget.server.repository.WidgetRepository;
 import test.widget.server.repository.impl.WidgetHeapRepository;
+import test.widget.server.repository.impl.WidgetPackedRTreeHeapRepository;
+import test.widget.server.repository.impl.WidgetTiledHeapRepository;
 
 /**
  * Auto-configuration for creating heap-based widget repository.
+ * If tile size is set, repository partitions the plane into tiles, otherwise it may be indexed by packed R-tree.
  *
  * @author Mikhail Kondratev
  */
@@ -16,7 +20,15 @@ import test.widget.server.repository.impl.WidgetHeapRepository;
 class HeapWidgetRepositoryConfiguration {
 
     @Bean
-    public WidgetRepository widgetHeapRepository() {
+    public WidgetRepository widgetHeapRepository(final ServerConfigurationProperties serverConfigurationProperties) {
+        if (serverConfigurationProperties.getTileSize() > 0) {
+            return new WidgetTiledHeapRepository(serverConfigurationProperties.getTileSize());
+        }
+
+        if (serverConfigurationProperties.isPackedIndexEnabled()) {
+            return new WidgetPackedRTreeHeapRepository(serverConfigurationProperties.getPackedIndexRebuildThreshold());
+        }
+
         return new WidgetHeapRepository();
     }
 }
@@ -0,0 +1,37 @@
+package test.widget.server.autoconfigure;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import test.widget.server.ServerConfigurationProperties;
+import test.widget.server.replication.WidgetReplicationFollower;
+import test.widget.server.replication.WidgetReplicationLeader;
+import test.widget.server.service.WidgetService;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Auto-configuration for replicating heap-based widgets between servers.
+ * <p/>
+ * Server with replication port set is the leader, server with replication leader set is a read-only replica.
+ *
+ * @author Mikhail Kondratev
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "server.widget", name = "database-enabled", havingValue = "false", matchIfMissing = true)
+class ReplicationConfiguration {
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "server.widget", name = "replication-port")
+    public WidgetReplicationLeader widgetReplicationLeader(final WidgetService widgetService,
+                                                           final ServerConfigurationProperties serverConfigurationProperties) {
+        return new WidgetReplicationLeader(widgetService, serverConfigurationProperties.getReplicationPort());
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "server.widget", name = "replication-leader")
+    public WidgetReplicationFollower widgetReplicationFollower(final WidgetService widgetService,
+                                                               final ServerConfigurationProperties serverConfigurationProperties) {
+        return new WidgetReplicationFollower(widgetService, requireNonNull(serverConfigurationProperties.getReplicationLeader()));
+    }
+}
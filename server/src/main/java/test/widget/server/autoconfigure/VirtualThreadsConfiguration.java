@@ -0,0 +1,24 @@
+package test.widget.server.autoconfigure;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import test.widget.server.VirtualThreads;
+
+/**
+ * Auto-configuration for handling Tomcat requests on virtual threads.
+ * <p/>
+ * Repository calls are made on request threads, so waiting for database does not occupy platform threads.
+ *
+ * @author Mikhail Kondratev
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "server.widget", name = "virtual-threads-enabled", havingValue = "true")
+class VirtualThreadsConfiguration {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor("http-virtual-"));
+    }
+}
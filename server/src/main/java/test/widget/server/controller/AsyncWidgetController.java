@@ -0,0 +1,330 @@
+package test.widget.server.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import test.widget.server.controller.params.FilteringParams;
+import test.widget.server.controller.params.PaginationParams;
+import test.widget.server.controller.params.WidgetParams;
+import test.widget.server.domain.ProjectedWidget;
+import test.widget.server.domain.ProjectedWidgets;
+import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetChanges;
+import test.widget.server.domain.WidgetStats;
+import test.widget.server.service.Canvas;
+import test.widget.server.service.WidgetService;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * REST-controller for asynchronous operations with widgets.
+ * <p/>
+ * Provides the same operations as {@link WidgetController}, but executes them on widget task executor,
+ * so that servlet container threads are released while requests wait for the repository.
+ * Requests wait for widget locks as futures, holding neither a container nor an executor thread.
+ * Requests exceeding executor queue capacity are answered with {@link HttpStatus#SERVICE_UNAVAILABLE}.
+ * <p/>
+ * Params and entity tag are checked on container thread, so not modified widgets are answered without dispatching.
+ *
+ * @author Mikhail Kondratev
+ * @see WidgetController
+ */
+@Slf4j
+@RestController
+public class AsyncWidgetController {
+
+    /**
+     * Controller, which operations are executed asynchronously.
+     */
+    private final WidgetController widgetController;
+
+    /**
+     * Executor for widget requests.
+     */
+    private final TaskExecutor widgetTaskExecutor;
+
+    /**
+     * Constructor.
+     *
+     * @param widgetController   controller, which operations are executed asynchronously.
+     * @param widgetTaskExecutor executor for widget requests.
+     */
+    public AsyncWidgetController(final WidgetController widgetController, final TaskExecutor widgetTaskExecutor) {
+        this.widgetController = widgetController;
+        this.widgetTaskExecutor = widgetTaskExecutor;
+    }
+
+    /**
+     * Asynchronously gets all widgets, sorted by z index, ascending.
+     *
+     * @param canvas           canvas of widgets.
+     * @param filteringParams  filtering params.
+     * @param paginationParams pagination params.
+     * @param webRequest       current request, for checking entity tag.
+     * @return future of sorted list of all widgets.
+     * @see WidgetController#getAll(Canvas, FilteringParams, PaginationParams, WebRequest)
+     */
+    @GetMapping(WidgetControllerApiPath.ASYNC_WIDGETS_PATH)
+    public CompletableFuture<HttpEntity<Collection<Widget>>> getAll(final Canvas canvas,
+                                                                    final FilteringParams filteringParams,
+                                                                    final PaginationParams paginationParams,
+                                                                    final WebRequest webRequest) {
+        return executeIfModified(canvas, webRequest, () -> widgetController.filteringParamsAreValid(filteringParams),
+                () -> widgetController.getAll(canvas, filteringParams, paginationParams, null));
+    }
+
+    /**
+     * Asynchronously gets all widgets with specified fields only, sorted by z index, ascending.
+     *
+     * @param canvas           canvas of widgets.
+     * @param filteringParams  filtering params.
+     * @param paginationParams pagination params.
+     * @param fields           comma-separated names of fields to be returned.
+     * @param webRequest       current request, for checking entity tag.
+     * @return future of sorted list of all widgets.
+     * @see WidgetController#getAllProjected(Canvas, FilteringParams, PaginationParams, String, WebRequest)
+     */
+    @GetMapping(path = WidgetControllerApiPath.ASYNC_WIDGETS_PATH, params = "fields")
+    public CompletableFuture<HttpEntity<ProjectedWidgets>> getAllProjected(final Canvas canvas,
+                                                                           final FilteringParams filteringParams,
+                                                                           final PaginationParams paginationParams,
+                                                                           @RequestParam final String fields,
+                                                                           final WebRequest webRequest) {
+        return executeIfModified(canvas, webRequest, () -> {
+            WidgetController.parseFields(fields);
+            return widgetController.filteringParamsAreValid(filteringParams);
+        }, () -> widgetController.getAllProjected(canvas, filteringParams, paginationParams, fields, null));
+    }
+
+    /**
+     * Asynchronously counts widgets.
+     *
+     * @param canvas          canvas of widgets.
+     * @param filteringParams filtering params.
+     * @param webRequest      current request, for checking entity tag.
+     * @return future of number of widgets.
+     * @see WidgetController#count(Canvas, FilteringParams, WebRequest)
+     */
+    @GetMapping(WidgetControllerApiPath.ASYNC_WIDGETS_PATH + "/count")
+    public CompletableFuture<HttpEntity<Long>> count(final Canvas canvas,
+                                                     final FilteringParams filteringParams, final WebRequest webRequest) {
+        return executeIfModified(canvas, webRequest, () -> widgetController.filteringParamsAreValid(filteringParams),
+                () -> widgetController.count(canvas, filteringParams, null));
+    }
+
+    /**
+     * Asynchronously gets widgets under a point, the topmost first.
+     *
+     * @param canvas     canvas of widgets.
+     * @param x          point x-coordinate.
+     * @param y          point y-coordinate.
+     * @param limit      max number of widgets to be returned.
+     * @param webRequest current request, for checking entity tag.
+     * @return future of widgets under the point.
+     * @see WidgetController#getAtPoint(Canvas, int, int, int, WebRequest)
+     */
+    @GetMapping(WidgetControllerApiPath.ASYNC_WIDGETS_PATH + "/at")
+    public CompletableFuture<HttpEntity<Collection<Widget>>> getAtPoint(final Canvas canvas,
+                                                                        @RequestParam final int x,
+                                                                        @RequestParam final int y,
+                                                                        @RequestParam(defaultValue = "1") final int limit,
+                                                                        final WebRequest webRequest) {
+        return executeIfModified(canvas, webRequest, () -> null,
+                () -> widgetController.getAtPoint(canvas, x, y, limit, null));
+    }
+
+    /**
+     * Asynchronously gets widgets nearest to a point.
+     *
+     * @param canvas     canvas of widgets.
+     * @param x          point x-coordinate.
+     * @param y          point y-coordinate.
+     * @param count      max number of widgets to be returned.
+     * @param webRequest current request, for checking entity tag.
+     * @return future of nearest widgets.
+     * @see WidgetController#getNearest(Canvas, int, int, int, WebRequest)
+     */
+    @GetMapping(WidgetControllerApiPath.ASYNC_WIDGETS_PATH + "/nearest")
+    public CompletableFuture<HttpEntity<Collection<Widget>>> getNearest(final Canvas canvas,
+                                                                        @RequestParam final int x,
+                                                                        @RequestParam final int y,
+                                                                        @RequestParam(defaultValue = "1") final int count,
+                                                                        final WebRequest webRequest) {
+        return executeIfModified(canvas, webRequest, () -> null,
+                () -> widgetController.getNearest(canvas, x, y, count, null));
+    }
+
+    /**
+     * Asynchronously gets aggregates of all widgets.
+     *
+     * @param canvas     canvas of widgets.
+     * @param webRequest current request, for checking entity tag.
+     * @return future of widget aggregates.
+     * @see WidgetController#getStats(Canvas, WebRequest)
+     */
+    @GetMapping(WidgetControllerApiPath.ASYNC_WIDGETS_PATH + "/stats")
+    public CompletableFuture<HttpEntity<WidgetStats>> getStats(final Canvas canvas,
+                                                               final WebRequest webRequest) {
+        return executeIfModified(canvas, webRequest, () -> null, () -> widgetController.getStats(canvas, null));
+    }
+
+    /**
+     * Asynchronously gets widgets changed since specified canvas version.
+     *
+     * @param canvas canvas of widgets.
+     * @param since canvas version, returned by previous changes request.
+     * @return future of changed widgets and identifiers of deleted widgets.
+     * @see WidgetController#getChanges(Canvas, Long)
+     */
+    @GetMapping(WidgetControllerApiPath.ASYNC_WIDGETS_PATH + "/changes")
+    public CompletableFuture<HttpEntity<WidgetChanges>> getChanges(final Canvas canvas,
+                                                                   @RequestParam(required = false) @Nullable final Long since) {
+        return execute(canvas, false, () -> widgetController.getChanges(canvas, since));
+    }
+
+    /**
+     * Asynchronously creates new widget with requested parameters.
+     *
+     * @param canvas       canvas of widgets.
+     * @param widgetParams widget parameters.
+     * @return future of newly created widget.
+     * @see WidgetController#createNew(Canvas, WidgetParams)
+     */
+    @PostMapping(WidgetControllerApiPath.ASYNC_WIDGETS_PATH)
+    public CompletableFuture<HttpEntity<Widget>> createNew(final Canvas canvas,
+                                                           @RequestBody final WidgetParams widgetParams) {
+        return execute(canvas, false, () -> widgetController.createNew(canvas, widgetParams));
+    }
+
+    /**
+     * Asynchronously gets widget by it's identifier.
+     *
+     * @param canvas     canvas of widgets.
+     * @param id         widget identifier.
+     * @param webRequest current request, for checking entity tag.
+     * @return future of found widget.
+     * @see WidgetController#getById(Canvas, String, WebRequest)
+     */
+    @GetMapping(WidgetControllerApiPath.ASYNC_WIDGETS_PATH + "/{id}")
+    public CompletableFuture<HttpEntity<Widget>> getById(final Canvas canvas,
+                                                         @PathVariable final String id, final WebRequest webRequest) {
+        return executeIfModified(canvas, webRequest, () -> null, () -> widgetController.getById(canvas, id, null));
+    }
+
+    /**
+     * Asynchronously gets widget by it's identifier with specified fields only.
+     *
+     * @param canvas     canvas of widgets.
+     * @param id         widget identifier.
+     * @param fields     comma-separated names of fields to be returned.
+     * @param webRequest current request, for checking entity tag.
+     * @return future of found widget.
+     * @see WidgetController#getByIdProjected(Canvas, String, String, WebRequest)
+     */
+    @GetMapping(path = WidgetControllerApiPath.ASYNC_WIDGETS_PATH + "/{id}", params = "fields")
+    public CompletableFuture<HttpEntity<ProjectedWidget>> getByIdProjected(final Canvas canvas,
+                                                                           @PathVariable final String id,
+                                                                           @RequestParam final String fields,
+                                                                           final WebRequest webRequest) {
+        return executeIfModified(canvas, webRequest, () -> WidgetController.parseFields(fields),
+                () -> widgetController.getByIdProjected(canvas, id, fields, null));
+    }
+
+    /**
+     * Asynchronously updates existing widget or creates a new one.
+     *
+     * @param canvas       canvas of widgets.
+     * @param widgetParams widget params new values.
+     * @param id           widget identifier.
+     * @return future of updated or newly created widget.
+     * @see WidgetController#update(Canvas, WidgetParams, String)
+     */
+    @PutMapping(WidgetControllerApiPath.ASYNC_WIDGETS_PATH + "/{id}")
+    public CompletableFuture<HttpEntity<Widget>> update(final Canvas canvas,
+                                                        @RequestBody final WidgetParams widgetParams,
+                                                        @PathVariable final String id) {
+        return execute(canvas, false, () -> widgetController.update(canvas, widgetParams, id));
+    }
+
+    /**
+     * Asynchronously deletes widget with specified id.
+     *
+     * @param canvas canvas of widgets.
+     * @param id id of a widget to be removed.
+     * @return future completed after deletion.
+     * @see WidgetController#delete(Canvas, String)
+     */
+    @DeleteMapping(WidgetControllerApiPath.ASYNC_WIDGETS_PATH + "/{id}")
+    public CompletableFuture<Void> delete(final Canvas canvas,
+                                          @PathVariable final String id) {
+        return execute(canvas, true, () -> {
+            widgetController.delete(canvas, id);
+            return null;
+        });
+    }
+
+    /**
+     * Validates request on current thread, and executes reading operation on widget task executor,
+     * unless widgets are not modified since the version of entity tag in request.
+     *
+     * @param canvas     canvas of widgets.
+     * @param webRequest current request, for checking entity tag.
+     * @param validation validation of request params, throwing an exception for invalid ones.
+     * @param operation  operation to be executed, not checking entity tag again.
+     * @param <T>        operation result type.
+     * @return future of operation result, or of <code>null</code> if widgets are not modified.
+     */
+    private <T> CompletableFuture<T> executeIfModified(final Canvas canvas,
+                                                       final WebRequest webRequest,
+                                                       final Callable<?> validation,
+                                                       final Callable<T> operation) {
+        try {
+            validation.call();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        if (widgetController.checkNotModified(canvas, webRequest)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return execute(canvas, false, operation);
+    }
+
+    /**
+     * Executes operation on widget task executor, once widget lock of the canvas is acquired.
+     * Operation exceptions complete the future as is, so they are handled like exceptions of {@link WidgetController}.
+     *
+     * @param canvas    canvas of widgets.
+     * @param exclusive whether operation requires exclusive access to widgets.
+     * @param operation operation to be executed.
+     * @param <T>       operation result type.
+     * @return future of operation result.
+     * @see WidgetService#executeAsync(boolean, Callable, Executor)
+     */
+    private <T> CompletableFuture<T> execute(final Canvas canvas, final boolean exclusive, final Callable<T> operation) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        canvas.getWidgetService().executeAsync(exclusive, operation, widgetTaskExecutor).whenComplete((result, error) -> {
+            if (error instanceof RejectedExecutionException) {
+                log.debug("Widget request rejected by executor", error);
+                future.completeExceptionally(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many requests"));
+            } else if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        });
+
+        return future;
+    }
+}
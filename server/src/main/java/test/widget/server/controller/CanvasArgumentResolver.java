@@ -0,0 +1,94 @@
+package test.widget.server.controller;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.util.UrlPathHelper;
+import test.widget.server.service.Canvas;
+import test.widget.server.service.CanvasRegistry;
+
+import javax.servlet.http.HttpServletRequest;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Resolves {@link Canvas} controller arguments from request path.
+ * <p/>
+ * Canvas is identified by the segment following {@link WidgetControllerApiPath#CANVASES_PATH},
+ * e.g. <code>/canvases/board1/widgets</code>. Paths with other prefixes address default canvas.
+ * Canvas is created by requests saving widgets, other requests address existing canvases only.
+ *
+ * @author Mikhail Kondratev
+ */
+public class CanvasArgumentResolver implements HandlerMethodArgumentResolver {
+
+    /**
+     * Helper for getting request path within application.
+     */
+    private static final UrlPathHelper URL_PATH_HELPER = new UrlPathHelper();
+
+    /**
+     * Registry of canvases.
+     */
+    private final CanvasRegistry canvasRegistry;
+
+    /**
+     * Constructor.
+     *
+     * @param canvasRegistry registry of canvases.
+     */
+    public CanvasArgumentResolver(final CanvasRegistry canvasRegistry) {
+        this.canvasRegistry = canvasRegistry;
+    }
+
+    @Override
+    public boolean supportsParameter(final MethodParameter parameter) {
+        return Canvas.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Canvas resolveArgument(final MethodParameter parameter,
+                                  @Nullable final ModelAndViewContainer mavContainer,
+                                  final NativeWebRequest webRequest,
+                                  @Nullable final WebDataBinderFactory binderFactory) {
+        final HttpServletRequest request = requireNonNull(webRequest.getNativeRequest(HttpServletRequest.class));
+
+        final String canvasId = getCanvasId(URL_PATH_HELPER.getPathWithinApplication(request));
+
+        return isSaving(request) ? canvasRegistry.getOrCreateCanvas(canvasId) : canvasRegistry.getCanvas(canvasId);
+    }
+
+    /**
+     * Checks, if request saves widgets.
+     *
+     * @param request request to be checked.
+     * @return <code>true</code> for POST and PUT requests.
+     */
+    private static boolean isSaving(final HttpServletRequest request) {
+        final HttpMethod method = HttpMethod.resolve(request.getMethod());
+
+        return method == HttpMethod.POST || method == HttpMethod.PUT;
+    }
+
+    /**
+     * Extracts canvas identifier from request path.
+     *
+     * @param path request path within application.
+     * @return canvas identifier, or <code>null</code> if path addresses default canvas.
+     */
+    @Nullable
+    static String getCanvasId(final String path) {
+        if (!path.startsWith(WidgetControllerApiPath.CANVASES_PATH + "/")) {
+            return null;
+        }
+
+        final int start = WidgetControllerApiPath.CANVASES_PATH.length() + 1;
+        final int end = path.indexOf('/', start);
+
+        return end < 0 ? null : path.substring(start, end);
+    }
+}
@@ -2,25 +2,52 @@ package test.widget.server.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import test.widget.server.ServerConfigurationProperties;
 import test.widget.server.controller.params.FilteringParams;
 import test.widget.server.controller.params.PaginationParams;
 import test.widget.server.controller.params.WidgetParams;
 import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQueryMode;
+import test.widget.server.domain.ProjectedWidget;
+import test.widget.server.domain.ProjectedWidgets;
 import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetChanges;
+import test.widget.server.domain.WidgetField;
+import test.widget.server.domain.WidgetStats;
 import test.widget.server.exception.WidgetNotFoundException;
+import test.widget.server.service.Canvas;
 import test.widget.server.service.WidgetService;
+import test.widget.server.service.WidgetSubscriptionRegistry;
 
+import javax.servlet.http.HttpServletResponse;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
 
 /**
  * REST-controller for operations with widgets.
+ * <p/>
+ * Responses for getting widgets have an entity tag derived from {@link WidgetService#getVersion()}
+ * and requested representation. Conditional requests with matching tag are answered with {@link HttpStatus#NOT_MODIFIED}
+ * without loading widgets.
  *
  * @author Mikhail Kondratev
  * @see Widget
@@ -35,65 +62,373 @@ public class WidgetController {
     private final ServerConfigurationProperties serverConfigurationProperties;
 
     /**
-     * Widget service.
+     * Prefix for entity tags, unique for this controller instance,
+     * so that tags issued before server restart never match.
      */
-    private final WidgetService widgetService;
+    private final String eTagPrefix = UUID.randomUUID().toString().substring(0, 8);
 
     /**
      * Constructor.
      *
      * @param serverConfigurationProperties server configuration properties.
-     * @param widgetService                 widget service.
      */
-    public WidgetController(final ServerConfigurationProperties serverConfigurationProperties,
-                            final WidgetService widgetService) {
+    public WidgetController(final ServerConfigurationProperties serverConfigurationProperties) {
         this.serverConfigurationProperties = serverConfigurationProperties;
-        this.widgetService = widgetService;
     }
 
     /**
      * Method for getting all widgets, sorted by z index, ascending.
      *
+     * @param canvas           canvas of widgets.
+     * @param filteringParams  filtering params.
      * @param paginationParams pagination params.
-     * @return sorted list of all widgets.
+     * @param webRequest       current request, for checking entity tag, or <code>null</code> if it is already checked.
+     * @return sorted list of all widgets, or <code>null</code> if widgets are not modified.
      * @throws InterruptedException                    if thread was interrupted.
      * @throws MissingServletRequestParameterException if object {@link FilteringParams} is invalid.
      */
+    @Nullable
     @GetMapping(WidgetControllerApiPath.WIDGETS_PATH)
-    public HttpEntity<Collection<Widget>> getAll(final FilteringParams filteringParams,
-                                                 final PaginationParams paginationParams) throws InterruptedException,
+    public HttpEntity<Collection<Widget>> getAll(final Canvas canvas,
+                                                 final FilteringParams filteringParams,
+                                                 final PaginationParams paginationParams,
+                                                 @Nullable final WebRequest webRequest) throws InterruptedException,
             MissingServletRequestParameterException {
 
         log.debug("Requested all widgets with filter: {}, paging: {}", filteringParams, paginationParams);
 
+        final List<Widget> widgets = findPage(canvas, filteringParams, paginationParams, WidgetField.ALL, webRequest);
+
+        return widgets == null ? null : new ResponseEntity<>(widgets, HttpStatus.OK);
+    }
+
+    /**
+     * Method for getting all widgets with specified fields only, sorted by z index, ascending.
+     * On database repository, fields not requested are not loaded.
+     *
+     * @param canvas           canvas of widgets.
+     * @param filteringParams  filtering params.
+     * @param paginationParams pagination params.
+     * @param fields           comma-separated names of fields to be returned.
+     * @param webRequest       current request, for checking entity tag, or <code>null</code> if it is already checked.
+     * @return sorted list of all widgets, or <code>null</code> if widgets are not modified.
+     * @throws InterruptedException                    if thread was interrupted.
+     * @throws MissingServletRequestParameterException if object {@link FilteringParams} is invalid.
+     * @see #getAll(Canvas, FilteringParams, PaginationParams, WebRequest)
+     */
+    @Nullable
+    @GetMapping(path = WidgetControllerApiPath.WIDGETS_PATH, params = "fields")
+    public HttpEntity<ProjectedWidgets> getAllProjected(final Canvas canvas,
+                                                        final FilteringParams filteringParams,
+                                                        final PaginationParams paginationParams,
+                                                        @RequestParam final String fields,
+                                                        @Nullable final WebRequest webRequest) throws InterruptedException,
+            MissingServletRequestParameterException {
+
+        log.debug("Requested all widgets with filter: {}, paging: {}, fields: {}", filteringParams, paginationParams, fields);
+
+        final Set<WidgetField> projection = parseFields(fields);
+        final List<Widget> widgets = findPage(canvas, filteringParams, paginationParams, projection, webRequest);
+
+        return widgets == null ? null : new ResponseEntity<>(new ProjectedWidgets(widgets, projection), HttpStatus.OK);
+    }
+
+    /**
+     * Finds a page of widgets, sorted by z index, ascending.
+     *
+     * @param canvas           canvas of widgets.
+     * @param filteringParams  filtering params.
+     * @param paginationParams pagination params.
+     * @param fields           fields to be loaded.
+     * @param webRequest       current request, for checking entity tag, or <code>null</code> if it is already checked.
+     * @return page of widgets, or <code>null</code> if widgets are not modified.
+     * @throws InterruptedException                    if thread was interrupted.
+     * @throws MissingServletRequestParameterException if object {@link FilteringParams} is invalid.
+     */
+    @Nullable
+    private List<Widget> findPage(final Canvas canvas,
+                                  final FilteringParams filteringParams,
+                                  final PaginationParams paginationParams,
+                                  final Set<WidgetField> fields,
+                                  @Nullable final WebRequest webRequest) throws InterruptedException,
+            MissingServletRequestParameterException {
+
         if (paginationParams.getPageSize() == null) {
             paginationParams.setPageSize(serverConfigurationProperties.getPageDefaultSize());
         }
 
         paginationParams.setPageSize(Math.min(Math.max(paginationParams.getPageSize(), 0), serverConfigurationProperties.getPageMaxSize()));
 
-        Collection<Widget> widgets;
+        final boolean isFiltered = filteringParamsAreValid(filteringParams);
+
+        if (checkNotModified(canvas, webRequest)) {
+            return null;
+        }
 
-        if (filteringParamsAreValid(filteringParams)) {
-            final Area area = new Area();
-            area.setX(filteringParams.getX());
-            area.setY(filteringParams.getY());
-            area.setWidth(filteringParams.getWidth());
-            area.setHeight(filteringParams.getHeight());
+        final int offset = paginationParams.getOffset() == null ? 0 : Math.max(paginationParams.getOffset(), 0);
 
-            widgets = widgetService.getWidgetsInsideArea(area);
-        } else {
-            widgets = widgetService.getWidgetsInsideArea(Area.EMPTY_AREA);
+        if (isFiltered) {
+            return canvas.getWidgetService().getWidgetsPageInArea(toArea(filteringParams), toMode(filteringParams), fields,
+                    offset, paginationParams.getPageSize());
         }
 
-        widgets = widgets
-                .stream()
-                .sorted(Comparator.comparingInt(Widget::getZ))
-                .skip(paginationParams.getOffset() == null ? 0 : Math.max(paginationParams.getOffset(), 0))
-                .limit(paginationParams.getPageSize())
-                .collect(Collectors.toList());
+        return canvas.getWidgetService().getWidgetsPageInArea(Area.EMPTY_AREA, AreaQueryMode.INSIDE, fields,
+                offset, paginationParams.getPageSize());
+    }
 
-        return new ResponseEntity<>(widgets, HttpStatus.OK);
+    /**
+     * Parses requested fields.
+     *
+     * @param fields comma-separated names of fields.
+     * @return parsed fields.
+     * @throws ResponseStatusException with {@link HttpStatus#BAD_REQUEST} if fields are not valid.
+     */
+    static Set<WidgetField> parseFields(final String fields) {
+        try {
+            return WidgetField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Method for counting widgets, e.g. for calculating number of pages.
+     * Widgets are counted by repository, without loading and sorting them, where repository allows.
+     *
+     * @param canvas          canvas of widgets.
+     * @param filteringParams filtering params.
+     * @param webRequest      current request, for checking entity tag, or <code>null</code> if it is already checked.
+     * @return number of widgets, or <code>null</code> if widgets are not modified.
+     * @throws InterruptedException                    if thread was interrupted.
+     * @throws MissingServletRequestParameterException if object {@link FilteringParams} is invalid.
+     */
+    @Nullable
+    @GetMapping(WidgetControllerApiPath.WIDGETS_PATH + "/count")
+    public HttpEntity<Long> count(final Canvas canvas,
+                                  final FilteringParams filteringParams,
+                                  @Nullable final WebRequest webRequest) throws InterruptedException,
+            MissingServletRequestParameterException {
+
+        log.debug("Requested widgets count with filter: {}", filteringParams);
+
+        final Area area = filteringParamsAreValid(filteringParams) ? toArea(filteringParams) : Area.EMPTY_AREA;
+
+        if (checkNotModified(canvas, webRequest)) {
+            return null;
+        }
+
+        return new ResponseEntity<>(canvas.getWidgetService().countInArea(area, toMode(filteringParams)), HttpStatus.OK);
+    }
+
+    /**
+     * Method for hit-testing: getting widgets under a point, the topmost first.
+     *
+     * @param canvas     canvas of widgets.
+     * @param x          point x-coordinate.
+     * @param y          point y-coordinate.
+     * @param limit      max number of widgets to be returned, capped at max page size.
+     * @param webRequest current request, for checking entity tag, or <code>null</code> if it is already checked.
+     * @return widgets under the point sorted by z index, descending, or <code>null</code> if widgets are not modified.
+     * @throws InterruptedException if thread was interrupted.
+     */
+    @Nullable
+    @GetMapping(WidgetControllerApiPath.WIDGETS_PATH + "/at")
+    public HttpEntity<Collection<Widget>> getAtPoint(final Canvas canvas,
+                                                     @RequestParam final int x,
+                                                     @RequestParam final int y,
+                                                     @RequestParam(defaultValue = "1") final int limit,
+                                                     @Nullable final WebRequest webRequest) throws InterruptedException {
+
+        log.debug("Requested widgets at point: {}, {}, limit: {}", x, y, limit);
+
+        if (checkNotModified(canvas, webRequest)) {
+            return null;
+        }
+
+        final int cappedLimit = Math.min(limit, serverConfigurationProperties.getPageMaxSize());
+
+        return new ResponseEntity<>(canvas.getWidgetService().getWidgetsAtPoint(x, y, cappedLimit), HttpStatus.OK);
+    }
+
+    /**
+     * Method for getting widgets nearest to a point, by distance to widget's nearest edge.
+     *
+     * @param canvas     canvas of widgets.
+     * @param x          point x-coordinate.
+     * @param y          point y-coordinate.
+     * @param count      max number of widgets to be returned, capped at max page size.
+     * @param webRequest current request, for checking entity tag, or <code>null</code> if it is already checked.
+     * @return nearest widgets sorted by distance, ascending, or <code>null</code> if widgets are not modified.
+     * @throws InterruptedException if thread was interrupted.
+     */
+    @Nullable
+    @GetMapping(WidgetControllerApiPath.WIDGETS_PATH + "/nearest")
+    public HttpEntity<Collection<Widget>> getNearest(final Canvas canvas,
+                                                     @RequestParam final int x,
+                                                     @RequestParam final int y,
+                                                     @RequestParam(defaultValue = "1") final int count,
+                                                     @Nullable final WebRequest webRequest) throws InterruptedException {
+
+        log.debug("Requested widgets nearest to point: {}, {}, count: {}", x, y, count);
+
+        if (checkNotModified(canvas, webRequest)) {
+            return null;
+        }
+
+        final int cappedCount = Math.min(count, serverConfigurationProperties.getPageMaxSize());
+
+        return new ResponseEntity<>(canvas.getWidgetService().getNearestWidgets(x, y, cappedCount), HttpStatus.OK);
+    }
+
+    /**
+     * Method for getting aggregates of all widgets: count, bounding box and z-index range.
+     *
+     * @param canvas     canvas of widgets.
+     * @param webRequest current request, for checking entity tag, or <code>null</code> if it is already checked.
+     * @return widget aggregates, or <code>null</code> if widgets are not modified.
+     * @throws InterruptedException if thread was interrupted.
+     */
+    @Nullable
+    @GetMapping(WidgetControllerApiPath.WIDGETS_PATH + "/stats")
+    public HttpEntity<WidgetStats> getStats(final Canvas canvas,
+                                            @Nullable final WebRequest webRequest) throws InterruptedException {
+
+        log.debug("Requested widget stats");
+
+        if (checkNotModified(canvas, webRequest)) {
+            return null;
+        }
+
+        return new ResponseEntity<>(canvas.getWidgetService().getStats(), HttpStatus.OK);
+    }
+
+    /**
+     * Method for getting widgets changed since specified canvas version.
+     * If changes since the version are not available, all widgets are returned with full resync flag.
+     *
+     * @param canvas canvas of widgets.
+     * @param since canvas version, returned by previous changes request.
+     *              If not specified, all widgets are returned.
+     * @return changed widgets and identifiers of deleted widgets.
+     * @throws InterruptedException if thread was interrupted.
+     */
+    @GetMapping(WidgetControllerApiPath.WIDGETS_PATH + "/changes")
+    public HttpEntity<WidgetChanges> getChanges(final Canvas canvas,
+                                                @RequestParam(required = false) @Nullable final Long since)
+            throws InterruptedException {
+
+        log.debug("Requested widget changes since version: {}", since);
+
+        if (since != null) {
+            final Optional<WidgetChanges> changes = canvas.getWidgetChangeLog().getChangesSince(since);
+
+            if (changes.isPresent()) {
+                return new ResponseEntity<>(changes.get(), HttpStatus.OK);
+            }
+        }
+
+        final long version = canvas.getWidgetService().getVersion();
+        final List<Widget> widgets = new ArrayList<>(canvas.getWidgetService().getWidgetsInsideArea(Area.EMPTY_AREA));
+
+        return new ResponseEntity<>(new WidgetChanges(version, true, widgets, List.of()), HttpStatus.OK);
+    }
+
+    /**
+     * Subscribes to changes of widgets inside an area.
+     * Events are named <code>created</code>, <code>updated</code> and <code>deleted</code>,
+     * when a widget enters, changes inside or leaves the area, and hold widget as data.
+     * Subscription is completed with error, if the client doesn't read events fast enough.
+     *
+     * @param canvas          canvas of widgets.
+     * @param filteringParams area of interest. If not specified, changes of all widgets are sent.
+     * @return server-sent events emitter.
+     * @throws MissingServletRequestParameterException if object {@link FilteringParams} is invalid.
+     */
+    @GetMapping(path = WidgetControllerApiPath.WIDGETS_PATH + "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(final Canvas canvas,
+                                final FilteringParams filteringParams) throws MissingServletRequestParameterException {
+
+        log.debug("Requested widget events with filter: {}", filteringParams);
+
+        final Area area = filteringParamsAreValid(filteringParams) ? toArea(filteringParams) : Area.EMPTY_AREA;
+        final SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(serverConfigurationProperties.getSubscriptionTimeout()));
+
+        final WidgetSubscriptionRegistry.Subscription subscription = canvas.getWidgetSubscriptionRegistry().subscribe(area,
+                (type, widget) -> emitter.send(SseEmitter.event()
+                        .name(type.name().toLowerCase())
+                        .data(widget, MediaType.APPLICATION_JSON)),
+                () -> emitter.completeWithError(new IllegalStateException("Too many undelivered widget events")));
+
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(error -> subscription.cancel());
+
+        return emitter;
+    }
+
+    /**
+     * Creates filtering area from valid filtering params.
+     *
+     * @param filteringParams filtering params with all values set.
+     * @return filtering area.
+     */
+    private static Area toArea(final FilteringParams filteringParams) {
+        final Area area = new Area();
+        area.setX(filteringParams.getX());
+        area.setY(filteringParams.getY());
+        area.setWidth(filteringParams.getWidth());
+        area.setHeight(filteringParams.getHeight());
+
+        return area;
+    }
+
+    /**
+     * Gets query mode from filtering params.
+     *
+     * @param filteringParams filtering params.
+     * @return requested query mode, or {@link AreaQueryMode#INSIDE} if not specified.
+     */
+    private static AreaQueryMode toMode(final FilteringParams filteringParams) {
+        return filteringParams.getMode() == null ? AreaQueryMode.INSIDE : filteringParams.getMode();
+    }
+
+    /**
+     * Checks, if widgets are not modified since the version of entity tag in request, and sets entity tag of current
+     * canvas version. Should be called before loading widgets.
+     * <p/>
+     * Response varies by <code>Accept</code> header, as widgets may be written as JSON or in binary format.
+     *
+     * @param canvas     canvas of widgets.
+     * @param webRequest current request, or <code>null</code> if entity tag is already checked.
+     * @return <code>true</code> if widgets are not modified and response is already prepared.
+     */
+    boolean checkNotModified(final Canvas canvas, @Nullable final WebRequest webRequest) {
+        if (webRequest == null) {
+            return false;
+        }
+
+        final HttpServletResponse response = webRequest instanceof NativeWebRequest
+                ? ((NativeWebRequest) webRequest).getNativeResponse(HttpServletResponse.class)
+                : null;
+        if (response != null && !response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT)) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+
+        return webRequest.checkNotModified(getCanvasETag(canvas, webRequest.getHeader(HttpHeaders.ACCEPT)));
+    }
+
+    /**
+     * Gets entity tag of current canvas version for requested representation.
+     * Tags differ for different <code>Accept</code> headers, as JSON and binary representations are different bytes.
+     *
+     * @param canvas canvas of widgets.
+     * @param accept <code>Accept</code> header of the request, if present.
+     * @return quoted entity tag.
+     */
+    private String getCanvasETag(final Canvas canvas, @Nullable final String accept) {
+        final String representation = accept == null ? "" : "-" + Integer.toHexString(accept.hashCode());
+
+        return "\"" + eTagPrefix + "-" + canvas.getWidgetService().getVersion() + representation + "\"";
     }
 
     /**
@@ -104,7 +439,7 @@ public class WidgetController {
      * @return <code>true</code> if all params are present, <code>false</code> - if all params are null.
      * @throws MissingServletRequestParameterException if at least one of the params is null and at least one of the params is set.
      */
-    private boolean filteringParamsAreValid(final FilteringParams filteringParams) throws MissingServletRequestParameterException {
+    boolean filteringParamsAreValid(final FilteringParams filteringParams) throws MissingServletRequestParameterException {
         if (filteringParams.getX() == null
                 && filteringParams.getY() == null
                 && filteringParams.getWidth() == null
@@ -138,12 +473,14 @@ public class WidgetController {
     /**
      * Creates new widget with requested parameters.
      *
+     * @param canvas       canvas of widgets.
      * @param widgetParams widget parameters.
      * @return newly created widget.
      * @throws InterruptedException if thread was interrupted.
      */
     @PostMapping(WidgetControllerApiPath.WIDGETS_PATH)
-    public HttpEntity<Widget> createNew(@RequestBody final WidgetParams widgetParams) throws InterruptedException,
+    public HttpEntity<Widget> createNew(final Canvas canvas,
+                                        @RequestBody final WidgetParams widgetParams) throws InterruptedException,
             MissingServletRequestParameterException {
 
         log.debug("Requested to create widget with params: {}", widgetParams);
@@ -164,7 +501,7 @@ public class WidgetController {
             throw new MissingServletRequestParameterException("height", "Integer");
         }
 
-        final Widget newWidget = widgetService.createNew(widgetParams.getX(), widgetParams.getY(), widgetParams.getWidth(), widgetParams.getHeight(), widgetParams.getZ());
+        final Widget newWidget = canvas.getWidgetService().createNew(widgetParams.getX(), widgetParams.getY(), widgetParams.getWidth(), widgetParams.getHeight(), widgetParams.getZ());
 
         return new ResponseEntity<>(newWidget, HttpStatus.CREATED);
 
@@ -173,34 +510,82 @@ public class WidgetController {
     /**
      * Getting widget by it's identifier.
      *
-     * @param id widget identifier.
-     * @return found widget with specified identifier.
+     * @param canvas     canvas of widgets.
+     * @param id         widget identifier.
+     * @param webRequest current request, for checking entity tag, or <code>null</code> if it is already checked.
+     * @return found widget with specified identifier, or <code>null</code> if widgets are not modified.
      * @throws InterruptedException    if thread was interrupted.
      * @throws WidgetNotFoundException if widget with specified id was not found.
      */
+    @Nullable
     @GetMapping(WidgetControllerApiPath.WIDGETS_PATH + "/{id}")
-    public HttpEntity<Widget> getById(@PathVariable final String id) throws InterruptedException {
+    public HttpEntity<Widget> getById(final Canvas canvas,
+                                      @PathVariable final String id, @Nullable final WebRequest webRequest)
+            throws InterruptedException {
 
         log.debug("Requested widget by id: {}", id);
 
-        return new ResponseEntity<>(widgetService.findById(id), HttpStatus.OK);
+        if (checkNotModified(canvas, webRequest)) {
+            return null;
+        }
+
+        final Widget widget = canvas.getWidgetService().findById(id);
+
+        final ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.ok();
+        if (widget.getLastModified() != null) {
+            responseBuilder.lastModified(widget.getLastModified().atZone(ZoneId.systemDefault()));
+        }
+
+        return responseBuilder.body(widget);
+    }
+
+    /**
+     * Getting widget by it's identifier with specified fields only.
+     *
+     * @param canvas     canvas of widgets.
+     * @param id         widget identifier.
+     * @param fields     comma-separated names of fields to be returned.
+     * @param webRequest current request, for checking entity tag, or <code>null</code> if it is already checked.
+     * @return found widget with specified identifier, or <code>null</code> if widgets are not modified.
+     * @throws InterruptedException    if thread was interrupted.
+     * @throws WidgetNotFoundException if widget with specified id was not found.
+     * @see #getById(Canvas, String, WebRequest)
+     */
+    @Nullable
+    @GetMapping(path = WidgetControllerApiPath.WIDGETS_PATH + "/{id}", params = "fields")
+    public HttpEntity<ProjectedWidget> getByIdProjected(final Canvas canvas,
+                                                        @PathVariable final String id,
+                                                        @RequestParam final String fields,
+                                                        @Nullable final WebRequest webRequest) throws InterruptedException {
+
+        final Set<WidgetField> projection = parseFields(fields);
+        final HttpEntity<Widget> widget = getById(canvas, id, webRequest);
+
+        if (widget == null) {
+            return null;
+        }
+
+        return new ResponseEntity<>(new ProjectedWidget(requireNonNull(widget.getBody()), projection),
+                widget.getHeaders(), HttpStatus.OK);
     }
 
     /**
      * Updates existing widget with specified params or creates a new widget with this values,
      * if a widget with specified id was not found.
      *
+     * @param canvas       canvas of widgets.
      * @param widgetParams widget params new values.
      * @param id           widget identifier.
      * @return {@link HttpEntity} that holds updated or newly created widget.
      */
     @PutMapping(WidgetControllerApiPath.WIDGETS_PATH + "/{id}")
-    public HttpEntity<Widget> update(@RequestBody final WidgetParams widgetParams, @PathVariable final String id)
+    public HttpEntity<Widget> update(final Canvas canvas,
+                                     @RequestBody final WidgetParams widgetParams, @PathVariable final String id)
             throws InterruptedException {
 
         log.debug("Requested to update widget with id: {} with values: {}", id, widgetParams);
 
-        final Widget widget = widgetService.updateOrCreate(id, widgetParams.getX(), widgetParams.getY(),
+        final Widget widget = canvas.getWidgetService().updateOrCreate(id, widgetParams.getX(), widgetParams.getY(),
                 widgetParams.getWidth(), widgetParams.getHeight(), widgetParams.getZ());
 
         return new ResponseEntity<>(widget, HttpStatus.OK);
@@ -209,13 +594,15 @@ public class WidgetController {
     /**
      * Deletes widget with specified id.
      *
+     * @param canvas canvas of widgets.
      * @param id id of a widget to be removed.
      */
     @DeleteMapping(WidgetControllerApiPath.WIDGETS_PATH + "/{id}")
-    public void delete(@PathVariable final String id) throws InterruptedException {
+    public void delete(final Canvas canvas,
+                       @PathVariable final String id) throws InterruptedException {
 
         log.debug("Requested to delete widget with id: {}", id);
 
-        widgetService.deleteById(id);
+        canvas.getWidgetService().deleteById(id);
     }
 }
@@ -7,8 +7,19 @@ package test.widget.server.controller;
  */
 public interface WidgetControllerApiPath {
 
+    /**
+     * Path prefix of canvases, followed by canvas identifier, e.g. <code>/canvases/board1/widgets</code>.
+     * Widgets endpoints with other prefixes address default canvas.
+     */
+    String CANVASES_PATH = "/canvases";
+
     /**
      * Base widgets endpoints path.
      */
     String WIDGETS_PATH = "/**/widgets";
+
+    /**
+     * Base path of widgets endpoints, that are processed asynchronously.
+     */
+    String ASYNC_WIDGETS_PATH = "/**/async/widgets";
 }
@@ -0,0 +1,331 @@
+package test.widget.server.controller.converter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer for writing JSON in UTF-8 without intermediate strings.
+ * <p/>
+ * Escaping and date-time format are the same as of Jackson with JavaTimeModule.
+ *
+ * @author Mikhail Kondratev
+ */
+class JsonByteBuffer {
+
+    /**
+     * Hex digits for unicode escapes.
+     */
+    private static final byte[] HEX_DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+
+    /**
+     * Pre-encoded <code>null</code> literal.
+     */
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+    /**
+     * Pre-encoded <code>true</code> literal.
+     */
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+
+    /**
+     * Pre-encoded <code>false</code> literal.
+     */
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+
+    /**
+     * Pre-encoded min int value, that can't be negated.
+     */
+    private static final byte[] MIN_INT = {'-', '2', '1', '4', '7', '4', '8', '3', '6', '4', '8'};
+
+    /**
+     * Max year, that is written as 4 digits without sign.
+     */
+    private static final int MAX_PLAIN_YEAR = 9999;
+
+    /**
+     * Written bytes.
+     */
+    private byte[] bytes;
+
+    /**
+     * Number of written bytes.
+     */
+    private int size;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity initial capacity.
+     */
+    JsonByteBuffer(final int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    /**
+     * @return number of written bytes.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return current capacity.
+     */
+    int capacity() {
+        return bytes.length;
+    }
+
+    /**
+     * Discards written bytes, keeping capacity.
+     */
+    void reset() {
+        size = 0;
+    }
+
+    /**
+     * Copies written bytes to output stream.
+     *
+     * @param outputStream output stream.
+     * @throws IOException on write error.
+     */
+    void writeTo(final OutputStream outputStream) throws IOException {
+        outputStream.write(bytes, 0, size);
+    }
+
+    /**
+     * Writes single ASCII character.
+     *
+     * @param c character to be written.
+     */
+    void write(final char c) {
+        ensureCapacity(1);
+        bytes[size++] = (byte) c;
+    }
+
+    /**
+     * Writes pre-encoded bytes.
+     *
+     * @param encoded bytes to be written.
+     */
+    void write(final byte[] encoded) {
+        ensureCapacity(encoded.length);
+        System.arraycopy(encoded, 0, bytes, size, encoded.length);
+        size += encoded.length;
+    }
+
+    /**
+     * Writes <code>null</code> literal.
+     */
+    void writeNull() {
+        write(NULL);
+    }
+
+    /**
+     * Writes boolean literal.
+     *
+     * @param value value to be written.
+     */
+    void writeBoolean(final boolean value) {
+        write(value ? TRUE : FALSE);
+    }
+
+    /**
+     * Writes decimal int.
+     *
+     * @param value value to be written.
+     */
+    void writeInt(final int value) {
+        if (value == Integer.MIN_VALUE) {
+            write(MIN_INT);
+            return;
+        }
+
+        ensureCapacity(11);
+
+        int remaining = value;
+        if (remaining < 0) {
+            bytes[size++] = '-';
+            remaining = -remaining;
+        }
+
+        final int digits = digitsCount(remaining);
+        writeDigits(remaining, digits);
+    }
+
+    /**
+     * Writes quoted string with JSON escaping, non-ASCII characters are written as UTF-8.
+     *
+     * @param value string to be written.
+     * @throws IllegalArgumentException if string contains unpaired surrogate.
+     */
+    void writeString(final String value) {
+        final int length = value.length();
+        ensureCapacity(length + 2);
+
+        bytes[size++] = '"';
+
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                ensureCapacity(1);
+                bytes[size++] = (byte) c;
+            } else if (c < 0x80) {
+                writeEscaped(c);
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                bytes[size++] = (byte) (0xC0 | (c >> 6));
+                bytes[size++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (!Character.isHighSurrogate(c) || i + 1 >= length || !Character.isLowSurrogate(value.charAt(i + 1))) {
+                    throw new IllegalArgumentException("Unpaired surrogate at index " + i);
+                }
+
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                ensureCapacity(4);
+                bytes[size++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                ensureCapacity(3);
+                bytes[size++] = (byte) (0xE0 | (c >> 12));
+                bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        ensureCapacity(1);
+        bytes[size++] = '"';
+    }
+
+    /**
+     * Writes quoted date-time in {@link DateTimeFormatter#ISO_LOCAL_DATE_TIME} format.
+     * Seconds are always written, fraction of second is written without trailing zeros.
+     *
+     * @param value date-time to be written.
+     */
+    void writeLocalDateTime(final LocalDateTime value) {
+        if (value.getYear() < 0 || value.getYear() > MAX_PLAIN_YEAR) {
+            writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+            return;
+        }
+
+        ensureCapacity(31);
+
+        bytes[size++] = '"';
+        writeDigits(value.getYear(), 4);
+        bytes[size++] = '-';
+        writeDigits(value.getMonthValue(), 2);
+        bytes[size++] = '-';
+        writeDigits(value.getDayOfMonth(), 2);
+        bytes[size++] = 'T';
+        writeDigits(value.getHour(), 2);
+        bytes[size++] = ':';
+        writeDigits(value.getMinute(), 2);
+        bytes[size++] = ':';
+        writeDigits(value.getSecond(), 2);
+
+        int nano = value.getNano();
+        if (nano != 0) {
+            int digits = 9;
+            while (nano % 10 == 0) {
+                nano /= 10;
+                digits--;
+            }
+
+            bytes[size++] = '.';
+            writeDigits(nano, digits);
+        }
+
+        bytes[size++] = '"';
+    }
+
+    /**
+     * Writes escaped ASCII character, short escapes are used where available.
+     *
+     * @param c character to be escaped.
+     */
+    private void writeEscaped(final char c) {
+        ensureCapacity(6);
+        bytes[size++] = '\\';
+
+        switch (c) {
+            case '"':
+            case '\\':
+                bytes[size++] = (byte) c;
+                break;
+            case '\b':
+                bytes[size++] = 'b';
+                break;
+            case '\t':
+                bytes[size++] = 't';
+                break;
+            case '\n':
+                bytes[size++] = 'n';
+                break;
+            case '\f':
+                bytes[size++] = 'f';
+                break;
+            case '\r':
+                bytes[size++] = 'r';
+                break;
+            default:
+                bytes[size++] = 'u';
+                bytes[size++] = '0';
+                bytes[size++] = '0';
+                bytes[size++] = HEX_DIGITS[c >> 4];
+                bytes[size++] = HEX_DIGITS[c & 0xF];
+        }
+    }
+
+    /**
+     * Writes non-negative value as exactly specified number of digits, padded with zeros.
+     * Capacity should be ensured by caller.
+     *
+     * @param value  non-negative value.
+     * @param digits number of digits.
+     */
+    private void writeDigits(final int value, final int digits) {
+        int remaining = value;
+
+        for (int i = size + digits - 1; i >= size; i--) {
+            bytes[i] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+
+        size += digits;
+    }
+
+    /**
+     * Counts decimal digits of non-negative value.
+     *
+     * @param value non-negative value.
+     * @return number of digits.
+     */
+    private static int digitsCount(final int value) {
+        int digits = 1;
+        int limit = 10;
+
+        while (digits < 10 && value >= limit) {
+            digits++;
+            limit *= 10;
+        }
+
+        return digits;
+    }
+
+    /**
+     * Grows buffer if there is no room for specified number of bytes.
+     *
+     * @param additional number of bytes to be written.
+     */
+    private void ensureCapacity(final int additional) {
+        if (size + additional > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package test.widget.server.controller.converter;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+import test.widget.server.domain.Widget;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Converter of widget collections to compact binary format {@value #MEDIA_TYPE_VALUE}.
+ * <p/>
+ * Format is a varint widgets count, followed by widgets:
+ * <ul>
+ * <li>identifier: byte <code>0</code> and 16 bytes of lowercase canonical UUID,
+ * or byte <code>1</code>, varint length and UTF-8 bytes of any other identifier;</li>
+ * <li>x, y, width and height as 4-byte big-endian ints;</li>
+ * <li>z as zigzag varint delta to z of the previous widget, so z-sorted pages take one or two bytes per widget;</li>
+ * <li>last modification as 8-byte epoch milliseconds in server time zone, {@link Long#MIN_VALUE} if not set.</li>
+ * </ul>
+ * Widgets are written straight to the response stream, without intermediate objects.
+ *
+ * @author Mikhail Kondratev
+ */
+public class WidgetBinaryHttpMessageConverter extends AbstractGenericHttpMessageConverter<Collection<Widget>> {
+
+    /**
+     * Binary widgets media type value.
+     */
+    public static final String MEDIA_TYPE_VALUE = "application/x-widgets";
+
+    /**
+     * Binary widgets media type.
+     */
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    /**
+     * Identifier tag for lowercase canonical UUID.
+     */
+    private static final int UUID_ID = 0;
+
+    /**
+     * Identifier tag for any other string.
+     */
+    private static final int STRING_ID = 1;
+
+    /**
+     * Length of canonical UUID string.
+     */
+    private static final int UUID_LENGTH = 36;
+
+    /**
+     * Buffer size for response stream.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    public WidgetBinaryHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(final Class<?> clazz) {
+        return Collection.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(final Type type, @Nullable final Class<?> contextClass, @Nullable final MediaType mediaType) {
+        return WidgetTypes.isWidgetCollection(type) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable final Type type, final Class<?> clazz, @Nullable final MediaType mediaType) {
+        return type != null && WidgetTypes.isWidgetCollection(type) && canWrite(mediaType);
+    }
+
+    @Override
+    protected void writeInternal(final Collection<Widget> widgets, @Nullable final Type type,
+                                 final HttpOutputMessage outputMessage) throws IOException {
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputMessage.getBody(), BUFFER_SIZE));
+        final ZoneId zoneId = ZoneId.systemDefault();
+
+        writeVarint(output, widgets.size());
+
+        int previousZ = 0;
+        for (final Widget widget : widgets) {
+            writeId(output, widget.getId());
+
+            output.writeInt(widget.getX());
+            output.writeInt(widget.getY());
+            output.writeInt(widget.getWidth());
+            output.writeInt(widget.getHeight());
+
+            final int zDelta = widget.getZ() - previousZ;
+            writeVarint(output, (zDelta << 1) ^ (zDelta >> 31));
+            previousZ = widget.getZ();
+
+            final LocalDateTime lastModified = widget.getLastModified();
+            if (lastModified == null) {
+                output.writeLong(Long.MIN_VALUE);
+            } else {
+                final ZoneOffset offset = zoneId.getRules().getOffset(lastModified);
+                output.writeLong(lastModified.toEpochSecond(offset) * 1000 + lastModified.getNano() / 1_000_000);
+            }
+        }
+
+        output.flush();
+    }
+
+    @Override
+    public Collection<Widget> read(final Type type, @Nullable final Class<?> contextClass,
+                                   final HttpInputMessage inputMessage) throws IOException {
+        return readInternal(null, inputMessage);
+    }
+
+    @Override
+    protected Collection<Widget> readInternal(@Nullable final Class<? extends Collection<Widget>> clazz,
+                                              final HttpInputMessage inputMessage) throws IOException {
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(inputMessage.getBody(), BUFFER_SIZE));
+        final ZoneId zoneId = ZoneId.systemDefault();
+
+        final int count = readVarint(input, inputMessage);
+        if (count < 0) {
+            throw new HttpMessageNotReadableException("Invalid widgets count: " + Integer.toUnsignedString(count), inputMessage);
+        }
+
+        final List<Widget> widgets = new ArrayList<>(Math.min(count, BUFFER_SIZE));
+
+        int z = 0;
+        for (int i = 0; i < count; i++) {
+            final Widget widget = new Widget();
+            widget.setId(readId(input, inputMessage));
+            widget.setX(input.readInt());
+            widget.setY(input.readInt());
+            widget.setWidth(input.readInt());
+            widget.setHeight(input.readInt());
+
+            final int zigzag = readVarint(input, inputMessage);
+            z += (zigzag >>> 1) ^ -(zigzag & 1);
+            widget.setZ(z);
+
+            final long lastModified = input.readLong();
+            if (lastModified != Long.MIN_VALUE) {
+                widget.setLastModified(LocalDateTime.ofInstant(Instant.ofEpochMilli(lastModified), zoneId));
+            }
+
+            widgets.add(widget);
+        }
+
+        return widgets;
+    }
+
+    /**
+     * Writes widget identifier, canonical UUID is written as 16 bytes.
+     *
+     * @param output output stream.
+     * @param id     widget identifier.
+     * @throws IOException on write error.
+     */
+    private static void writeId(final DataOutputStream output, @Nullable final String id) throws IOException {
+        if (id != null && isLowercaseUuid(id)) {
+            output.writeByte(UUID_ID);
+            output.writeLong(parseHex(id, 0, 8) << 32 | parseHex(id, 9, 13) << 16 | parseHex(id, 14, 18));
+            output.writeLong(parseHex(id, 19, 23) << 48 | parseHex(id, 24, 36));
+            return;
+        }
+
+        final byte[] bytes = id == null ? new byte[0] : id.getBytes(StandardCharsets.UTF_8);
+        output.writeByte(STRING_ID);
+        writeVarint(output, bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Reads widget identifier.
+     *
+     * @param input        input stream.
+     * @param inputMessage message being read, for error reporting.
+     * @return widget identifier.
+     * @throws IOException on read error.
+     */
+    private static String readId(final DataInputStream input, final HttpInputMessage inputMessage) throws IOException {
+        final int tag = input.readUnsignedByte();
+
+        if (tag == UUID_ID) {
+            return new UUID(input.readLong(), input.readLong()).toString();
+        }
+
+        if (tag != STRING_ID) {
+            throw new HttpMessageNotReadableException("Unknown widget identifier tag: " + tag, inputMessage);
+        }
+
+        final byte[] bytes = new byte[readVarint(input, inputMessage)];
+        input.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks if identifier is a canonical UUID with lowercase hex digits, that is restored as is after decoding.
+     *
+     * @param id widget identifier.
+     * @return <code>true</code> if identifier is a lowercase canonical UUID.
+     */
+    private static boolean isLowercaseUuid(final String id) {
+        if (id.length() != UUID_LENGTH) {
+            return false;
+        }
+
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            final char c = id.charAt(i);
+
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Parses lowercase hex digits.
+     *
+     * @param value string with hex digits.
+     * @param from  first digit index, inclusive.
+     * @param to    last digit index, exclusive.
+     * @return parsed value.
+     */
+    private static long parseHex(final String value, final int from, final int to) {
+        long result = 0;
+
+        for (int i = from; i < to; i++) {
+            final char c = value.charAt(i);
+            result = result << 4 | (c <= '9' ? c - '0' : c - 'a' + 10);
+        }
+
+        return result;
+    }
+
+    /**
+     * Writes unsigned varint, 7 bits per byte, least significant first.
+     *
+     * @param output output stream.
+     * @param value  value, treated as unsigned.
+     * @throws IOException on write error.
+     */
+    private static void writeVarint(final DataOutputStream output, final int value) throws IOException {
+        int remaining = value;
+
+        while ((remaining & ~0x7F) != 0) {
+            output.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+
+        output.writeByte(remaining);
+    }
+
+    /**
+     * Reads unsigned varint.
+     *
+     * @param input        input stream.
+     * @param inputMessage message being read, for error reporting.
+     * @return read value.
+     * @throws IOException on read error.
+     */
+    private static int readVarint(final DataInputStream input, final HttpInputMessage inputMessage) throws IOException {
+        int result = 0;
+
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = input.readUnsignedByte();
+            result |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+
+        throw new HttpMessageNotReadableException("Malformed varint", inputMessage);
+    }
+}
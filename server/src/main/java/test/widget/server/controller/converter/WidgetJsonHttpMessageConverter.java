@@ -0,0 +1,288 @@
+package test.widget.server.controller.converter;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.lang.Nullable;
+import test.widget.server.domain.ProjectedWidget;
+import test.widget.server.domain.ProjectedWidgets;
+import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetField;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Converter of widgets and widget collections to JSON, that writes the same output as Jackson
+ * without reflection and intermediate objects.
+ * Projected widgets are written with requested fields only.
+ * <p/>
+ * Field names are pre-encoded, numbers and dates are written as bytes straight into a buffer,
+ * taken from a pool of reusable buffers. Reading is left to Jackson.
+ *
+ * @author Mikhail Kondratev
+ */
+public class WidgetJsonHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    /**
+     * Max number of pooled buffers.
+     */
+    private static final int POOL_SIZE = 64;
+
+    /**
+     * Initial capacity of a buffer, enough for a page of default size.
+     */
+    private static final int INITIAL_BUFFER_CAPACITY = 8192;
+
+    /**
+     * Max capacity of a buffer to be returned to the pool, larger buffers are left for garbage collector.
+     */
+    private static final int MAX_POOLED_BUFFER_CAPACITY = 1024 * 1024;
+
+    /**
+     * Pre-encoded <code>id</code> field name.
+     */
+    private static final byte[] ID = ascii("\"id\":");
+
+    /**
+     * Pre-encoded <code>x</code> field name.
+     */
+    private static final byte[] X = ascii("\"x\":");
+
+    /**
+     * Pre-encoded <code>y</code> field name.
+     */
+    private static final byte[] Y = ascii("\"y\":");
+
+    /**
+     * Pre-encoded <code>z</code> field name.
+     */
+    private static final byte[] Z = ascii("\"z\":");
+
+    /**
+     * Pre-encoded <code>width</code> field name.
+     */
+    private static final byte[] WIDTH = ascii("\"width\":");
+
+    /**
+     * Pre-encoded <code>height</code> field name.
+     */
+    private static final byte[] HEIGHT = ascii("\"height\":");
+
+    /**
+     * Pre-encoded <code>lastModified</code> field name.
+     */
+    private static final byte[] LAST_MODIFIED = ascii("\"lastModified\":");
+
+    /**
+     * Pre-encoded <code>new</code> field name.
+     */
+    private static final byte[] NEW = ascii("\"new\":");
+
+    /**
+     * Buffers for reuse.
+     */
+    private final BlockingQueue<JsonByteBuffer> bufferPool = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    public WidgetJsonHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(final Class<?> clazz) {
+        return Widget.class == clazz || ProjectedWidget.class == clazz || ProjectedWidgets.class == clazz;
+    }
+
+    @Override
+    public boolean canRead(final Type type, @Nullable final Class<?> contextClass, @Nullable final MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(@Nullable final Type type, final Class<?> clazz, @Nullable final MediaType mediaType) {
+        final boolean isSupported;
+        if (type == null) {
+            isSupported = supports(clazz);
+        } else if (type instanceof Class) {
+            isSupported = supports((Class<?>) type);
+        } else {
+            isSupported = WidgetTypes.isWidgetCollection(type);
+        }
+
+        return isSupported && canWrite(mediaType);
+    }
+
+    @Override
+    protected void writeInternal(final Object value, @Nullable final Type type,
+                                 final HttpOutputMessage outputMessage) throws IOException {
+        JsonByteBuffer buffer = bufferPool.poll();
+        if (buffer == null) {
+            buffer = new JsonByteBuffer(INITIAL_BUFFER_CAPACITY);
+        }
+
+        try {
+            if (value instanceof Widget) {
+                writeWidget(buffer, (Widget) value, WidgetField.ALL);
+            } else if (value instanceof ProjectedWidget) {
+                writeWidget(buffer, ((ProjectedWidget) value).getWidget(), ((ProjectedWidget) value).getFields());
+            } else if (value instanceof ProjectedWidgets) {
+                writeWidgets(buffer, ((ProjectedWidgets) value).getWidgets(), ((ProjectedWidgets) value).getFields());
+            } else {
+                writeWidgets(buffer, castToWidgets(value), WidgetField.ALL);
+            }
+
+            outputMessage.getHeaders().setContentLength(buffer.size());
+            buffer.writeTo(outputMessage.getBody());
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotWritableException("Could not write widgets: " + e.getMessage(), e);
+        } finally {
+            buffer.reset();
+            if (buffer.capacity() <= MAX_POOLED_BUFFER_CAPACITY) {
+                bufferPool.offer(buffer);
+            }
+        }
+    }
+
+    @Override
+    protected Object readInternal(final Class<?> clazz, final HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Reading widgets is not supported", inputMessage);
+    }
+
+    @Override
+    public Object read(final Type type, @Nullable final Class<?> contextClass, final HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Reading widgets is not supported", inputMessage);
+    }
+
+    /**
+     * Writes widgets as JSON array.
+     *
+     * @param buffer  buffer to write into.
+     * @param widgets widgets to be written.
+     * @param fields  fields to be written.
+     */
+    private static void writeWidgets(final JsonByteBuffer buffer, final Collection<Widget> widgets, final Set<WidgetField> fields) {
+        buffer.write('[');
+
+        boolean first = true;
+        for (final Widget widget : widgets) {
+            if (!first) {
+                buffer.write(',');
+            }
+
+            writeWidget(buffer, widget, fields);
+            first = false;
+        }
+
+        buffer.write(']');
+    }
+
+    /**
+     * Writes widget as JSON object.
+     * Fields are written in the order of declaration, as by Jackson.
+     *
+     * @param buffer buffer to write into.
+     * @param widget widget to be written.
+     * @param fields fields to be written.
+     */
+    private static void writeWidget(final JsonByteBuffer buffer, final Widget widget, final Set<WidgetField> fields) {
+        buffer.write('{');
+        boolean first = true;
+
+        if (fields.contains(WidgetField.ID)) {
+            first = writeName(buffer, ID, first);
+            if (widget.getId() == null) {
+                buffer.writeNull();
+            } else {
+                buffer.writeString(widget.getId());
+            }
+        }
+
+        if (fields.contains(WidgetField.X)) {
+            first = writeName(buffer, X, first);
+            buffer.writeInt(widget.getX());
+        }
+
+        if (fields.contains(WidgetField.Y)) {
+            first = writeName(buffer, Y, first);
+            buffer.writeInt(widget.getY());
+        }
+
+        if (fields.contains(WidgetField.Z)) {
+            first = writeName(buffer, Z, first);
+            buffer.writeInt(widget.getZ());
+        }
+
+        if (fields.contains(WidgetField.WIDTH)) {
+            first = writeName(buffer, WIDTH, first);
+            buffer.writeInt(widget.getWidth());
+        }
+
+        if (fields.contains(WidgetField.HEIGHT)) {
+            first = writeName(buffer, HEIGHT, first);
+            buffer.writeInt(widget.getHeight());
+        }
+
+        if (fields.contains(WidgetField.LAST_MODIFIED)) {
+            first = writeName(buffer, LAST_MODIFIED, first);
+            if (widget.getLastModified() == null) {
+                buffer.writeNull();
+            } else {
+                buffer.writeLocalDateTime(widget.getLastModified());
+            }
+        }
+
+        if (fields.contains(WidgetField.NEW)) {
+            writeName(buffer, NEW, first);
+            buffer.writeBoolean(widget.isNew());
+        }
+
+        buffer.write('}');
+    }
+
+    /**
+     * Writes field name, preceded by a comma if it is not the first field.
+     *
+     * @param buffer buffer to write into.
+     * @param name   pre-encoded field name.
+     * @param first  <code>true</code> if it is the first field of an object.
+     * @return <code>false</code>, as the next field is not the first.
+     */
+    private static boolean writeName(final JsonByteBuffer buffer, final byte[] name, final boolean first) {
+        if (!first) {
+            buffer.write(',');
+        }
+
+        buffer.write(name);
+
+        return false;
+    }
+
+    /**
+     * Casts value, checked to be a collection of widgets by {@link #canWrite(Type, Class, MediaType)}.
+     *
+     * @param value collection of widgets.
+     * @return the same collection.
+     */
+    @SuppressWarnings("unchecked")
+    private static Collection<Widget> castToWidgets(final Object value) {
+        return (Collection<Widget>) value;
+    }
+
+    /**
+     * Encodes ASCII string.
+     *
+     * @param value string to be encoded.
+     * @return encoded bytes.
+     */
+    private static byte[] ascii(final String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,37 @@
+package test.widget.server.controller.converter;
+
+import test.widget.server.domain.Widget;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * Checks of types, written by widget converters.
+ *
+ * @author Mikhail Kondratev
+ */
+final class WidgetTypes {
+
+    private WidgetTypes() {
+    }
+
+    /**
+     * Checks if type is a collection of widgets.
+     *
+     * @param type type to be checked.
+     * @return <code>true</code> if type is a parameterized collection of widgets.
+     */
+    static boolean isWidgetCollection(final Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            return false;
+        }
+
+        final ParameterizedType parameterizedType = (ParameterizedType) type;
+
+        return parameterizedType.getRawType() instanceof Class
+                && Collection.class.isAssignableFrom((Class<?>) parameterizedType.getRawType())
+                && parameterizedType.getActualTypeArguments().length == 1
+                && parameterizedType.getActualTypeArguments()[0] == Widget.class;
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * HTTP message converters for widgets.
+ *
+ * @author Mikhail Kondratev
+ */
+@org.springframework.lang.NonNullApi
+@org.springframework.lang.NonNullFields
+package test.widget.server.controller.converter;
\ No newline at end of file
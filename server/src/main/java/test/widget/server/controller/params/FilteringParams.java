@@ -1,6 +1,8 @@
 package test.widget.server.controller.params;
 
 import lombok.Data;
+import org.springframework.lang.Nullable;
+import test.widget.server.domain.AreaQueryMode;
 
 import javax.validation.constraints.NotNull;
 
@@ -35,4 +37,10 @@ public class FilteringParams {
      */
     @NotNull
     private Integer height;
+
+    /**
+     * Mode of matching widgets against the area, {@link AreaQueryMode#INSIDE} if not specified.
+     */
+    @Nullable
+    private AreaQueryMode mode;
 }
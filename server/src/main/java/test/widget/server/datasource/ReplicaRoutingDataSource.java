@@ -0,0 +1,67 @@
+package test.widget.server.datasource;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Data source, that routes read-only transactions to the replica database, while it is fresh enough,
+ * and everything else to the primary database.
+ * <p/>
+ * Must be wrapped with {@link LazyConnectionDataSourceProxy}, see {@link #create(ReplicaStalenessGuard)},
+ * so that connection is taken after transaction is marked as read-only.
+ *
+ * @author Mikhail Kondratev
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * Lookup key of the primary database.
+     */
+    static final String PRIMARY = "primary";
+
+    /**
+     * Lookup key of the replica database.
+     */
+    static final String REPLICA = "replica";
+
+    /**
+     * Guard, that allows reading from the replica.
+     */
+    private final ReplicaStalenessGuard replicaStalenessGuard;
+
+    /**
+     * Constructor.
+     *
+     * @param replicaStalenessGuard guard, that allows reading from the replica and holds both databases.
+     */
+    public ReplicaRoutingDataSource(final ReplicaStalenessGuard replicaStalenessGuard) {
+        this.replicaStalenessGuard = replicaStalenessGuard;
+
+        setTargetDataSources(Map.of(PRIMARY, replicaStalenessGuard.getPrimary(), REPLICA, replicaStalenessGuard.getReplica()));
+        setDefaultTargetDataSource(replicaStalenessGuard.getPrimary());
+        afterPropertiesSet();
+    }
+
+    /**
+     * Creates routing data source, that takes connections lazily.
+     *
+     * @param replicaStalenessGuard guard, that allows reading from the replica and holds both databases.
+     * @return data source to be used by the application.
+     */
+    public static DataSource create(final ReplicaStalenessGuard replicaStalenessGuard) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(replicaStalenessGuard));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && replicaStalenessGuard.isReplicaFresh()) {
+            return REPLICA;
+        }
+
+        return PRIMARY;
+    }
+}
@@ -0,0 +1,185 @@
+package test.widget.server.datasource;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import test.widget.server.event.WidgetsChangedEvent;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Guard, that allows reading from the replica database only if it has all committed modifications.
+ * <p/>
+ * Committed modifications are counted, regardless of canvas versions, which don't share a sequence.
+ * Periodically the number of commits is written into a heartbeat table of the primary database and read back
+ * from the replica: once the replica has the heartbeat of a number, it has all modifications counted by it too.
+ * Replica is fresh only if it has the heartbeat of all commits counted when a read is routed,
+ * so that a read never returns widgets older than the canvas version, that the response is tagged with.
+ * If the replica can't be read, it is considered stale.
+ * <p/>
+ * Heartbeat never decreases: commits are counted on from the heartbeat found in the primary on start,
+ * and from heartbeats written by other servers, while a lower heartbeat never replaces a higher one.
+ *
+ * @author Mikhail Kondratev
+ */
+@Slf4j
+public class ReplicaStalenessGuard implements AutoCloseable {
+
+    /**
+     * Identifier of the heartbeat row.
+     */
+    private static final int HEARTBEAT_ID = 1;
+
+    /**
+     * Primary database, to which all modifications are written.
+     */
+    @Getter
+    private final DataSource primary;
+
+    /**
+     * Replica database, asynchronously receiving modifications of the primary.
+     */
+    @Getter
+    private final DataSource replica;
+
+    /**
+     * Interval of checking the replica, in milliseconds.
+     */
+    private final long checkInterval;
+
+    /**
+     * Number of committed modifications.
+     */
+    private final AtomicLong commits = new AtomicLong();
+
+    /**
+     * Number of commits known to be replicated, or -1 if unknown.
+     */
+    private final AtomicLong replicatedCommits = new AtomicLong(-1);
+
+    /**
+     * Executor checking the replica.
+     */
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "replica-staleness-guard");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructor.
+     *
+     * @param primary       primary database, to which all modifications are written.
+     * @param replica       replica database, asynchronously receiving modifications of the primary.
+     * @param checkInterval interval of checking the replica, in milliseconds.
+     */
+    public ReplicaStalenessGuard(final DataSource primary,
+                                 final DataSource replica,
+                                 final long checkInterval) {
+        this.primary = primary;
+        this.replica = replica;
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * Creates heartbeat table, if it doesn't exist, and starts checking the replica.
+     * Commits are counted from the heartbeat of the previous start, so that the replica is fresh only once
+     * it has a heartbeat written after this start, and so after all modifications committed before it.
+     */
+    public void start() {
+        final JdbcTemplate primaryTemplate = new JdbcTemplate(primary);
+        primaryTemplate.execute("CREATE TABLE IF NOT EXISTS widget_replica_heartbeat "
+                + "(id INT PRIMARY KEY, version BIGINT NOT NULL)");
+
+        findHeartbeat(primaryTemplate).ifPresent(heartbeat -> commits.accumulateAndGet(heartbeat + 1, Math::max));
+        writeHeartbeat(primaryTemplate, commits.get());
+
+        executor.scheduleWithFixedDelay(this::check, 0, checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Counts committed modifications. Events are published after commit.
+     *
+     * @param event widgets changed event.
+     */
+    @EventListener
+    public void onWidgetsChanged(final WidgetsChangedEvent event) {
+        commits.incrementAndGet();
+    }
+
+    /**
+     * @return <code>true</code> if the replica has all modifications committed so far.
+     */
+    public boolean isReplicaFresh() {
+        return replicatedCommits.get() >= commits.get();
+    }
+
+    /**
+     * Writes the number of commits into the heartbeat of the primary and reads the replicated heartbeat.
+     */
+    void check() {
+        try {
+            final JdbcTemplate primaryTemplate = new JdbcTemplate(primary);
+            writeHeartbeat(primaryTemplate, commits.get());
+
+            //commits are counted on from heartbeats of other servers, so that later commits get higher numbers
+            findHeartbeat(primaryTemplate).ifPresent(heartbeat -> commits.accumulateAndGet(heartbeat, Math::max));
+
+            replicatedCommits.set(findHeartbeat(new JdbcTemplate(replica)).orElse(-1L));
+        } catch (DataAccessException e) {
+            log.warn("Failed to check replica database, reading from primary: {}", e.getMessage());
+            replicatedCommits.set(-1);
+        }
+    }
+
+    /**
+     * Writes heartbeat in one statement, keeping the higher one, if it is already written.
+     *
+     * @param template database template.
+     * @param version  number of commits.
+     */
+    private static void writeHeartbeat(final JdbcTemplate template, final long version) {
+        template.update("MERGE INTO widget_replica_heartbeat h USING (SELECT CAST(? AS INT) id, CAST(? AS BIGINT) version) s "
+                + "ON (h.id = s.id) "
+                + "WHEN MATCHED AND h.version < s.version THEN UPDATE SET version = s.version "
+                + "WHEN NOT MATCHED THEN INSERT (id, version) VALUES (s.id, s.version)", HEARTBEAT_ID, version);
+    }
+
+    /**
+     * Reads heartbeat.
+     *
+     * @param template database template.
+     * @return number of commits, or empty, if heartbeat is not written.
+     */
+    private static Optional<Long> findHeartbeat(final JdbcTemplate template) {
+        final List<Long> heartbeat = template.queryForList(
+                "SELECT version FROM widget_replica_heartbeat WHERE id = ?", Long.class, HEARTBEAT_ID);
+
+        return heartbeat.stream().findFirst();
+    }
+
+    /**
+     * Stops checking the replica and closes pools of both databases.
+     *
+     * @throws Exception if a pool can't be closed.
+     */
+    @Override
+    public void close() throws Exception {
+        executor.shutdownNow();
+
+        if (primary instanceof AutoCloseable) {
+            ((AutoCloseable) primary).close();
+        }
+        if (replica instanceof AutoCloseable) {
+            ((AutoCloseable) replica).close();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * Data sources routing widget queries between primary and replica databases.
+ *
+ * @author Mikhail Kondratev
+ */
+@org.springframework.lang.NonNullApi
+@org.springframework.lang.NonNullFields
+package test.widget.server.datasource;
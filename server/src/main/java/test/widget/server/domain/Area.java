@@ -38,4 +38,40 @@ public class Area {
      * Area height.
      */
     private int height;
+
+    /**
+     * Checks if widget falls entirely inside this area.
+     * {@link #EMPTY_AREA} contains any widget.
+     *
+     * @param widget widget to be checked.
+     * @return <code>true</code> if widget fits inside the area.
+     */
+    public boolean contains(final Widget widget) {
+        if (EMPTY_AREA.equals(this)) {
+            return true;
+        }
+
+        return widget.getX() >= x
+                && widget.getY() >= y
+                && (long) widget.getX() + widget.getWidth() <= (long) x + width
+                && (long) widget.getY() + widget.getHeight() <= (long) y + height;
+    }
+
+    /**
+     * Checks if widget has at least one common point with this area, including touching borders.
+     * {@link #EMPTY_AREA} intersects any widget.
+     *
+     * @param widget widget to be checked.
+     * @return <code>true</code> if widget intersects the area.
+     */
+    public boolean intersects(final Widget widget) {
+        if (EMPTY_AREA.equals(this)) {
+            return true;
+        }
+
+        return widget.getX() <= (long) x + width
+                && (long) widget.getX() + widget.getWidth() >= x
+                && widget.getY() <= (long) y + height
+                && (long) widget.getY() + widget.getHeight() >= y;
+    }
 }
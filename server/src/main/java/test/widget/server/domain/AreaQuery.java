@@ -0,0 +1,29 @@
+package test.widget.server.domain;
+
+import lombok.Value;
+
+import java.util.Set;
+
+/**
+ * Query of widgets matching an area with specified fields loaded.
+ *
+ * @author Mikhail Kondratev
+ */
+@Value
+public class AreaQuery {
+
+    /**
+     * Filtering area, or {@link Area#EMPTY_AREA} if no filtering is required.
+     */
+    Area area;
+
+    /**
+     * Mode of matching widgets against the area.
+     */
+    AreaQueryMode mode;
+
+    /**
+     * Fields to be loaded, other fields of found widgets have default values.
+     */
+    Set<WidgetField> fields;
+}
@@ -0,0 +1,32 @@
+package test.widget.server.domain;
+
+/**
+ * Mode of matching widgets against a query area.
+ *
+ * @author Mikhail Kondratev
+ */
+public enum AreaQueryMode {
+
+    /**
+     * Widget should fall entirely inside an area.
+     */
+    INSIDE,
+
+    /**
+     * Widget should have at least one common point with an area, e.g. to be rendered in a viewport.
+     */
+    INTERSECTS;
+
+    /**
+     * Checks whether widget matches an area in this mode.
+     *
+     * @param area   query area.
+     * @param widget widget to be checked.
+     * @return <code>true</code> if widget matches the area.
+     * @see Area#contains(Widget)
+     * @see Area#intersects(Widget)
+     */
+    public boolean matches(final Area area, final Widget widget) {
+        return this == INSIDE ? area.contains(widget) : area.intersects(widget);
+    }
+}
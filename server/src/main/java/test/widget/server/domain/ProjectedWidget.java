@@ -0,0 +1,24 @@
+package test.widget.server.domain;
+
+import lombok.Value;
+
+import java.util.Set;
+
+/**
+ * Widget, that should be returned with specified fields only.
+ *
+ * @author Mikhail Kondratev
+ */
+@Value
+public class ProjectedWidget {
+
+    /**
+     * Widget to be returned.
+     */
+    Widget widget;
+
+    /**
+     * Fields to be returned.
+     */
+    Set<WidgetField> fields;
+}
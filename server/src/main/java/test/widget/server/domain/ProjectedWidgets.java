@@ -0,0 +1,25 @@
+package test.widget.server.domain;
+
+import lombok.Value;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Widgets, that should be returned with specified fields only.
+ *
+ * @author Mikhail Kondratev
+ */
+@Value
+public class ProjectedWidgets {
+
+    /**
+     * Widgets to be returned.
+     */
+    Collection<Widget> widgets;
+
+    /**
+     * Fields to be returned.
+     */
+    Set<WidgetField> fields;
+}
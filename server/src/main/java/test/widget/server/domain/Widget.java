@@ -1,27 +1,49 @@
 package test.widget.server.domain;
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.lang.Nullable;
 
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Transient;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Objects;
 
 /**
  * Data class for storing widget attribute information.
+ * <p/>
+ * If second-level cache is enabled, widgets are cached in read-write mode: every update, including z-index shift
+ * of other widgets, replaces cached state after commit, and concurrent loads don't cache stale state.
+ * <p/>
+ * Modification time is held as primitive seconds and nanoseconds of local date-time,
+ * {@link LocalDateTime} is created only when requested, e.g. when widget is written to a response or DB.
  *
  * @author Mikhail Kondratev
  */
 @Entity
+@Access(AccessType.FIELD)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class Widget implements Cloneable {
 
+    /**
+     * Value of {@link #lastModifiedNano}, if modification time is not set.
+     */
+    private static final int NOT_MODIFIED = -1;
+
     /**
      * Identifier.
      */
@@ -56,10 +78,22 @@ public class Widget implements Cloneable {
     private int height;
 
     /**
-     * Date and time of last modification of this object.
+     * Date and time of last modification of this object, as seconds since 1970-01-01T00:00.
      */
-    @Nullable
-    private LocalDateTime lastModified;
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private long lastModifiedSecond;
+
+    /**
+     * Nanosecond of last modification of this object, or {@link #NOT_MODIFIED} if modification time is not set.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private int lastModifiedNano = NOT_MODIFIED;
 
     /**
      * If object is newly created.
@@ -67,6 +101,71 @@ public class Widget implements Cloneable {
     @Transient
     private boolean isNew;
 
+    /**
+     * Constructor.
+     *
+     * @param id           identifier.
+     * @param x            x-coordinate.
+     * @param y            y-coordinate.
+     * @param z            z-index.
+     * @param width        width.
+     * @param height       height.
+     * @param lastModified date and time of last modification, if set.
+     * @param isNew        if object is newly created.
+     */
+    public Widget(@Nullable final String id, final int x, final int y, final int z, final int width, final int height,
+                  @Nullable final LocalDateTime lastModified, final boolean isNew) {
+        this.id = id;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.width = width;
+        this.height = height;
+        this.isNew = isNew;
+        setLastModified(lastModified);
+    }
+
+    /**
+     * Gets date and time of last modification of this object.
+     *
+     * @return date and time of last modification, or <code>null</code> if not set.
+     */
+    @Nullable
+    @Access(AccessType.PROPERTY)
+    @ToString.Include(name = "lastModified")
+    public LocalDateTime getLastModified() {
+        if (lastModifiedNano == NOT_MODIFIED) {
+            return null;
+        }
+
+        return LocalDateTime.ofEpochSecond(lastModifiedSecond, lastModifiedNano, ZoneOffset.UTC);
+    }
+
+    /**
+     * Sets date and time of last modification of this object.
+     *
+     * @param lastModified date and time of last modification, or <code>null</code> if not set.
+     */
+    public void setLastModified(@Nullable final LocalDateTime lastModified) {
+        if (lastModified == null) {
+            lastModifiedSecond = 0;
+            lastModifiedNano = NOT_MODIFIED;
+        } else {
+            lastModifiedSecond = lastModified.toEpochSecond(ZoneOffset.UTC);
+            lastModifiedNano = lastModified.getNano();
+        }
+    }
+
+    /**
+     * Sets time of last modification of this object without creating date-time objects.
+     *
+     * @param localMillis local date-time of modification as milliseconds since 1970-01-01T00:00.
+     */
+    public void markModified(final long localMillis) {
+        lastModifiedSecond = Math.floorDiv(localMillis, 1000);
+        lastModifiedNano = (int) Math.floorMod(localMillis, 1000) * 1_000_000;
+    }
+
     @Override
     public Widget clone() throws CloneNotSupportedException {
         return (Widget) super.clone();
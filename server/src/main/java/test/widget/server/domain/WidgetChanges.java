@@ -0,0 +1,40 @@
+package test.widget.server.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Widgets changed since some canvas version.
+ *
+ * @author Mikhail Kondratev
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class WidgetChanges {
+
+    /**
+     * Canvas version, which changes are included.
+     * Should be passed as a starting version when requesting next changes.
+     */
+    private long version;
+
+    /**
+     * <code>true</code> if changes since requested version are not available
+     * and {@link #updated} holds all existing widgets.
+     */
+    private boolean fullResync;
+
+    /**
+     * Created or updated widgets, in their latest state.
+     */
+    private List<Widget> updated;
+
+    /**
+     * Identifiers of deleted widgets.
+     */
+    private List<String> deleted;
+}
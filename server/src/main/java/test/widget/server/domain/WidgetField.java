@@ -0,0 +1,94 @@
+package test.widget.server.domain;
+
+import lombok.Getter;
+import org.springframework.lang.Nullable;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Widget fields, that can be requested in a projection.
+ *
+ * @author Mikhail Kondratev
+ */
+@Getter
+public enum WidgetField {
+    ID("id", "id"),
+    X("x", "x"),
+    Y("y", "y"),
+    Z("z", "z"),
+    WIDTH("width", "width"),
+    HEIGHT("height", "height"),
+    LAST_MODIFIED("lastModified", "lastModified"),
+    NEW("new", null);
+
+    /**
+     * All widget fields.
+     */
+    public static final Set<WidgetField> ALL = Collections.unmodifiableSet(EnumSet.allOf(WidgetField.class));
+
+    /**
+     * Widget fields, that are stored in repository.
+     */
+    public static final Set<WidgetField> STORED = Collections.unmodifiableSet(EnumSet.complementOf(EnumSet.of(NEW)));
+
+    /**
+     * Field name in JSON.
+     */
+    private final String jsonName;
+
+    /**
+     * Persistent attribute name, or <code>null</code> if the field is not stored.
+     */
+    @Nullable
+    private final String attribute;
+
+    WidgetField(final String jsonName, @Nullable final String attribute) {
+        this.jsonName = jsonName;
+        this.attribute = attribute;
+    }
+
+    /**
+     * Parses comma-separated field names.
+     *
+     * @param names comma-separated field names, as in JSON.
+     * @return parsed fields.
+     * @throws IllegalArgumentException if no fields are specified or a name is unknown.
+     */
+    public static Set<WidgetField> parse(final String names) {
+        final Set<WidgetField> fields = EnumSet.noneOf(WidgetField.class);
+
+        for (final String name : names.split(",")) {
+            final String trimmedName = name.trim();
+            if (trimmedName.isEmpty()) {
+                continue;
+            }
+
+            fields.add(fromName(trimmedName));
+        }
+
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("No widget fields specified");
+        }
+
+        return fields;
+    }
+
+    /**
+     * Finds field by it's name.
+     *
+     * @param name field name, as in JSON.
+     * @return found field.
+     * @throws IllegalArgumentException if name is unknown.
+     */
+    private static WidgetField fromName(final String name) {
+        for (final WidgetField field : values()) {
+            if (field.jsonName.equals(name)) {
+                return field;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown widget field: " + name);
+    }
+}
@@ -0,0 +1,93 @@
+package test.widget.server.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.lang.Nullable;
+
+/**
+ * Aggregates of all widgets: count, bounding box and z-index range.
+ * Bounding box and z-index range are <code>null</code> if no widgets exist.
+ *
+ * @author Mikhail Kondratev
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class WidgetStats {
+
+    /**
+     * Number of widgets.
+     */
+    private long count;
+
+    /**
+     * The lowest left edge of widgets.
+     */
+    @Nullable
+    private Integer minX;
+
+    /**
+     * The lowest top edge of widgets.
+     */
+    @Nullable
+    private Integer minY;
+
+    /**
+     * The highest right edge of widgets.
+     * Long, as a widget may end beyond int range.
+     */
+    @Nullable
+    private Long maxX;
+
+    /**
+     * The highest bottom edge of widgets.
+     * Long, as a widget may end beyond int range.
+     */
+    @Nullable
+    private Long maxY;
+
+    /**
+     * The lowest z-index.
+     */
+    @Nullable
+    private Integer minZ;
+
+    /**
+     * The highest z-index.
+     */
+    @Nullable
+    private Integer maxZ;
+
+    /**
+     * Calculates aggregates of specified widgets.
+     *
+     * @param widgets widgets to be aggregated.
+     * @return calculated aggregates.
+     */
+    public static WidgetStats of(final Iterable<Widget> widgets) {
+        long count = 0;
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        long maxX = Long.MIN_VALUE;
+        long maxY = Long.MIN_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+
+        for (final Widget widget : widgets) {
+            count++;
+            minX = Math.min(minX, widget.getX());
+            minY = Math.min(minY, widget.getY());
+            maxX = Math.max(maxX, (long) widget.getX() + widget.getWidth());
+            maxY = Math.max(maxY, (long) widget.getY() + widget.getHeight());
+            minZ = Math.min(minZ, widget.getZ());
+            maxZ = Math.max(maxZ, widget.getZ());
+        }
+
+        if (count == 0) {
+            return new WidgetStats(0, null, null, null, null, null, null);
+        }
+
+        return new WidgetStats(count, minX, minY, maxX, maxY, minZ, maxZ);
+    }
+}
@@ -0,0 +1,26 @@
+package test.widget.server.event;
+
+import lombok.Value;
+import org.springframework.lang.Nullable;
+import test.widget.server.domain.Widget;
+
+/**
+ * Single widget change: state of a widget before and after modification.
+ *
+ * @author Mikhail Kondratev
+ */
+@Value
+public class WidgetChange {
+
+    /**
+     * Widget state before modification, or <code>null</code> if the widget was created.
+     */
+    @Nullable
+    Widget previous;
+
+    /**
+     * Widget state after modification, or <code>null</code> if the widget was deleted.
+     */
+    @Nullable
+    Widget current;
+}
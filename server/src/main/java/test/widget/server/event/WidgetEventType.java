@@ -0,0 +1,24 @@
+package test.widget.server.event;
+
+/**
+ * Type of a widget change, as seen by an observer of an area.
+ *
+ * @author Mikhail Kondratev
+ */
+public enum WidgetEventType {
+
+    /**
+     * Widget was created inside the area or moved into it.
+     */
+    CREATED,
+
+    /**
+     * Widget inside the area was changed and is still inside it.
+     */
+    UPDATED,
+
+    /**
+     * Widget inside the area was deleted or moved out of it.
+     */
+    DELETED
+}
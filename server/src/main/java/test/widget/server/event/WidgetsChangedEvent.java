@@ -0,0 +1,27 @@
+package test.widget.server.event;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Event that is published after widgets were changed by a single operation.
+ * <p/>
+ * If operation is performed inside a transaction, event is published after commit.
+ *
+ * @author Mikhail Kondratev
+ */
+@Value
+public class WidgetsChangedEvent {
+
+    /**
+     * Canvas version after the operation.
+     * Events are published in the order of versions.
+     */
+    long version;
+
+    /**
+     * Changes made by the operation.
+     */
+    List<WidgetChange> changes;
+}
@@ -0,0 +1,8 @@
+/**
+ * Events published on widget changes.
+ *
+ * @author Mikhail Kondratev
+ */
+@org.springframework.lang.NonNullApi
+@org.springframework.lang.NonNullFields
+package test.widget.server.event;
\ No newline at end of file
@@ -0,0 +1,24 @@
+package test.widget.server.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.text.MessageFormat;
+
+/**
+ * This type of exception is thrown when requested canvas can't be provided by configured repository.
+ *
+ * @author Mikhail Kondratev
+ */
+@ResponseStatus(value = HttpStatus.NOT_FOUND, reason = "Cannot find canvas with specified id")
+public class CanvasNotFoundException extends RuntimeException {
+
+    /**
+     * Constructor.
+     *
+     * @param canvasId canvas identifier.
+     */
+    public CanvasNotFoundException(final String canvasId) {
+        super(MessageFormat.format("Cannot find canvas with specified id: {0}", canvasId));
+    }
+}
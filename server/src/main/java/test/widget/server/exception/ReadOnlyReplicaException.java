@@ -0,0 +1,20 @@
+package test.widget.server.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * This type of exception is thrown when widgets are modified on a replica, that only applies changes of the leader.
+ *
+ * @author Mikhail Kondratev
+ */
+@ResponseStatus(value = HttpStatus.FORBIDDEN, reason = "Widgets are read-only on replica")
+public class ReadOnlyReplicaException extends RuntimeException {
+
+    /**
+     * Constructor.
+     */
+    public ReadOnlyReplicaException() {
+        super("Widgets are read-only on replica");
+    }
+}
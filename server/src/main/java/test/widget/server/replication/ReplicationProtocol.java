@@ -0,0 +1,133 @@
+package test.widget.server.replication;
+
+import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetChanges;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Binary format of replicated widget changes.
+ * <p/>
+ * Every message is {@link WidgetChanges}: version, full resync flag, updated widgets and deleted identifiers.
+ * Widgets are written with all fields, modification time as UTC epoch seconds and nanoseconds.
+ *
+ * @author Mikhail Kondratev
+ */
+final class ReplicationProtocol {
+
+    /**
+     * Constructor of utility class.
+     */
+    private ReplicationProtocol() {
+    }
+
+    /**
+     * Serializes changes into a message.
+     *
+     * @param changes widget changes.
+     * @return message bytes.
+     */
+    static byte[] toMessage(final WidgetChanges changes) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeLong(changes.getVersion());
+            output.writeBoolean(changes.isFullResync());
+
+            output.writeInt(changes.getUpdated().size());
+            for (final Widget widget : changes.getUpdated()) {
+                writeWidget(output, widget);
+            }
+
+            output.writeInt(changes.getDeleted().size());
+            for (final String id : changes.getDeleted()) {
+                output.writeUTF(id);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot serialize widget changes", e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a message.
+     *
+     * @param input input stream.
+     * @return widget changes.
+     * @throws IOException on read error or end of stream.
+     */
+    static WidgetChanges readMessage(final DataInputStream input) throws IOException {
+        final long version = input.readLong();
+        final boolean fullResync = input.readBoolean();
+
+        final int updatedCount = input.readInt();
+        final List<Widget> updated = new ArrayList<>(updatedCount);
+        for (int i = 0; i < updatedCount; i++) {
+            updated.add(readWidget(input));
+        }
+
+        final int deletedCount = input.readInt();
+        final List<String> deleted = new ArrayList<>(deletedCount);
+        for (int i = 0; i < deletedCount; i++) {
+            deleted.add(input.readUTF());
+        }
+
+        return new WidgetChanges(version, fullResync, updated, deleted);
+    }
+
+    /**
+     * Writes widget.
+     *
+     * @param output output stream.
+     * @param widget widget.
+     * @throws IOException on write error.
+     */
+    private static void writeWidget(final DataOutputStream output, final Widget widget) throws IOException {
+        output.writeUTF(requireNonNull(widget.getId()));
+        output.writeInt(widget.getX());
+        output.writeInt(widget.getY());
+        output.writeInt(widget.getZ());
+        output.writeInt(widget.getWidth());
+        output.writeInt(widget.getHeight());
+
+        final LocalDateTime lastModified = widget.getLastModified();
+        output.writeBoolean(lastModified != null);
+        if (lastModified != null) {
+            output.writeLong(lastModified.toEpochSecond(ZoneOffset.UTC));
+            output.writeInt(lastModified.getNano());
+        }
+    }
+
+    /**
+     * Reads widget.
+     *
+     * @param input input stream.
+     * @return widget.
+     * @throws IOException on read error.
+     */
+    private static Widget readWidget(final DataInputStream input) throws IOException {
+        final Widget widget = new Widget();
+        widget.setId(input.readUTF());
+        widget.setX(input.readInt());
+        widget.setY(input.readInt());
+        widget.setZ(input.readInt());
+        widget.setWidth(input.readInt());
+        widget.setHeight(input.readInt());
+
+        if (input.readBoolean()) {
+            widget.setLastModified(LocalDateTime.ofEpochSecond(input.readLong(), input.readInt(), ZoneOffset.UTC));
+        }
+
+        return widget;
+    }
+}
@@ -0,0 +1,177 @@
+package test.widget.server.replication;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import test.widget.server.domain.WidgetChanges;
+import test.widget.server.service.WidgetService;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Replica side of widget replication.
+ * <p/>
+ * Connects to the leader and applies received changes to the local widget service.
+ * Changes are applied in order, so applying is retried, while local operations can't be blocked for it.
+ * After disconnecting, reconnects with a delay and receives full resync.
+ *
+ * @author Mikhail Kondratev
+ * @see WidgetReplicationLeader
+ */
+@Slf4j
+public class WidgetReplicationFollower implements AutoCloseable {
+
+    /**
+     * Delay before reconnecting to the leader, in milliseconds.
+     */
+    static final long RECONNECT_DELAY = 1000;
+
+    /**
+     * Local widget service, to which changes are applied.
+     */
+    private final WidgetService widgetService;
+
+    /**
+     * Host of the leader.
+     */
+    private final String host;
+
+    /**
+     * Replication port of the leader.
+     */
+    private final int port;
+
+    /**
+     * Thread receiving changes, or <code>null</code> if not started.
+     */
+    @Nullable
+    private volatile Thread thread;
+
+    /**
+     * Connection to the leader, or <code>null</code> if not connected.
+     */
+    @Nullable
+    private volatile Socket socket;
+
+    /**
+     * Whether the follower was closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param widgetService local widget service, to which changes are applied.
+     * @param leader        address of the leader in <code>host:port</code> format.
+     */
+    public WidgetReplicationFollower(final WidgetService widgetService, final String leader) {
+        final int separator = leader.lastIndexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Replication leader must be in host:port format: " + leader);
+        }
+
+        this.widgetService = widgetService;
+        this.host = leader.substring(0, separator);
+        this.port = Integer.parseInt(leader.substring(separator + 1));
+    }
+
+    /**
+     * Starts receiving changes of the leader in background.
+     */
+    public void start() {
+        final Thread receiver = new Thread(this::receive, "widget-replication-follower");
+        receiver.setDaemon(true);
+        thread = receiver;
+        receiver.start();
+    }
+
+    /**
+     * @return whether the follower is connected to the leader.
+     */
+    public boolean isConnected() {
+        final Socket current = socket;
+        return current != null && !current.isClosed();
+    }
+
+    /**
+     * Stops receiving changes and disconnects from the leader.
+     */
+    @Override
+    public void close() {
+        closed = true;
+
+        final Thread receiver = thread;
+        if (receiver != null) {
+            receiver.interrupt();
+        }
+
+        disconnect();
+    }
+
+    /**
+     * Receives and applies changes, reconnecting to the leader, until closed.
+     */
+    private void receive() {
+        while (!closed) {
+            try (Socket current = new Socket(host, port)) {
+                socket = current;
+
+                final DataInputStream input = new DataInputStream(new BufferedInputStream(current.getInputStream()));
+                while (!closed) {
+                    final WidgetChanges changes = ReplicationProtocol.readMessage(input);
+                    apply(changes);
+                }
+            } catch (IOException e) {
+                if (!closed) {
+                    log.info("Disconnected from widget replication leader {}:{}: {}", host, port, e.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                socket = null;
+            }
+
+            try {
+                Thread.sleep(RECONNECT_DELAY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Applies changes to the local widget service, retrying while local operations can't be blocked for it.
+     *
+     * @param changes changes made on the leader.
+     * @throws InterruptedException if the thread was interrupted.
+     */
+    private void apply(final WidgetChanges changes) throws InterruptedException {
+        while (true) {
+            try {
+                widgetService.applyReplicatedChanges(changes);
+                return;
+            } catch (TimeoutException e) {
+                log.warn("Widgets are busy, retrying replicated changes of version {}", changes.getVersion());
+            }
+        }
+    }
+
+    /**
+     * Closes connection to the leader, ignoring errors.
+     */
+    private void disconnect() {
+        final Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                log.debug("Failed to close replication socket", e);
+            }
+        }
+    }
+}
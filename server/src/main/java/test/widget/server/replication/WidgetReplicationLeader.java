@@ -0,0 +1,349 @@
+package test.widget.server.replication;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetChanges;
+import test.widget.server.event.WidgetChange;
+import test.widget.server.event.WidgetsChangedEvent;
+import test.widget.server.service.WidgetService;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Leader side of widget replication.
+ * <p/>
+ * Listens on a loopback port. Every connected replica first receives all widgets as full resync,
+ * then every change in the order of versions. Changes are serialized once and queued for each replica,
+ * so that slow replicas never block modifications. A replica, which queue is full, is disconnected
+ * and receives full resync again after reconnecting. Snapshot for full resync is retried,
+ * until modifications are blocked for taking it. Closing the leader stops and waits for all its threads.
+ *
+ * @author Mikhail Kondratev
+ * @see WidgetReplicationFollower
+ */
+@Slf4j
+public class WidgetReplicationLeader implements AutoCloseable {
+
+    /**
+     * Max number of changes queued for a replica.
+     */
+    static final int QUEUE_CAPACITY = 10000;
+
+    /**
+     * Max time to wait for a thread to stop on close, in milliseconds.
+     */
+    static final long STOP_TIMEOUT = 5000;
+
+    /**
+     * Widget service, which changes are replicated.
+     */
+    private final WidgetService widgetService;
+
+    /**
+     * Port to listen on, 0 for any free port.
+     */
+    private final int port;
+
+    /**
+     * Connected replicas.
+     */
+    private final Set<Replica> replicas = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Threads sending changes to replicas, including ones not registered as replicas yet.
+     */
+    private final Set<Thread> senders = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Thread accepting replicas, or <code>null</code> if not started.
+     */
+    @Nullable
+    private volatile Thread acceptor;
+
+    /**
+     * Socket accepting replicas, or <code>null</code> if not started.
+     */
+    @Nullable
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * Constructor.
+     *
+     * @param widgetService widget service, which changes are replicated.
+     * @param port          port to listen on, 0 for any free port.
+     */
+    public WidgetReplicationLeader(final WidgetService widgetService, final int port) {
+        this.widgetService = widgetService;
+        this.port = port;
+    }
+
+    /**
+     * Starts accepting replicas.
+     *
+     * @throws IOException if port can't be bound.
+     */
+    public void start() throws IOException {
+        final ServerSocket socket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        serverSocket = socket;
+
+        final Thread thread = new Thread(() -> accept(socket), "widget-replication-acceptor");
+        thread.setDaemon(true);
+        acceptor = thread;
+        thread.start();
+
+        log.info("Replicating widget changes on port {}", socket.getLocalPort());
+    }
+
+    /**
+     * @return port, on which replicas are accepted.
+     */
+    public int getLocalPort() {
+        return requireNonNull(serverSocket).getLocalPort();
+    }
+
+    /**
+     * @return number of connected replicas.
+     */
+    public int getReplicasCount() {
+        return replicas.size();
+    }
+
+    /**
+     * Queues changes for all connected replicas.
+     * Events are published in the order of versions, so they are queued in this order too.
+     *
+     * @param event widgets changed event.
+     */
+    @EventListener
+    public void onWidgetsChanged(final WidgetsChangedEvent event) {
+        if (replicas.isEmpty()) {
+            return;
+        }
+
+        final List<Widget> updated = new ArrayList<>();
+        final List<String> deleted = new ArrayList<>();
+        for (final WidgetChange change : event.getChanges()) {
+            if (change.getCurrent() != null) {
+                updated.add(change.getCurrent());
+            } else {
+                deleted.add(requireNonNull(requireNonNull(change.getPrevious()).getId()));
+            }
+        }
+
+        final Message message = new Message(event.getVersion(),
+                ReplicationProtocol.toMessage(new WidgetChanges(event.getVersion(), false, updated, deleted)));
+
+        for (final Replica replica : replicas) {
+            replica.offer(message);
+        }
+    }
+
+    /**
+     * Stops accepting replicas, disconnects connected ones and waits for sending threads to stop.
+     * Threads blocked waiting for changes or for a snapshot are interrupted.
+     */
+    @Override
+    public void close() {
+        final ServerSocket socket = serverSocket;
+        if (socket != null) {
+            closeQuietly(socket);
+        }
+
+        final Thread thread = acceptor;
+        if (thread != null) {
+            join(thread);
+        }
+
+        replicas.forEach(Replica::disconnect);
+
+        senders.forEach(Thread::interrupt);
+        senders.forEach(WidgetReplicationLeader::join);
+    }
+
+    /**
+     * Accepts replicas, until socket is closed.
+     *
+     * @param socket server socket.
+     */
+    private void accept(final ServerSocket socket) {
+        while (!socket.isClosed()) {
+            try {
+                final Replica replica = new Replica(socket.accept());
+
+                final Thread sender = new Thread(() -> {
+                    try {
+                        replica.send();
+                    } finally {
+                        senders.remove(Thread.currentThread());
+                    }
+                }, "widget-replication-sender");
+                sender.setDaemon(true);
+                senders.add(sender);
+                sender.start();
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    log.warn("Failed to accept widget replica", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for a thread to stop, at most {@link #STOP_TIMEOUT}.
+     *
+     * @param thread thread to be waited for.
+     */
+    private static void join(final Thread thread) {
+        try {
+            thread.join(STOP_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (thread.isAlive()) {
+            log.warn("Widget replication thread {} is not stopped", thread.getName());
+        }
+    }
+
+    /**
+     * Closes socket, ignoring errors.
+     *
+     * @param socket socket to be closed.
+     */
+    private static void closeQuietly(final AutoCloseable socket) {
+        try {
+            socket.close();
+        } catch (Exception e) {
+            log.debug("Failed to close replication socket", e);
+        }
+    }
+
+    /**
+     * Serialized changes of a version.
+     */
+    @Value
+    private static class Message {
+
+        /**
+         * Canvas version after the changes.
+         */
+        long version;
+
+        /**
+         * Serialized changes.
+         */
+        byte[] bytes;
+    }
+
+    /**
+     * Connected replica with it's own queue of changes.
+     */
+    private class Replica {
+
+        /**
+         * Replica socket.
+         */
+        private final Socket socket;
+
+        /**
+         * Changes to be sent.
+         */
+        private final BlockingQueue<Message> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        /**
+         * Constructor.
+         *
+         * @param socket replica socket.
+         */
+        private Replica(final Socket socket) {
+            this.socket = socket;
+        }
+
+        /**
+         * Queues changes, disconnects replica if the queue is full.
+         *
+         * @param message serialized changes.
+         */
+        private void offer(final Message message) {
+            if (!queue.offer(message)) {
+                log.warn("Widget replica {} is too slow, disconnecting", socket.getRemoteSocketAddress());
+                disconnect();
+            }
+        }
+
+        /**
+         * Sends full resync and queued changes, until replica is disconnected.
+         * Replica is registered before taking the snapshot, so that no change is missed,
+         * and changes already included into the snapshot are skipped.
+         */
+        private void send() {
+            replicas.add(this);
+            try (OutputStream output = new BufferedOutputStream(socket.getOutputStream())) {
+                final WidgetChanges snapshot = getSnapshot();
+                output.write(ReplicationProtocol.toMessage(snapshot));
+                output.flush();
+
+                log.info("Widget replica {} connected at version {}", socket.getRemoteSocketAddress(), snapshot.getVersion());
+
+                while (!socket.isClosed()) {
+                    final Message message = queue.take();
+                    if (message.getVersion() <= snapshot.getVersion()) {
+                        continue;
+                    }
+
+                    output.write(message.getBytes());
+                    if (queue.isEmpty()) {
+                        output.flush();
+                    }
+                }
+            } catch (IOException e) {
+                log.info("Widget replica {} disconnected: {}", socket.getRemoteSocketAddress(), e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                disconnect();
+            }
+        }
+
+        /**
+         * Gets snapshot of all widgets, retrying while modifications can't be blocked for it.
+         *
+         * @return all widgets as full resync changes.
+         * @throws InterruptedException if the thread was interrupted.
+         */
+        private WidgetChanges getSnapshot() throws InterruptedException {
+            while (true) {
+                try {
+                    return widgetService.getSnapshot();
+                } catch (TimeoutException e) {
+                    log.warn("Widgets are busy, retrying snapshot for widget replica {}", socket.getRemoteSocketAddress());
+                }
+            }
+        }
+
+        /**
+         * Closes replica socket and stops queueing changes for it.
+         */
+        private void disconnect() {
+            replicas.remove(this);
+            closeQuietly(socket);
+        }
+    }
+}
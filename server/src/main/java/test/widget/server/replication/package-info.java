@@ -0,0 +1,8 @@
+/**
+ * Replication of widget changes from leader server to read-only replicas.
+ *
+ * @author Mikhail Kondratev
+ */
+@org.springframework.lang.NonNullApi
+@org.springframework.lang.NonNullFields
+package test.widget.server.replication;
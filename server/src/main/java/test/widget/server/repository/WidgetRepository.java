@@ -1,9 +1,18 @@
 package test.widget.server.repository;
 
+import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQueryMode;
 import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetField;
+import test.widget.server.domain.WidgetStats;
 
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Repository interface for storing and accessing widgets.
@@ -41,4 +50,163 @@ public interface WidgetRepository {
      * @return list of all widgets in repository.
      */
     List<Widget> findAll();
+
+    /**
+     * Gets all widgets from repository with at least specified fields loaded.
+     * Other fields may have default values, so returned widgets must not be saved.
+     * <p/>
+     * By default all fields are loaded.
+     *
+     * @param fields fields to be loaded.
+     * @return list of all widgets in repository.
+     */
+    default List<Widget> findAll(final Set<WidgetField> fields) {
+        return findAll();
+    }
+
+    /**
+     * @return <code>true</code> if repository finds widgets in area by it's own index,
+     * so that {@link #findInArea(Area, AreaQueryMode, Set)} should be preferred over filtering all widgets.
+     */
+    default boolean isSpatiallyIndexed() {
+        return false;
+    }
+
+    /**
+     * Finds widgets, that match specified area, with at least specified fields loaded.
+     * <p/>
+     * By default all widgets are loaded and filtered.
+     *
+     * @param area   filtering area, or {@link Area#EMPTY_AREA} for all widgets.
+     * @param mode   mode of matching widgets against the area.
+     * @param fields fields to be loaded.
+     * @return widgets matching the area, sorted by z-index, ascending.
+     * @see AreaQueryMode#matches(Area, Widget)
+     */
+    default List<Widget> findInArea(final Area area, final AreaQueryMode mode, final Set<WidgetField> fields) {
+        return findAll(fields).stream()
+                .filter(widget -> mode.matches(area, widget))
+                .sorted(Comparator.comparingInt(Widget::getZ))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds widgets nearest to a point. Widgets at the same distance are ordered by z-index, descending.
+     * <p/>
+     * By default all widgets are loaded and scanned.
+     *
+     * @param x     point x-coordinate.
+     * @param y     point y-coordinate.
+     * @param count max number of widgets to be found.
+     * @return nearest widgets, sorted by distance, ascending.
+     * @see #distance(Widget, int, int)
+     */
+    default List<Widget> findNearest(final int x, final int y, final int count) {
+        return findNearest(findAll(), x, y, count);
+    }
+
+    /**
+     * Counts widgets in repository.
+     *
+     * @return number of widgets.
+     */
+    default long count() {
+        return findAll().size();
+    }
+
+    /**
+     * Counts widgets, that match specified area.
+     *
+     * @param area filtering area, or {@link Area#EMPTY_AREA} for all widgets.
+     * @param mode mode of matching widgets against the area.
+     * @return number of widgets matching the area.
+     * @see AreaQueryMode#matches(Area, Widget)
+     */
+    default long countInArea(final Area area, final AreaQueryMode mode) {
+        return findAll().stream()
+                .filter(widget -> mode.matches(area, widget))
+                .count();
+    }
+
+    /**
+     * Calculates aggregates of all widgets.
+     *
+     * @return widgets count, bounding box and z-index range.
+     */
+    default WidgetStats getStats() {
+        return WidgetStats.of(findAll());
+    }
+
+    /**
+     * Finds widgets nearest to a point by scanning all of them and keeping only the nearest ones found so far.
+     *
+     * @param widgets widgets to be scanned.
+     * @param x       point x-coordinate.
+     * @param y       point y-coordinate.
+     * @param count   max number of widgets to be found.
+     * @return nearest widgets, sorted by distance, ascending.
+     * @see #findNearest(int, int, int)
+     */
+    static List<Widget> findNearest(final Collection<Widget> widgets, final int x, final int y, final int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+
+        final Comparator<Widget> nearestFirst = nearestFirst(x, y);
+
+        final PriorityQueue<Widget> farthestFirst = new PriorityQueue<>(count + 1, nearestFirst.reversed());
+        for (final Widget widget : widgets) {
+            farthestFirst.add(widget);
+            if (farthestFirst.size() > count) {
+                farthestFirst.poll();
+            }
+        }
+
+        return farthestFirst.stream()
+                .sorted(nearestFirst)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Creates comparator of widgets by distance to a point, ascending, then by z-index, descending.
+     *
+     * @param x point x-coordinate.
+     * @param y point y-coordinate.
+     * @return comparator of widgets.
+     */
+    static Comparator<Widget> nearestFirst(final int x, final int y) {
+        return Comparator.<Widget>comparingDouble(widget -> distance(widget, x, y))
+                .thenComparing(Comparator.comparingInt(Widget::getZ).reversed());
+    }
+
+    /**
+     * Calculates distance from a point to the nearest point of a widget, zero if point is under the widget.
+     *
+     * @param widget widget.
+     * @param x      point x-coordinate.
+     * @param y      point y-coordinate.
+     * @return euclidean distance.
+     */
+    static double distance(final Widget widget, final int x, final int y) {
+        return distance(widget.getX(), widget.getY(), (long) widget.getX() + widget.getWidth(),
+                (long) widget.getY() + widget.getHeight(), x, y);
+    }
+
+    /**
+     * Calculates distance from a point to the nearest point of a box, zero if point is inside the box.
+     *
+     * @param left   box left edge.
+     * @param top    box top edge.
+     * @param right  box right edge.
+     * @param bottom box bottom edge.
+     * @param x      point x-coordinate.
+     * @param y      point y-coordinate.
+     * @return euclidean distance.
+     */
+    static double distance(final long left, final long top, final long right, final long bottom, final long x, final long y) {
+        final long dx = Math.max(0, Math.max(left - x, x - right));
+        final long dy = Math.max(0, Math.max(top - y, y - bottom));
+
+        return Math.hypot(dx, dy);
+    }
 }
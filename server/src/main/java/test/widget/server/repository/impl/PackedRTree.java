@@ -0,0 +1,420 @@
+package test.widget.server.repository.impl;
+
+import test.widget.server.repository.WidgetRepository;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Static R-tree, packed into flat arrays without node objects.
+ * <p/>
+ * Rectangles are sorted once by Hilbert curve value of their centers, then grouped bottom-up into nodes
+ * of {@link #NODE_SIZE} children. Node boxes follow item boxes in a single array, level by level,
+ * so the root is the last box. The tree can't be modified, it is built in one pass over primitive coordinates.
+ *
+ * @author Mikhail Kondratev
+ */
+class PackedRTree {
+
+    /**
+     * Max number of children of a node.
+     */
+    static final int NODE_SIZE = 16;
+
+    /**
+     * Number of bits of each coordinate mapped to Hilbert curve.
+     */
+    private static final int HILBERT_ORDER = 15;
+
+    /**
+     * Side of Hilbert curve grid.
+     */
+    private static final int HILBERT_SIDE = 1 << HILBERT_ORDER;
+
+    /**
+     * Number of indexed rectangles.
+     */
+    private final int itemsCount;
+
+    /**
+     * Boxes of items and nodes, four values per box: left, top, right, bottom.
+     */
+    private final long[] boxes;
+
+    /**
+     * For items - index of a rectangle in source arrays, for nodes - position of the first child.
+     */
+    private final int[] indices;
+
+    /**
+     * Positions after the last box of each level, from leaves to the root.
+     */
+    private final int[] levelBounds;
+
+    /**
+     * Builds tree of rectangles.
+     * Rectangles are identified by their indices in source arrays.
+     *
+     * @param x      left edges.
+     * @param y      top edges.
+     * @param width  widths.
+     * @param height heights.
+     */
+    PackedRTree(final int[] x, final int[] y, final int[] width, final int[] height) {
+        itemsCount = x.length;
+
+        int levelsCount = 1;
+        int nodesCount = itemsCount;
+        int levelSize = itemsCount;
+        do {
+            levelSize = Math.max((levelSize + NODE_SIZE - 1) / NODE_SIZE, 1);
+            nodesCount += levelSize;
+            levelsCount++;
+        } while (levelSize > 1);
+
+        boxes = new long[nodesCount * 4];
+        indices = new int[nodesCount];
+        levelBounds = new int[levelsCount];
+
+        final long[] order = sortByHilbertValue(x, y, width, height);
+
+        for (int position = 0; position < itemsCount; position++) {
+            final int item = (int) order[position];
+            indices[position] = item;
+            setBox(position, x[item], y[item], (long) x[item] + width[item], (long) y[item] + height[item]);
+        }
+
+        levelBounds[0] = itemsCount;
+
+        int levelStart = 0;
+        int position = itemsCount;
+        for (int level = 1; level < levelsCount; level++) {
+            final int levelEnd = levelBounds[level - 1];
+
+            for (int child = levelStart; child < levelEnd || child == levelStart; child += NODE_SIZE) {
+                long left = Long.MAX_VALUE;
+                long top = Long.MAX_VALUE;
+                long right = Long.MIN_VALUE;
+                long bottom = Long.MIN_VALUE;
+
+                for (int i = child; i < Math.min(child + NODE_SIZE, levelEnd); i++) {
+                    left = Math.min(left, boxes[i * 4]);
+                    top = Math.min(top, boxes[i * 4 + 1]);
+                    right = Math.max(right, boxes[i * 4 + 2]);
+                    bottom = Math.max(bottom, boxes[i * 4 + 3]);
+                }
+
+                indices[position] = child;
+                setBox(position++, left, top, right, bottom);
+            }
+
+            levelBounds[level] = position;
+            levelStart = levelEnd;
+        }
+    }
+
+    /**
+     * Finds rectangles, that have at least one common point with specified box.
+     *
+     * @param left     box left edge.
+     * @param top      box top edge.
+     * @param right    box right edge.
+     * @param bottom   box bottom edge.
+     * @param consumer consumer of found rectangle indices in source arrays.
+     */
+    void search(final long left, final long top, final long right, final long bottom, final IntConsumer consumer) {
+        if (itemsCount == 0) {
+            return;
+        }
+
+        int[] stack = new int[64];
+        int stackSize = 0;
+
+        int blockStart = indices.length - 1;
+        while (true) {
+            final int blockEnd = Math.min(blockStart + NODE_SIZE, levelEnd(blockStart));
+
+            for (int position = blockStart; position < blockEnd; position++) {
+                if (boxes[position * 4] > right
+                        || boxes[position * 4 + 1] > bottom
+                        || boxes[position * 4 + 2] < left
+                        || boxes[position * 4 + 3] < top) {
+                    continue;
+                }
+
+                if (position < itemsCount) {
+                    consumer.accept(indices[position]);
+                } else {
+                    if (stackSize == stack.length) {
+                        stack = Arrays.copyOf(stack, stackSize * 2);
+                    }
+
+                    stack[stackSize++] = indices[position];
+                }
+            }
+
+            if (stackSize == 0) {
+                return;
+            }
+
+            blockStart = stack[--stackSize];
+        }
+    }
+
+    /**
+     * Visits rectangles in order of distance to a point, the nearest first.
+     * <p/>
+     * Boxes of nodes and items are kept in a heap by their distance to the point, so that a node is opened
+     * only when no closer box remains, and an item is visited only when no closer item can be found.
+     *
+     * @param x       point x-coordinate.
+     * @param y       point y-coordinate.
+     * @param visitor visitor of rectangle indices in source arrays, that returns <code>false</code> to stop.
+     */
+    void nearest(final long x, final long y, final NearestVisitor visitor) {
+        if (itemsCount == 0) {
+            return;
+        }
+
+        final int root = indices.length - 1;
+        final DistanceHeap heap = new DistanceHeap();
+        heap.push(distance(root, x, y), root);
+
+        while (heap.size > 0) {
+            final double distance = heap.distances[0];
+            final int position = heap.pop();
+
+            if (position < itemsCount) {
+                if (!visitor.visit(indices[position], distance)) {
+                    return;
+                }
+            } else {
+                final int blockStart = indices[position];
+                final int blockEnd = Math.min(blockStart + NODE_SIZE, levelEnd(blockStart));
+
+                for (int child = blockStart; child < blockEnd; child++) {
+                    heap.push(distance(child, x, y), child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates distance from a point to a box.
+     *
+     * @param position box position.
+     * @param x        point x-coordinate.
+     * @param y        point y-coordinate.
+     * @return euclidean distance, zero if point is inside the box.
+     */
+    private double distance(final int position, final long x, final long y) {
+        return WidgetRepository.distance(boxes[position * 4], boxes[position * 4 + 1],
+                boxes[position * 4 + 2], boxes[position * 4 + 3], x, y);
+    }
+
+    /**
+     * Finds end of the level, that contains specified position.
+     *
+     * @param position position of a box.
+     * @return position after the last box of the level.
+     */
+    private int levelEnd(final int position) {
+        for (final int levelBound : levelBounds) {
+            if (position < levelBound) {
+                return levelBound;
+            }
+        }
+
+        return indices.length;
+    }
+
+    /**
+     * Sets box at specified position.
+     *
+     * @param position box position.
+     * @param left     left edge.
+     * @param top      top edge.
+     * @param right    right edge.
+     * @param bottom   bottom edge.
+     */
+    private void setBox(final int position, final long left, final long top, final long right, final long bottom) {
+        boxes[position * 4] = left;
+        boxes[position * 4 + 1] = top;
+        boxes[position * 4 + 2] = right;
+        boxes[position * 4 + 3] = bottom;
+    }
+
+    /**
+     * Sorts rectangles by Hilbert curve value of their centers, scaled to the bounds of all centers.
+     * Value and index are packed into one long, so that sorting is done on primitives.
+     *
+     * @param x      left edges.
+     * @param y      top edges.
+     * @param width  widths.
+     * @param height heights.
+     * @return sorted keys, lower 32 bits of each key hold rectangle index.
+     */
+    private static long[] sortByHilbertValue(final int[] x, final int[] y, final int[] width, final int[] height) {
+        final int count = x.length;
+
+        //doubled centers are integer
+        long minCenterX = Long.MAX_VALUE;
+        long minCenterY = Long.MAX_VALUE;
+        long maxCenterX = Long.MIN_VALUE;
+        long maxCenterY = Long.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            final long centerX = 2L * x[i] + width[i];
+            final long centerY = 2L * y[i] + height[i];
+            minCenterX = Math.min(minCenterX, centerX);
+            minCenterY = Math.min(minCenterY, centerY);
+            maxCenterX = Math.max(maxCenterX, centerX);
+            maxCenterY = Math.max(maxCenterY, centerY);
+        }
+
+        final long rangeX = Math.max(maxCenterX - minCenterX, 1);
+        final long rangeY = Math.max(maxCenterY - minCenterY, 1);
+
+        final long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            final int hilbertX = (int) ((2L * x[i] + width[i] - minCenterX) * (HILBERT_SIDE - 1) / rangeX);
+            final int hilbertY = (int) ((2L * y[i] + height[i] - minCenterY) * (HILBERT_SIDE - 1) / rangeY);
+            keys[i] = hilbertValue(hilbertX, hilbertY) << 32 | i;
+        }
+
+        Arrays.sort(keys);
+
+        return keys;
+    }
+
+    /**
+     * Calculates position of a grid cell on Hilbert curve.
+     *
+     * @param cellX cell x-coordinate, from 0 to {@link #HILBERT_SIDE} exclusive.
+     * @param cellY cell y-coordinate, from 0 to {@link #HILBERT_SIDE} exclusive.
+     * @return position on the curve.
+     */
+    static long hilbertValue(final int cellX, final int cellY) {
+        int x = cellX;
+        int y = cellY;
+        long value = 0;
+
+        for (int side = HILBERT_SIDE / 2; side > 0; side /= 2) {
+            final int rx = (x & side) > 0 ? 1 : 0;
+            final int ry = (y & side) > 0 ? 1 : 0;
+            value += (long) side * side * ((3 * rx) ^ ry);
+
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = HILBERT_SIDE - 1 - x;
+                    y = HILBERT_SIDE - 1 - y;
+                }
+
+                final int swap = x;
+                x = y;
+                y = swap;
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Visitor of rectangles found by {@link #nearest(long, long, NearestVisitor)}.
+     */
+    @FunctionalInterface
+    interface NearestVisitor {
+
+        /**
+         * Visits rectangle.
+         *
+         * @param index    rectangle index in source arrays.
+         * @param distance distance from the point to the rectangle.
+         * @return <code>true</code> to continue search, <code>false</code> to stop.
+         */
+        boolean visit(int index, double distance);
+    }
+
+    /**
+     * Binary min-heap of box positions by distance, on primitive arrays.
+     */
+    private static class DistanceHeap {
+
+        /**
+         * Distances of boxes in heap order.
+         */
+        private double[] distances = new double[64];
+
+        /**
+         * Positions of boxes in heap order.
+         */
+        private int[] positions = new int[64];
+
+        /**
+         * Number of boxes in heap.
+         */
+        private int size;
+
+        /**
+         * Adds box to heap.
+         *
+         * @param distance distance to box.
+         * @param position box position.
+         */
+        void push(final double distance, final int position) {
+            if (size == distances.length) {
+                distances = Arrays.copyOf(distances, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+
+            int child = size++;
+            while (child > 0) {
+                final int parent = (child - 1) / 2;
+                if (distances[parent] <= distance) {
+                    break;
+                }
+
+                distances[child] = distances[parent];
+                positions[child] = positions[parent];
+                child = parent;
+            }
+
+            distances[child] = distance;
+            positions[child] = position;
+        }
+
+        /**
+         * Removes the nearest box from heap.
+         *
+         * @return position of removed box.
+         */
+        int pop() {
+            final int top = positions[0];
+
+            final double distance = distances[--size];
+            final int position = positions[size];
+
+            int parent = 0;
+            while (true) {
+                int child = parent * 2 + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && distances[child + 1] < distances[child]) {
+                    child++;
+                }
+                if (distance <= distances[child]) {
+                    break;
+                }
+
+                distances[parent] = distances[child];
+                positions[parent] = positions[child];
+                parent = child;
+            }
+
+            distances[parent] = distance;
+            positions[parent] = position;
+
+            return top;
+        }
+    }
+}
@@ -1,14 +1,34 @@
 package test.widget.server.repository.impl;
 
+import org.hibernate.annotations.QueryHints;
 import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.lang.Nullable;
+import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQueryMode;
 import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetField;
+import test.widget.server.domain.WidgetStats;
 import test.widget.server.repository.WidgetRepository;
 
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
 
 /**
  * {@link WidgetRepository} implementation that stores objects in DB.
+ * <p/>
+ * Widgets with a part of fields are loaded by a tuple query, that selects only requested columns.
+ * Counts and aggregates are calculated by database, their results are cached if query cache is enabled.
  *
  * @author Mikhail Kondratev
  */
@@ -19,8 +39,15 @@ public class WidgetDatabaseRepository implements WidgetRepository {
      */
     private final SimpleJpaRepository<Widget, String> widgetSimpleJpaRepository;
 
-    public WidgetDatabaseRepository(final SimpleJpaRepository<Widget, String> widgetSimpleJpaRepository) {
+    /**
+     * Entity manager for projection queries.
+     */
+    private final EntityManager entityManager;
+
+    public WidgetDatabaseRepository(final SimpleJpaRepository<Widget, String> widgetSimpleJpaRepository,
+                                    final EntityManager entityManager) {
         this.widgetSimpleJpaRepository = widgetSimpleJpaRepository;
+        this.entityManager = entityManager;
     }
 
     @Override
@@ -44,4 +71,135 @@ public class WidgetDatabaseRepository implements WidgetRepository {
     public List<Widget> findAll() {
         return widgetSimpleJpaRepository.findAll();
     }
+
+    @Override
+    public List<Widget> findAll(final Set<WidgetField> fields) {
+        final List<WidgetField> storedFields = new ArrayList<>(fields.size());
+        for (final WidgetField field : fields) {
+            if (WidgetField.STORED.contains(field)) {
+                storedFields.add(field);
+            }
+        }
+
+        if (storedFields.isEmpty() || storedFields.size() == WidgetField.STORED.size()) {
+            return findAll();
+        }
+
+        final CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        final Root<Widget> root = query.from(Widget.class);
+
+        final List<Selection<?>> selections = new ArrayList<>(storedFields.size());
+        for (final WidgetField field : storedFields) {
+            selections.add(root.get(requireNonNull(field.getAttribute())));
+        }
+
+        query.multiselect(selections);
+
+        final List<Tuple> tuples = entityManager.createQuery(query).getResultList();
+        final List<Widget> widgets = new ArrayList<>(tuples.size());
+
+        for (final Tuple tuple : tuples) {
+            final Widget widget = new Widget();
+            for (int i = 0; i < storedFields.size(); i++) {
+                setField(widget, storedFields.get(i), tuple.get(i));
+            }
+
+            widgets.add(widget);
+        }
+
+        return widgets;
+    }
+
+    @Override
+    public long count() {
+        return widgetSimpleJpaRepository.count();
+    }
+
+    @Override
+    public long countInArea(final Area area, final AreaQueryMode mode) {
+        final String condition = mode == AreaQueryMode.INSIDE
+                ? " WHERE CAST(w.x AS long) >= :left AND CAST(w.y AS long) >= :top"
+                + " AND CAST(w.x AS long) + w.width <= :right AND CAST(w.y AS long) + w.height <= :bottom"
+                : " WHERE CAST(w.x AS long) <= :right AND CAST(w.y AS long) <= :bottom"
+                + " AND CAST(w.x AS long) + w.width >= :left AND CAST(w.y AS long) + w.height >= :top";
+
+        return entityManager.createQuery("SELECT COUNT(w) FROM Widget w" + condition, Long.class)
+                .setParameter("left", (long) area.getX())
+                .setParameter("top", (long) area.getY())
+                .setParameter("right", (long) area.getX() + area.getWidth())
+                .setParameter("bottom", (long) area.getY() + area.getHeight())
+                .setHint(QueryHints.CACHEABLE, true)
+                .getSingleResult();
+    }
+
+    @Override
+    public WidgetStats getStats() {
+        final Object[] result = entityManager.createQuery("SELECT COUNT(w), MIN(w.x), MIN(w.y),"
+                + " MAX(CAST(w.x AS long) + w.width), MAX(CAST(w.y AS long) + w.height), MIN(w.z), MAX(w.z)"
+                + " FROM Widget w", Object[].class)
+                .setHint(QueryHints.CACHEABLE, true)
+                .getSingleResult();
+
+        return new WidgetStats(((Number) result[0]).longValue(),
+                toInteger(result[1]), toInteger(result[2]), toLong(result[3]), toLong(result[4]),
+                toInteger(result[5]), toInteger(result[6]));
+    }
+
+    /**
+     * Converts nullable aggregate to integer.
+     *
+     * @param value aggregate value.
+     * @return integer value, or <code>null</code> if there is no value.
+     */
+    @Nullable
+    private static Integer toInteger(@Nullable final Object value) {
+        return value == null ? null : ((Number) value).intValue();
+    }
+
+    /**
+     * Converts nullable aggregate to long.
+     *
+     * @param value aggregate value.
+     * @return long value, or <code>null</code> if there is no value.
+     */
+    @Nullable
+    private static Long toLong(@Nullable final Object value) {
+        return value == null ? null : ((Number) value).longValue();
+    }
+
+    /**
+     * Sets loaded value of a stored field.
+     *
+     * @param widget widget to be filled.
+     * @param field  stored field.
+     * @param value  loaded value.
+     */
+    private static void setField(final Widget widget, final WidgetField field, final Object value) {
+        switch (field) {
+            case ID:
+                widget.setId((String) value);
+                break;
+            case X:
+                widget.setX((Integer) value);
+                break;
+            case Y:
+                widget.setY((Integer) value);
+                break;
+            case Z:
+                widget.setZ((Integer) value);
+                break;
+            case WIDTH:
+                widget.setWidth((Integer) value);
+                break;
+            case HEIGHT:
+                widget.setHeight((Integer) value);
+                break;
+            case LAST_MODIFIED:
+                widget.setLastModified((LocalDateTime) value);
+                break;
+            default:
+                throw new IllegalArgumentException("Field is not stored: " + field);
+        }
+    }
 }
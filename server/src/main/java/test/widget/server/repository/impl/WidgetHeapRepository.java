@@ -2,7 +2,10 @@ package test.widget.server.repository.impl;
 
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQueryMode;
 import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetStats;
 import test.widget.server.repository.WidgetRepository;
 
 import java.util.ArrayList;
@@ -45,4 +48,21 @@ public class WidgetHeapRepository implements WidgetRepository {
     public List<Widget> findAll() {
         return new ArrayList<>(widgets.values());
     }
+
+    @Override
+    public long count() {
+        return widgets.size();
+    }
+
+    @Override
+    public long countInArea(final Area area, final AreaQueryMode mode) {
+        return widgets.values().stream()
+                .filter(widget -> mode.matches(area, widget))
+                .count();
+    }
+
+    @Override
+    public WidgetStats getStats() {
+        return WidgetStats.of(widgets.values());
+    }
 }
@@ -0,0 +1,362 @@
+package test.widget.server.repository.impl;
+
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQueryMode;
+import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetField;
+import test.widget.server.domain.WidgetStats;
+import test.widget.server.repository.WidgetRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * {@link WidgetRepository} that holds widgets in memory and finds widgets in area by {@link PackedRTree}.
+ * <p/>
+ * Packed tree can't be modified, so it is built once from placements of all widgets, and rebuilt in background
+ * after specified number of widgets is written. Queries are served by the last built tree:
+ * widgets written since it was built are skipped in the tree and matched by their current placements instead.
+ *
+ * @author Mikhail Kondratev
+ */
+@Slf4j
+public class WidgetPackedRTreeHeapRepository implements WidgetRepository {
+
+    /**
+     * Comparator of widgets by z-index.
+     */
+    private static final Comparator<Widget> BY_Z = Comparator.comparingInt(Widget::getZ);
+
+    /**
+     * Widgets in this repository. Key - widget identifier, value - widget itself.
+     */
+    private final Map<String, Widget> widgets = new ConcurrentHashMap<>();
+
+    /**
+     * Number of widgets written since the last build, after which the tree is rebuilt.
+     */
+    private final int rebuildThreshold;
+
+    /**
+     * Executor for rebuilding the tree.
+     */
+    private final Executor rebuildExecutor;
+
+    /**
+     * Lock, which writes hold for marking a widget as written and storing it,
+     * and rebuild holds exclusively for starting to collect written widgets for the new tree.
+     */
+    private final ReadWriteLock buildLock = new ReentrantReadWriteLock();
+
+    /**
+     * Whether the tree is being rebuilt.
+     */
+    private final AtomicBoolean isRebuilding = new AtomicBoolean();
+
+    /**
+     * Last built tree.
+     */
+    private volatile Index index = new Index(new PackedRTree(new int[0], new int[0], new int[0], new int[0]),
+            new String[0], ConcurrentHashMap.newKeySet());
+
+    /**
+     * Identifiers of widgets written since the tree being rebuilt was started, or <code>null</code> if not rebuilding.
+     */
+    @Nullable
+    private volatile Set<String> pendingWritten;
+
+    /**
+     * Constructor of repository, rebuilding the tree in common pool.
+     *
+     * @param rebuildThreshold number of widgets written since the last build, after which the tree is rebuilt.
+     */
+    public WidgetPackedRTreeHeapRepository(final int rebuildThreshold) {
+        this(rebuildThreshold, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param rebuildThreshold number of widgets written since the last build, after which the tree is rebuilt.
+     * @param rebuildExecutor  executor for rebuilding the tree.
+     */
+    public WidgetPackedRTreeHeapRepository(final int rebuildThreshold, final Executor rebuildExecutor) {
+        if (rebuildThreshold < 1) {
+            throw new IllegalArgumentException("Rebuild threshold should be positive: " + rebuildThreshold);
+        }
+
+        this.rebuildThreshold = rebuildThreshold;
+        this.rebuildExecutor = rebuildExecutor;
+    }
+
+    @Override
+    public Optional<Widget> findById(final String id) {
+        return Optional.ofNullable(widgets.get(id));
+    }
+
+    @Override
+    @SneakyThrows(CloneNotSupportedException.class)
+    public void save(final Widget widget) {
+        final Widget cloned = widget.clone();
+        write(cloned.getId(), () -> widgets.put(cloned.getId(), cloned));
+    }
+
+    @Override
+    public void deleteById(final String id) {
+        write(id, () -> widgets.remove(id));
+    }
+
+    @Override
+    public List<Widget> findAll() {
+        return new ArrayList<>(widgets.values());
+    }
+
+    @Override
+    public boolean isSpatiallyIndexed() {
+        return true;
+    }
+
+    @Override
+    public List<Widget> findInArea(final Area area, final AreaQueryMode mode, final Set<WidgetField> fields) {
+        final List<Widget> found = new ArrayList<>();
+        find(area, mode, found::add);
+        found.sort(BY_Z);
+
+        return found;
+    }
+
+    @Override
+    public List<Widget> findNearest(final int x, final int y, final int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+
+        final Comparator<Widget> nearestFirst = WidgetRepository.nearestFirst(x, y);
+        final PriorityQueue<Widget> farthestFirst = new PriorityQueue<>(count + 1, nearestFirst.reversed());
+        final Consumer<Widget> offer = widget -> {
+            farthestFirst.add(widget);
+            if (farthestFirst.size() > count) {
+                farthestFirst.poll();
+            }
+        };
+
+        final Index current = index;
+        final Set<String> written = Set.copyOf(current.written);
+
+        for (final String id : written) {
+            Optional.ofNullable(widgets.get(id)).ifPresent(offer);
+        }
+
+        current.tree.nearest(x, y, (position, distance) -> {
+            if (farthestFirst.size() == count && distance > WidgetRepository.distance(farthestFirst.peek(), x, y)) {
+                return false;
+            }
+
+            final String id = current.ids[position];
+            if (!written.contains(id)) {
+                Optional.ofNullable(widgets.get(id)).ifPresent(offer);
+            }
+
+            return true;
+        });
+
+        final List<Widget> found = new ArrayList<>(farthestFirst);
+        found.sort(nearestFirst);
+
+        return found;
+    }
+
+    @Override
+    public long count() {
+        return widgets.size();
+    }
+
+    @Override
+    public long countInArea(final Area area, final AreaQueryMode mode) {
+        final long[] count = new long[1];
+        find(area, mode, widget -> count[0]++);
+
+        return count[0];
+    }
+
+    @Override
+    public WidgetStats getStats() {
+        return WidgetStats.of(widgets.values());
+    }
+
+    /**
+     * Finds widgets matching an area by the last built tree and among widgets written since it was built.
+     *
+     * @param area     filtering area, or {@link Area#EMPTY_AREA} for all widgets.
+     * @param mode     mode of matching widgets against the area.
+     * @param consumer consumer of found widgets.
+     */
+    private void find(final Area area, final AreaQueryMode mode, final Consumer<Widget> consumer) {
+        if (Area.EMPTY_AREA.equals(area)) {
+            widgets.values().forEach(consumer);
+            return;
+        }
+
+        final Index current = index;
+        final Set<String> written = Set.copyOf(current.written);
+
+        current.tree.search(area.getX(), area.getY(), (long) area.getX() + area.getWidth(), (long) area.getY() + area.getHeight(),
+                position -> {
+                    final String id = current.ids[position];
+                    if (!written.contains(id)) {
+                        accept(widgets.get(id), area, mode, consumer);
+                    }
+                });
+
+        for (final String id : written) {
+            accept(widgets.get(id), area, mode, consumer);
+        }
+    }
+
+    /**
+     * Passes widget to consumer, if it is present and matches an area.
+     *
+     * @param widget   widget to be checked, or <code>null</code> if it is deleted.
+     * @param area     filtering area.
+     * @param mode     mode of matching widgets against the area.
+     * @param consumer consumer of found widgets.
+     */
+    private static void accept(@Nullable final Widget widget, final Area area, final AreaQueryMode mode,
+                               final Consumer<Widget> consumer) {
+        if (widget != null && mode.matches(area, widget)) {
+            consumer.accept(widget);
+        }
+    }
+
+    /**
+     * Marks widget as written, so that queries don't rely on it's placement in the tree, and modifies widgets.
+     * Starts rebuilding the tree, if enough widgets are written since it was built.
+     *
+     * @param id           identifier of written widget.
+     * @param modification modification of widgets.
+     */
+    private void write(final String id, final Runnable modification) {
+        final Index current;
+
+        buildLock.readLock().lock();
+        try {
+            current = index;
+            current.written.add(id);
+
+            final Set<String> pending = pendingWritten;
+            if (pending != null) {
+                pending.add(id);
+            }
+
+            modification.run();
+        } finally {
+            buildLock.readLock().unlock();
+        }
+
+        if (current.written.size() >= rebuildThreshold && isRebuilding.compareAndSet(false, true)) {
+            try {
+                rebuildExecutor.execute(this::rebuild);
+            } catch (RejectedExecutionException e) {
+                log.warn("Packed R-tree rebuild rejected", e);
+                isRebuilding.set(false);
+            }
+        }
+    }
+
+    /**
+     * Builds the tree from placements of all widgets and replaces the last built tree with it.
+     * Widgets written after the build started are marked as written in the new tree.
+     */
+    private void rebuild() {
+        try {
+            final Set<String> written = ConcurrentHashMap.newKeySet();
+
+            buildLock.writeLock().lock();
+            try {
+                pendingWritten = written;
+            } finally {
+                buildLock.writeLock().unlock();
+            }
+
+            final Widget[] items = widgets.values().toArray(new Widget[0]);
+
+            final String[] ids = new String[items.length];
+            final int[] x = new int[items.length];
+            final int[] y = new int[items.length];
+            final int[] width = new int[items.length];
+            final int[] height = new int[items.length];
+
+            for (int i = 0; i < items.length; i++) {
+                ids[i] = items[i].getId();
+                x[i] = items[i].getX();
+                y[i] = items[i].getY();
+                width[i] = items[i].getWidth();
+                height[i] = items[i].getHeight();
+            }
+
+            final Index rebuilt = new Index(new PackedRTree(x, y, width, height), ids, written);
+
+            buildLock.writeLock().lock();
+            try {
+                index = rebuilt;
+                pendingWritten = null;
+            } finally {
+                buildLock.writeLock().unlock();
+            }
+
+            log.debug("Packed R-tree rebuilt with {} widgets", items.length);
+        } finally {
+            isRebuilding.set(false);
+        }
+    }
+
+    /**
+     * Built tree with identifiers of widgets written since it's build was started.
+     */
+    private static class Index {
+
+        /**
+         * Tree of widget placements at the time of the build.
+         */
+        private final PackedRTree tree;
+
+        /**
+         * Identifiers of widgets by their positions in the tree.
+         */
+        private final String[] ids;
+
+        /**
+         * Identifiers of widgets written since the build was started.
+         */
+        private final Set<String> written;
+
+        /**
+         * Constructor.
+         *
+         * @param tree    tree of widget placements.
+         * @param ids     identifiers of widgets by their positions in the tree.
+         * @param written identifiers of widgets written since the build was started.
+         */
+        Index(final PackedRTree tree, final String[] ids, final Set<String> written) {
+            this.tree = tree;
+            this.ids = ids;
+            this.written = written;
+        }
+    }
+}
@@ -0,0 +1,665 @@
+package test.widget.server.repository.impl;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import org.springframework.lang.Nullable;
+import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQueryMode;
+import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetField;
+import test.widget.server.domain.WidgetStats;
+import test.widget.server.repository.WidgetRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.DoublePredicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link WidgetRepository} that holds widgets in memory, partitioned into square tiles of the plane.
+ * <p/>
+ * Every tile has it's own widgets and lock, so that area queries and updates in different regions don't contend.
+ * Area queries lock only tiles overlapping the area, scan them in parallel and merge results by z-index.
+ * Tiles hold placements of widgets captured at save time, so that found widgets modified before they are saved
+ * are still matched by the placement, which tiles were chosen by.
+ * A widget spanning several tiles is held by each of them and is returned only by the tile,
+ * that contains the top-left corner of it's intersection with the query area.
+ * Widgets spanning more than {@link #MAX_TILES_PER_WIDGET} tiles are held in a separate tile,
+ * that is scanned by every query. Tiles left without widgets are removed.
+ *
+ * @author Mikhail Kondratev
+ */
+public class WidgetTiledHeapRepository implements WidgetRepository {
+
+    /**
+     * Max number of tiles holding one widget.
+     */
+    static final int MAX_TILES_PER_WIDGET = 16;
+
+    /**
+     * Comparator of widgets by z-index.
+     */
+    private static final Comparator<Widget> BY_Z = Comparator.comparingInt(Widget::getZ);
+
+    /**
+     * Comparator of placements by z-index.
+     */
+    private static final Comparator<Placement> PLACEMENTS_BY_Z = Comparator.comparing(Placement::getBounds, BY_Z);
+
+    /**
+     * Order of locking tiles: by coordinates, oversized tile last, so that concurrent operations never deadlock.
+     */
+    private static final Comparator<Tile> LOCKING_ORDER = Comparator.<Tile, Boolean>comparing(tile -> tile.oversized)
+            .thenComparingInt(tile -> tile.x)
+            .thenComparingInt(tile -> tile.y);
+
+    /**
+     * Side of a tile.
+     */
+    private final int tileSize;
+
+    /**
+     * Widgets in this repository. Key - widget identifier, value - widget itself.
+     */
+    private final Map<String, Widget> widgets = new ConcurrentHashMap<>();
+
+    /**
+     * Tiles holding widgets. Key - widget identifier, value - tiles, sorted in the order of locking.
+     */
+    private final Map<String, List<Tile>> widgetTiles = new ConcurrentHashMap<>();
+
+    /**
+     * Tiles of the plane. Key - tile coordinates packed by {@link #toKey(int, int)}, value - tile itself.
+     */
+    private final Map<Long, Tile> tiles = new ConcurrentHashMap<>();
+
+    /**
+     * Tile of widgets, spanning too many tiles.
+     */
+    private final Tile oversizedTile = new Tile(0, 0, true);
+
+    /**
+     * Constructor.
+     *
+     * @param tileSize side of a tile, at least 2, so that tile coordinates fit into integers.
+     */
+    public WidgetTiledHeapRepository(final int tileSize) {
+        if (tileSize < 2) {
+            throw new IllegalArgumentException("Tile size should be at least 2: " + tileSize);
+        }
+
+        this.tileSize = tileSize;
+    }
+
+    @Override
+    public Optional<Widget> findById(final String id) {
+        return Optional.ofNullable(widgets.get(id));
+    }
+
+    @Override
+    @SneakyThrows(CloneNotSupportedException.class)
+    public void save(final Widget widget) {
+        final Widget cloned = widget.clone();
+        final Placement placement = new Placement(cloned, widget.clone());
+        final String id = cloned.getId();
+
+        widgetTiles.compute(id, (key, previousTiles) -> {
+            while (true) {
+                final List<Tile> currentTiles = getTiles(placement.getBounds());
+                final List<Tile> lockedTiles = union(previousTiles, currentTiles);
+
+                lockedTiles.forEach(tile -> tile.lock.writeLock().lock());
+                try {
+                    //tile may be removed after it was got, but before it was locked
+                    if (currentTiles.stream().anyMatch(tile -> tile.removed)) {
+                        continue;
+                    }
+
+                    currentTiles.forEach(tile -> tile.placements.put(id, placement));
+
+                    if (previousTiles != null) {
+                        previousTiles.stream()
+                                .filter(tile -> !currentTiles.contains(tile))
+                                .forEach(tile -> tile.remove(id));
+                    }
+
+                    widgets.put(id, cloned);
+                } finally {
+                    lockedTiles.forEach(tile -> tile.lock.writeLock().unlock());
+                }
+
+                return currentTiles;
+            }
+        });
+    }
+
+    @Override
+    public void deleteById(final String id) {
+        widgetTiles.computeIfPresent(id, (key, previousTiles) -> {
+            previousTiles.forEach(tile -> tile.lock.writeLock().lock());
+            try {
+                previousTiles.forEach(tile -> tile.remove(id));
+                widgets.remove(id);
+            } finally {
+                previousTiles.forEach(tile -> tile.lock.writeLock().unlock());
+            }
+
+            return null;
+        });
+    }
+
+    @Override
+    public List<Widget> findAll() {
+        return new ArrayList<>(widgets.values());
+    }
+
+    @Override
+    public boolean isSpatiallyIndexed() {
+        return true;
+    }
+
+    @Override
+    public List<Widget> findInArea(final Area area, final AreaQueryMode mode, final Set<WidgetField> fields) {
+        if (Area.EMPTY_AREA.equals(area)) {
+            return widgets.values().stream()
+                    .sorted(BY_Z)
+                    .collect(Collectors.toList());
+        }
+
+        final List<Tile> lockedTiles = findTiles(area);
+
+        lockedTiles.forEach(tile -> tile.lock.readLock().lock());
+        try {
+            return mergeByZ(lockedTiles.parallelStream()
+                    .map(tile -> tile.find(area, mode))
+                    .collect(Collectors.toList()));
+        } finally {
+            lockedTiles.forEach(tile -> tile.lock.readLock().unlock());
+        }
+    }
+
+    @Override
+    public List<Widget> findNearest(final int x, final int y, final int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+
+        final Comparator<Placement> nearestFirst = Comparator.comparing(Placement::getBounds,
+                WidgetRepository.nearestFirst(x, y));
+        final PriorityQueue<Placement> farthestFirst = new PriorityQueue<>(count + 1, nearestFirst.reversed());
+        final Set<String> seen = new HashSet<>();
+        final Consumer<Tile> scan = tile -> tile.forEachPlacement(placement -> {
+            if (seen.add(placement.getWidget().getId())) {
+                farthestFirst.add(placement);
+                if (farthestFirst.size() > count) {
+                    farthestFirst.poll();
+                }
+            }
+        });
+        final DoublePredicate isFound = distance -> farthestFirst.size() == count
+                && WidgetRepository.distance(requireNonNull(farthestFirst.peek()).getBounds(), x, y) < distance;
+
+        scan.accept(oversizedTile);
+
+        final int centerX = toTile(x);
+        final int centerY = toTile(y);
+
+        //unseen widgets are held only by tiles outside of visited rings, so they are farther than the ring before last
+        int ring = 0;
+        for (; ring == 0 || (long) ring * 8 <= tiles.size(); ring++) {
+            if (isFound.test((double) Math.max(ring - 1, 0) * tileSize)) {
+                return toWidgets(farthestFirst, nearestFirst);
+            }
+
+            for (long tileX = (long) centerX - ring; tileX <= (long) centerX + ring; tileX++) {
+                final long step = tileX == (long) centerX - ring || tileX == (long) centerX + ring ? 1 : 2L * ring;
+                for (long tileY = (long) centerY - ring; tileY <= (long) centerY + ring; tileY += step) {
+                    if (tileX == (int) tileX && tileY == (int) tileY) {
+                        Optional.ofNullable(tiles.get(toKey((int) tileX, (int) tileY))).ifPresent(scan);
+                    }
+                }
+            }
+        }
+
+        //rings are larger than the number of tiles, so the rest of tiles are visited by distance
+        final int visitedRings = ring;
+        final List<Tile> remaining = tiles.values().stream()
+                .filter(tile -> Math.max(Math.abs((long) tile.x - centerX), Math.abs((long) tile.y - centerY)) >= visitedRings)
+                .sorted(Comparator.comparingDouble(tile -> tile.distance(x, y)))
+                .collect(Collectors.toList());
+
+        for (final Tile tile : remaining) {
+            if (isFound.test(tile.distance(x, y))) {
+                break;
+            }
+
+            scan.accept(tile);
+        }
+
+        return toWidgets(farthestFirst, nearestFirst);
+    }
+
+    @Override
+    public long count() {
+        return widgets.size();
+    }
+
+    @Override
+    public long countInArea(final Area area, final AreaQueryMode mode) {
+        if (Area.EMPTY_AREA.equals(area)) {
+            return widgets.size();
+        }
+
+        final List<Tile> lockedTiles = findTiles(area);
+
+        lockedTiles.forEach(tile -> tile.lock.readLock().lock());
+        try {
+            return lockedTiles.parallelStream()
+                    .mapToLong(tile -> tile.count(area, mode))
+                    .sum();
+        } finally {
+            lockedTiles.forEach(tile -> tile.lock.readLock().unlock());
+        }
+    }
+
+    @Override
+    public WidgetStats getStats() {
+        return WidgetStats.of(widgets.values());
+    }
+
+    /**
+     * @return number of tiles holding widgets, except the tile of widgets spanning too many tiles.
+     */
+    int getTilesCount() {
+        return tiles.size();
+    }
+
+    /**
+     * Gets tiles, that should hold specified widget, creating missing ones.
+     *
+     * @param widget widget.
+     * @return tiles sorted in the order of locking.
+     */
+    private List<Tile> getTiles(final Widget widget) {
+        final int left = toTile(widget.getX());
+        final int top = toTile(widget.getY());
+        final int right = toTile((long) widget.getX() + Math.max(widget.getWidth(), 0));
+        final int bottom = toTile((long) widget.getY() + Math.max(widget.getHeight(), 0));
+
+        if (((long) right - left + 1) * ((long) bottom - top + 1) > MAX_TILES_PER_WIDGET) {
+            return List.of(oversizedTile);
+        }
+
+        final List<Tile> found = new ArrayList<>();
+        for (int tileX = left; tileX <= right; tileX++) {
+            for (int tileY = top; tileY <= bottom; tileY++) {
+                final int x = tileX;
+                final int y = tileY;
+                found.add(tiles.computeIfAbsent(toKey(x, y), key -> new Tile(x, y, false)));
+            }
+        }
+
+        found.sort(LOCKING_ORDER);
+
+        return found;
+    }
+
+    /**
+     * Finds existing tiles overlapping specified area, and the tile of widgets spanning too many tiles.
+     *
+     * @param area area.
+     * @return tiles sorted in the order of locking.
+     */
+    private List<Tile> findTiles(final Area area) {
+        final int left = toTile(area.getX());
+        final int top = toTile(area.getY());
+        final int right = toTile((long) area.getX() + Math.max(area.getWidth(), 0));
+        final int bottom = toTile((long) area.getY() + Math.max(area.getHeight(), 0));
+
+        final List<Tile> found = new ArrayList<>();
+
+        if (((long) right - left + 1) * ((long) bottom - top + 1) > tiles.size()) {
+            for (final Tile tile : tiles.values()) {
+                if (tile.x >= left && tile.x <= right && tile.y >= top && tile.y <= bottom) {
+                    found.add(tile);
+                }
+            }
+        } else {
+            for (int tileX = left; tileX <= right; tileX++) {
+                for (int tileY = top; tileY <= bottom; tileY++) {
+                    final Tile tile = tiles.get(toKey(tileX, tileY));
+                    if (tile != null) {
+                        found.add(tile);
+                    }
+                }
+            }
+        }
+
+        found.sort(LOCKING_ORDER);
+        found.add(oversizedTile);
+
+        return found;
+    }
+
+    /**
+     * Converts coordinate to tile coordinate.
+     *
+     * @param coordinate plane coordinate.
+     * @return coordinate of the tile.
+     */
+    private int toTile(final long coordinate) {
+        return (int) Math.floorDiv(coordinate, tileSize);
+    }
+
+    /**
+     * Packs tile coordinates into a key.
+     *
+     * @param tileX tile x-coordinate.
+     * @param tileY tile y-coordinate.
+     * @return tile key.
+     */
+    private static long toKey(final int tileX, final int tileY) {
+        return (long) tileX << 32 | (tileY & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Unites two lists of tiles, keeping the order of locking.
+     *
+     * @param first  first tiles, or <code>null</code>.
+     * @param second second tiles.
+     * @return tiles of both lists, sorted in the order of locking.
+     */
+    private static List<Tile> union(@Nullable final List<Tile> first, final List<Tile> second) {
+        if (first == null || first.equals(second)) {
+            return second;
+        }
+
+        return Stream.concat(first.stream(), second.stream())
+                .distinct()
+                .sorted(LOCKING_ORDER)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Sorts found placements and gets their widgets.
+     *
+     * @param placements placements.
+     * @param order      order of placements.
+     * @return widgets of placements in specified order.
+     */
+    private static List<Widget> toWidgets(final Collection<Placement> placements, final Comparator<Placement> order) {
+        return placements.stream()
+                .sorted(order)
+                .map(Placement::getWidget)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Merges lists of placements sorted by z-index into one list of widgets sorted by z-index.
+     *
+     * @param sortedLists lists of placements sorted by z-index.
+     * @return merged list of widgets sorted by z-index.
+     */
+    private static List<Widget> mergeByZ(final List<List<Placement>> sortedLists) {
+        final PriorityQueue<PeekingIterator> heads = new PriorityQueue<>(Math.max(sortedLists.size(), 1),
+                Comparator.comparing(PeekingIterator::peek, PLACEMENTS_BY_Z));
+
+        int size = 0;
+        for (final List<Placement> list : sortedLists) {
+            size += list.size();
+            if (!list.isEmpty()) {
+                heads.add(new PeekingIterator(list.iterator()));
+            }
+        }
+
+        final List<Widget> merged = new ArrayList<>(size);
+        while (!heads.isEmpty()) {
+            final PeekingIterator head = heads.poll();
+            merged.add(head.next().getWidget());
+
+            if (head.hasNext()) {
+                heads.add(head);
+            }
+        }
+
+        return merged;
+    }
+
+    /**
+     * Tile of the plane with it's own widgets and lock.
+     */
+    private final class Tile {
+
+        /**
+         * Tile x-coordinate.
+         */
+        private final int x;
+
+        /**
+         * Tile y-coordinate.
+         */
+        private final int y;
+
+        /**
+         * Flag of tile holding widgets, spanning too many tiles.
+         */
+        private final boolean oversized;
+
+        /**
+         * Placements of widgets held by the tile. Key - widget identifier, value - placement.
+         */
+        private final Map<String, Placement> placements = new HashMap<>();
+
+        /**
+         * Lock for access to widgets of the tile.
+         */
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        /**
+         * Flag of tile removed from the plane, as it has no widgets left. Guarded by the write lock.
+         */
+        private boolean removed;
+
+        /**
+         * Constructor.
+         *
+         * @param x         tile x-coordinate.
+         * @param y         tile y-coordinate.
+         * @param oversized flag of tile holding widgets, spanning too many tiles.
+         */
+        private Tile(final int x, final int y, final boolean oversized) {
+            this.x = x;
+            this.y = y;
+            this.oversized = oversized;
+        }
+
+        /**
+         * Finds widgets of this tile matching an area, except widgets reported by other tiles.
+         * Should be called under read lock.
+         *
+         * @param area filtering area.
+         * @param mode mode of matching widgets against the area.
+         * @return placements of found widgets sorted by z-index.
+         */
+        private List<Placement> find(final Area area, final AreaQueryMode mode) {
+            final List<Placement> found = new ArrayList<>();
+
+            for (final Placement placement : placements.values()) {
+                if (isReported(area, mode, placement.getBounds())) {
+                    found.add(placement);
+                }
+            }
+
+            found.sort(PLACEMENTS_BY_Z);
+
+            return found;
+        }
+
+        /**
+         * Counts widgets of this tile matching an area, except widgets reported by other tiles.
+         * Should be called under read lock.
+         *
+         * @param area filtering area.
+         * @param mode mode of matching widgets against the area.
+         * @return number of found widgets.
+         */
+        private long count(final Area area, final AreaQueryMode mode) {
+            long count = 0;
+
+            for (final Placement placement : placements.values()) {
+                if (isReported(area, mode, placement.getBounds())) {
+                    count++;
+                }
+            }
+
+            return count;
+        }
+
+        /**
+         * Passes every placement of this tile to consumer under read lock.
+         *
+         * @param consumer consumer of placements.
+         */
+        private void forEachPlacement(final Consumer<Placement> consumer) {
+            lock.readLock().lock();
+            try {
+                placements.values().forEach(consumer);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Calculates distance from a point to this tile.
+         *
+         * @param pointX point x-coordinate.
+         * @param pointY point y-coordinate.
+         * @return euclidean distance, zero if point is inside the tile.
+         */
+        private double distance(final int pointX, final int pointY) {
+            return WidgetRepository.distance((long) x * tileSize, (long) y * tileSize,
+                    ((long) x + 1) * tileSize, ((long) y + 1) * tileSize, pointX, pointY);
+        }
+
+        /**
+         * Removes widget from this tile, and removes the tile from the plane, if it has no widgets left.
+         * Should be called under write lock.
+         *
+         * @param id widget identifier.
+         */
+        private void remove(final String id) {
+            placements.remove(id);
+
+            if (placements.isEmpty() && !oversized) {
+                removed = true;
+                tiles.remove(toKey(x, y), this);
+            }
+        }
+
+        /**
+         * Checks if a widget matches an area and should be reported by this tile.
+         *
+         * @param area   filtering area.
+         * @param mode   mode of matching widgets against the area.
+         * @param bounds placement of the widget.
+         * @return <code>true</code> if the widget should be reported by this tile.
+         */
+        private boolean isReported(final Area area, final AreaQueryMode mode, final Widget bounds) {
+            return mode.matches(area, bounds) && (oversized || isReferenceTile(area, bounds));
+        }
+
+        /**
+         * Checks if this tile contains the top-left corner of intersection of a widget and an area.
+         *
+         * @param area   filtering area.
+         * @param widget widget intersecting the area.
+         * @return <code>true</code> if the widget should be reported by this tile.
+         */
+        private boolean isReferenceTile(final Area area, final Widget widget) {
+            return toTile(Math.max(widget.getX(), area.getX())) == x
+                    && toTile(Math.max(widget.getY(), area.getY())) == y;
+        }
+    }
+
+    /**
+     * Widget with it's placement captured at save time.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    private static final class Placement {
+
+        /**
+         * Saved widget.
+         */
+        private final Widget widget;
+
+        /**
+         * Copy of the widget at save time, which is never modified.
+         */
+        private final Widget bounds;
+    }
+
+    /**
+     * Iterator, which next element can be read without advancing.
+     */
+    private static final class PeekingIterator implements Iterator<Placement> {
+
+        /**
+         * Source iterator.
+         */
+        private final Iterator<Placement> iterator;
+
+        /**
+         * Next element, or <code>null</code> if iteration is over.
+         */
+        @Nullable
+        private Placement next;
+
+        /**
+         * Constructor.
+         *
+         * @param iterator source iterator.
+         */
+        private PeekingIterator(final Iterator<Placement> iterator) {
+            this.iterator = iterator;
+            this.next = iterator.hasNext() ? iterator.next() : null;
+        }
+
+        /**
+         * @return next element without advancing.
+         */
+        private Placement peek() {
+            return requireNonNull(next);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Placement next() {
+            final Placement current = peek();
+            next = iterator.hasNext() ? iterator.next() : null;
+
+            return current;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package test.widget.server.service;
+
+import lombok.Getter;
+import test.widget.server.ServerConfigurationProperties;
+import test.widget.server.event.WidgetsChangedEvent;
+import test.widget.server.repository.WidgetRepository;
+import test.widget.server.repository.impl.WidgetHeapRepository;
+import test.widget.server.repository.impl.WidgetPackedRTreeHeapRepository;
+import test.widget.server.repository.impl.WidgetTiledHeapRepository;
+
+/**
+ * Independent set of widgets with it's own repository partition, z-order, lock, caches and subscriptions.
+ * <p/>
+ * Changes of widgets on a canvas are dispatched to listeners of this canvas only,
+ * so that modifications of one canvas never block or invalidate others.
+ *
+ * @author Mikhail Kondratev
+ */
+@Getter
+public class Canvas {
+
+    /**
+     * Canvas identifier.
+     */
+    private final String id;
+
+    /**
+     * Repository partition of the canvas.
+     */
+    private final WidgetRepository widgetRepository;
+
+    /**
+     * Cache of widgets found inside an area.
+     */
+    private final WidgetAreaCache widgetAreaCache;
+
+    /**
+     * Widget service of the canvas.
+     */
+    private final WidgetService widgetService;
+
+    /**
+     * Log of widget changes.
+     */
+    private final WidgetChangeLog widgetChangeLog;
+
+    /**
+     * Registry of subscriptions to widget changes.
+     */
+    private final WidgetSubscriptionRegistry widgetSubscriptionRegistry;
+
+    /**
+     * Time of the last access to the canvas, in milliseconds.
+     */
+    private volatile long lastAccessTime = System.currentTimeMillis();
+
+    /**
+     * Constructor of canvas, that wraps existing services.
+     *
+     * @param id                         canvas identifier.
+     * @param widgetRepository           repository partition of the canvas.
+     * @param widgetAreaCache            cache of widgets found inside an area.
+     * @param widgetService              widget service of the canvas.
+     * @param widgetChangeLog            log of widget changes.
+     * @param widgetSubscriptionRegistry registry of subscriptions to widget changes.
+     */
+    public Canvas(final String id,
+                  final WidgetRepository widgetRepository,
+                  final WidgetAreaCache widgetAreaCache,
+                  final WidgetService widgetService,
+                  final WidgetChangeLog widgetChangeLog,
+                  final WidgetSubscriptionRegistry widgetSubscriptionRegistry) {
+        this.id = id;
+        this.widgetRepository = widgetRepository;
+        this.widgetAreaCache = widgetAreaCache;
+        this.widgetService = widgetService;
+        this.widgetChangeLog = widgetChangeLog;
+        this.widgetSubscriptionRegistry = widgetSubscriptionRegistry;
+    }
+
+    /**
+     * Constructor of new canvas, that holds widgets in heap, partitioned into tiles if tile size is set,
+     * or indexed by packed R-tree if it is enabled.
+     *
+     * @param id                            canvas identifier.
+     * @param serverConfigurationProperties general server configuration properties.
+     * @param widgetFilteringService        widgets filtering service, shared by canvases.
+     */
+    public Canvas(final String id,
+                  final ServerConfigurationProperties serverConfigurationProperties,
+                  final WidgetFilteringService widgetFilteringService) {
+        this.id = id;
+        this.widgetRepository = createHeapRepository(serverConfigurationProperties);
+        this.widgetAreaCache = new WidgetAreaCache(serverConfigurationProperties);
+        this.widgetService = new WidgetService(widgetRepository, serverConfigurationProperties, widgetFilteringService,
+                widgetAreaCache, event -> onWidgetsChanged((WidgetsChangedEvent) event));
+        this.widgetChangeLog = new WidgetChangeLog(serverConfigurationProperties, widgetService);
+        this.widgetSubscriptionRegistry = new WidgetSubscriptionRegistry(serverConfigurationProperties);
+    }
+
+    /**
+     * Creates heap repository of a new canvas.
+     *
+     * @param serverConfigurationProperties general server configuration properties.
+     * @return tiled repository if tile size is set, packed R-tree repository if it is enabled, otherwise plain one.
+     */
+    private static WidgetRepository createHeapRepository(final ServerConfigurationProperties serverConfigurationProperties) {
+        if (serverConfigurationProperties.getTileSize() > 0) {
+            return new WidgetTiledHeapRepository(serverConfigurationProperties.getTileSize());
+        }
+
+        if (serverConfigurationProperties.isPackedIndexEnabled()) {
+            return new WidgetPackedRTreeHeapRepository(serverConfigurationProperties.getPackedIndexRebuildThreshold());
+        }
+
+        return new WidgetHeapRepository();
+    }
+
+    /**
+     * Marks canvas as accessed now.
+     */
+    public void touch() {
+        lastAccessTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Dispatches changes of canvas widgets to canvas listeners.
+     *
+     * @param event widgets changed event.
+     */
+    private void onWidgetsChanged(final WidgetsChangedEvent event) {
+        widgetAreaCache.onWidgetsChanged(event);
+        widgetChangeLog.onWidgetsChanged(event);
+        widgetSubscriptionRegistry.onWidgetsChanged(event);
+    }
+
+    /**
+     * Stops background delivery of canvas events.
+     */
+    void close() {
+        widgetSubscriptionRegistry.shutdown();
+    }
+}
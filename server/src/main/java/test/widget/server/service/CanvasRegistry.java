@@ -0,0 +1,194 @@
+package test.widget.server.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import test.widget.server.ServerConfigurationProperties;
+import test.widget.server.exception.CanvasNotFoundException;
+import test.widget.server.repository.WidgetRepository;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Registry of canvases, identified by path prefix of widget requests.
+ * <p/>
+ * Default canvas is backed by application repository and services. Other canvases are created on first write
+ * and hold widgets in heap, reads of unknown canvases don't create them. Canvases are checked for idleness at most once per
+ * {@link ServerConfigurationProperties#getCanvasIdleTimeout()}: idle canvases drop cached results,
+ * and idle canvases without widgets and subscriptions are removed. Canvas is checked and removed atomically
+ * with respect to accessing it, so a canvas accessed during the check is kept.
+ * Canvases with widgets are never removed, as heap partition is the only copy of their widgets.
+ *
+ * @author Mikhail Kondratev
+ */
+@Slf4j
+@Component
+public class CanvasRegistry {
+
+    /**
+     * General server configuration properties.
+     */
+    private final ServerConfigurationProperties serverConfigurationProperties;
+
+    /**
+     * Widgets filtering service, shared by canvases.
+     */
+    private final WidgetFilteringService widgetFilteringService;
+
+    /**
+     * Canvas backed by application repository and services.
+     */
+    private final Canvas defaultCanvas;
+
+    /**
+     * Created canvases. Key - canvas identifier, value - canvas itself.
+     */
+    private final Map<String, Canvas> canvases = new ConcurrentHashMap<>();
+
+    /**
+     * Time of the last check for idle canvases, in milliseconds.
+     */
+    private final AtomicLong lastEvictionTime = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Constructor.
+     *
+     * @param serverConfigurationProperties general server configuration properties.
+     * @param widgetFilteringService        widgets filtering service.
+     * @param widgetRepository              application widget repository.
+     * @param widgetAreaCache               application cache of widgets found inside an area.
+     * @param widgetService                 application widget service.
+     * @param widgetChangeLog               application log of widget changes.
+     * @param widgetSubscriptionRegistry    application registry of subscriptions to widget changes.
+     */
+    public CanvasRegistry(final ServerConfigurationProperties serverConfigurationProperties,
+                          final WidgetFilteringService widgetFilteringService,
+                          final WidgetRepository widgetRepository,
+                          final WidgetAreaCache widgetAreaCache,
+                          final WidgetService widgetService,
+                          final WidgetChangeLog widgetChangeLog,
+                          final WidgetSubscriptionRegistry widgetSubscriptionRegistry) {
+        this.serverConfigurationProperties = serverConfigurationProperties;
+        this.widgetFilteringService = widgetFilteringService;
+        this.defaultCanvas = new Canvas("", widgetRepository, widgetAreaCache, widgetService,
+                widgetChangeLog, widgetSubscriptionRegistry);
+    }
+
+    /**
+     * Gets existing canvas.
+     *
+     * @param id canvas identifier, or <code>null</code> for default canvas.
+     * @return canvas with specified identifier.
+     * @throws CanvasNotFoundException if canvas is not default and it is not created yet,
+     *                                 or database repository is enabled.
+     */
+    public Canvas getCanvas(@Nullable final String id) {
+        return getCanvas(id, false);
+    }
+
+    /**
+     * Gets canvas, creating it if it doesn't exist.
+     *
+     * @param id canvas identifier, or <code>null</code> for default canvas.
+     * @return canvas with specified identifier.
+     * @throws CanvasNotFoundException if canvas is not default and database repository is enabled.
+     */
+    public Canvas getOrCreateCanvas(@Nullable final String id) {
+        return getCanvas(id, true);
+    }
+
+    /**
+     * Gets canvas and marks it as accessed.
+     *
+     * @param id     canvas identifier, or <code>null</code> for default canvas.
+     * @param create whether canvas should be created, if it doesn't exist.
+     * @return canvas with specified identifier.
+     * @throws CanvasNotFoundException if canvas is not default and it doesn't exist and should not be created,
+     *                                 or database repository is enabled.
+     */
+    private Canvas getCanvas(@Nullable final String id, final boolean create) {
+        evictIdleCanvases(System.currentTimeMillis());
+
+        if (id == null || id.isEmpty()) {
+            return defaultCanvas;
+        }
+
+        if (serverConfigurationProperties.isDatabaseEnabled()) {
+            throw new CanvasNotFoundException(id);
+        }
+
+        final BiFunction<String, Canvas, Canvas> access = (key, canvas) -> {
+            final Canvas accessed = canvas != null ? canvas : new Canvas(key, serverConfigurationProperties, widgetFilteringService);
+            accessed.touch();
+
+            return accessed;
+        };
+
+        final Canvas canvas = create ? canvases.compute(id, access) : canvases.computeIfPresent(id, access);
+        if (canvas == null) {
+            throw new CanvasNotFoundException(id);
+        }
+
+        return canvas;
+    }
+
+    /**
+     * @return number of canvases, except default one.
+     */
+    public int getCanvasesCount() {
+        return canvases.size();
+    }
+
+    /**
+     * Drops cached results of idle canvases and removes idle canvases without widgets and subscriptions.
+     * Does nothing if the check was done less than idle timeout ago.
+     *
+     * @param now current time, in milliseconds.
+     */
+    void evictIdleCanvases(final long now) {
+        final long idleTimeout = TimeUnit.SECONDS.toMillis(serverConfigurationProperties.getCanvasIdleTimeout());
+        final long lastEviction = lastEvictionTime.get();
+
+        if (now - lastEviction < idleTimeout || !lastEvictionTime.compareAndSet(lastEviction, now)) {
+            return;
+        }
+
+        for (final String id : canvases.keySet()) {
+            final Canvas[] evicted = new Canvas[1];
+
+            canvases.computeIfPresent(id, (key, canvas) -> {
+                if (now - canvas.getLastAccessTime() < idleTimeout) {
+                    return canvas;
+                }
+
+                canvas.getWidgetAreaCache().clear();
+
+                if (canvas.getWidgetRepository().count() == 0
+                        && canvas.getWidgetSubscriptionRegistry().getSubscriptionsCount() == 0) {
+                    evicted[0] = canvas;
+                    return null;
+                }
+
+                return canvas;
+            });
+
+            if (evicted[0] != null) {
+                log.debug("Evicted idle canvas: {}", id);
+                evicted[0].close();
+            }
+        }
+    }
+
+    /**
+     * Stops background delivery of events of all canvases.
+     */
+    @PreDestroy
+    public void shutdown() {
+        canvases.values().forEach(Canvas::close);
+    }
+}
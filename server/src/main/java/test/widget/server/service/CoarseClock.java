@@ -0,0 +1,96 @@
+package test.widget.server.service;
+
+import lombok.Value;
+import org.springframework.lang.Nullable;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Clock of local date-time with millisecond precision, that doesn't allocate objects on every call.
+ * <p/>
+ * Offset of the time-zone is looked up once and cached until the next offset transition,
+ * so getting local time is just adding the cached offset to {@link System#currentTimeMillis()}.
+ *
+ * @author Mikhail Kondratev
+ */
+public class CoarseClock {
+
+    /**
+     * Rules of the time-zone.
+     */
+    private final ZoneRules zoneRules;
+
+    /**
+     * Offset valid for current time, or <code>null</code> if not looked up yet.
+     */
+    @Nullable
+    private volatile CachedOffset cachedOffset;
+
+    /**
+     * Constructor.
+     *
+     * @param zoneId time-zone of local date-time.
+     */
+    public CoarseClock(final ZoneId zoneId) {
+        this.zoneRules = zoneId.getRules();
+    }
+
+    /**
+     * Gets current local date-time as milliseconds since 1970-01-01T00:00.
+     *
+     * @return current local milliseconds.
+     */
+    public long currentLocalMillis() {
+        final long now = System.currentTimeMillis();
+
+        CachedOffset offset = cachedOffset;
+        if (offset == null || now < offset.getValidFrom() || now >= offset.getValidUntil()) {
+            offset = lookupOffset(now);
+            cachedOffset = offset;
+        }
+
+        return now + offset.getOffsetMillis();
+    }
+
+    /**
+     * Looks up offset of the time-zone and the period, during which it is valid.
+     *
+     * @param now current time in milliseconds.
+     * @return offset with it's validity period.
+     */
+    private CachedOffset lookupOffset(final long now) {
+        final Instant instant = Instant.ofEpochMilli(now);
+
+        final ZoneOffsetTransition previous = zoneRules.previousTransition(instant);
+        final ZoneOffsetTransition next = zoneRules.nextTransition(instant);
+
+        return new CachedOffset(zoneRules.getOffset(instant).getTotalSeconds() * 1000L,
+                previous == null ? Long.MIN_VALUE : previous.toEpochSecond() * 1000,
+                next == null ? Long.MAX_VALUE : next.toEpochSecond() * 1000);
+    }
+
+    /**
+     * Time-zone offset with it's validity period.
+     */
+    @Value
+    private static class CachedOffset {
+
+        /**
+         * Offset from UTC, in milliseconds.
+         */
+        long offsetMillis;
+
+        /**
+         * Start of the validity period, inclusive, in UTC milliseconds.
+         */
+        long validFrom;
+
+        /**
+         * End of the validity period, exclusive, in UTC milliseconds.
+         */
+        long validUntil;
+    }
+}
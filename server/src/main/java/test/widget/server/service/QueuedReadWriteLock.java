@@ -0,0 +1,446 @@
+package test.widget.server.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Read-write lock, which waiters are queued as futures, so that they can wait for the lock without blocking a thread.
+ * <p/>
+ * Lock is granted in the order of requests, so readers don't get ahead of a waiting writer.
+ * Holds are counted per thread: the holder of the write lock may acquire both locks again,
+ * the holder of the read lock may acquire the read lock again, but can't upgrade it to the write lock.
+ * Conditions are not supported.
+ *
+ * @author Mikhail Kondratev
+ */
+public class QueuedReadWriteLock implements ReadWriteLock {
+
+    /**
+     * Waiters for the lock, in the order of requests.
+     */
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+    /**
+     * Number of holders of the read lock.
+     */
+    private int readers;
+
+    /**
+     * Whether the write lock is held.
+     */
+    private boolean writing;
+
+    /**
+     * Hold of the current thread, or <code>null</code> if the thread doesn't hold the lock.
+     */
+    private final ThreadLocal<Hold> holds = new ThreadLocal<>();
+
+    /**
+     * Read lock.
+     */
+    private final Lock readLock = new QueuedLock(false);
+
+    /**
+     * Write lock.
+     */
+    private final Lock writeLock = new QueuedLock(true);
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    /**
+     * Executes operation on specified executor, once the lock is acquired, and releases the lock after it.
+     * No thread is blocked while waiting for the lock.
+     * If the lock is not acquired within specified timeout, operation is executed without the lock.
+     * <p/>
+     * Operation holds the lock on executor thread, so it may acquire the lock again as described above.
+     *
+     * @param exclusive whether write lock is required, otherwise read lock is acquired.
+     * @param timeout   max time to wait for the lock.
+     * @param unit      time unit of the timeout.
+     * @param operation operation to be executed.
+     * @param executor  executor for the operation.
+     * @param <T>       operation result type.
+     * @return future of operation result,
+     * completed exceptionally with {@link RejectedExecutionException} if executor rejected the operation.
+     */
+    public <T> CompletableFuture<T> executeAsync(final boolean exclusive,
+                                                 final long timeout,
+                                                 final TimeUnit unit,
+                                                 final Callable<T> operation,
+                                                 final Executor executor) {
+        final Waiter waiter = enqueue(exclusive);
+        if (!waiter.getFuture().isDone()) {
+            CompletableFuture.delayedExecutor(timeout, unit).execute(() -> {
+                if (cancel(waiter)) {
+                    waiter.getFuture().complete(false);
+                }
+            });
+        }
+
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        waiter.getFuture().thenAccept(isLocked -> {
+            try {
+                executor.execute(() -> {
+                    try {
+                        result.complete(callHolding(exclusive, isLocked, operation));
+                    } catch (Exception e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                if (isLocked) {
+                    release(exclusive);
+                }
+
+                result.completeExceptionally(e);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Calls operation on current thread holding the lock acquired for it, and releases the lock after it.
+     *
+     * @param exclusive whether write lock is acquired.
+     * @param isLocked  whether the lock was acquired, or waiting for it timed out.
+     * @param operation operation to be called.
+     * @param <T>       operation result type.
+     * @return operation result.
+     * @throws Exception if operation failed.
+     */
+    private <T> T callHolding(final boolean exclusive, final boolean isLocked, final Callable<T> operation) throws Exception {
+        if (!isLocked) {
+            return operation.call();
+        }
+
+        holds.set(new Hold(exclusive));
+        try {
+            return operation.call();
+        } finally {
+            holds.remove();
+            release(exclusive);
+        }
+    }
+
+    /**
+     * Acquires the lock again, if current thread already holds it.
+     *
+     * @param exclusive whether write lock is requested.
+     * @return <code>true</code> if current thread already holds the lock and the hold is counted.
+     * @throws IllegalStateException if write lock is requested by a holder of read lock.
+     */
+    private boolean enterHeld(final boolean exclusive) {
+        final Hold hold = holds.get();
+        if (hold == null) {
+            return false;
+        }
+
+        if (exclusive && !hold.exclusive) {
+            throw new IllegalStateException("Read lock can't be upgraded to write lock");
+        }
+
+        hold.count++;
+
+        return true;
+    }
+
+    /**
+     * Releases one hold of current thread, and the lock itself after the last one.
+     *
+     * @throws IllegalMonitorStateException if current thread doesn't hold the lock.
+     */
+    private void exit() {
+        final Hold hold = holds.get();
+        if (hold == null) {
+            throw new IllegalMonitorStateException("Lock is not held by current thread");
+        }
+
+        if (--hold.count == 0) {
+            holds.remove();
+            release(hold.exclusive);
+        }
+    }
+
+    /**
+     * Acquires the lock, if it is available and nobody waits for it.
+     *
+     * @param exclusive whether write lock is requested.
+     * @return <code>true</code> if the lock is acquired.
+     */
+    private synchronized boolean tryAcquire(final boolean exclusive) {
+        if (!waiters.isEmpty() || !isAvailable(exclusive)) {
+            return false;
+        }
+
+        take(exclusive);
+
+        return true;
+    }
+
+    /**
+     * Acquires the lock, if it is available and nobody waits for it, otherwise adds a waiter to the queue.
+     *
+     * @param exclusive whether write lock is requested.
+     * @return waiter, which future is completed with <code>true</code>, once the lock is acquired.
+     */
+    private synchronized Waiter enqueue(final boolean exclusive) {
+        final Waiter waiter = new Waiter(exclusive);
+
+        if (tryAcquire(exclusive)) {
+            waiter.getFuture().complete(true);
+        } else {
+            waiters.add(waiter);
+        }
+
+        return waiter;
+    }
+
+    /**
+     * Removes waiter from the queue, unless the lock is already granted to it.
+     *
+     * @param waiter waiter to be removed.
+     * @return <code>true</code> if waiter was removed, <code>false</code> if the lock is granted to it.
+     */
+    private boolean cancel(final Waiter waiter) {
+        final List<Waiter> granted;
+        synchronized (this) {
+            if (!waiters.remove(waiter)) {
+                return false;
+            }
+
+            granted = grantWaiting();
+        }
+
+        complete(granted);
+
+        return true;
+    }
+
+    /**
+     * Releases the lock and grants it to the waiters, which can hold it now.
+     *
+     * @param exclusive whether write lock is released.
+     */
+    private void release(final boolean exclusive) {
+        final List<Waiter> granted;
+        synchronized (this) {
+            if (exclusive) {
+                writing = false;
+            } else {
+                readers--;
+            }
+
+            granted = grantWaiting();
+        }
+
+        complete(granted);
+    }
+
+    /**
+     * Grants the lock to the waiters from the head of the queue, while it's available for them.
+     * Futures of the waiters are completed by the caller outside of synchronization.
+     *
+     * @return waiters, which the lock is granted to.
+     */
+    private List<Waiter> grantWaiting() {
+        List<Waiter> granted = List.of();
+
+        while (!waiters.isEmpty() && isAvailable(waiters.element().isExclusive())) {
+            final Waiter waiter = waiters.remove();
+            take(waiter.isExclusive());
+
+            if (granted.isEmpty()) {
+                granted = new ArrayList<>();
+            }
+            granted.add(waiter);
+        }
+
+        return granted;
+    }
+
+    /**
+     * Completes futures of waiters, which the lock is granted to.
+     *
+     * @param granted waiters, which the lock is granted to.
+     */
+    private static void complete(final List<Waiter> granted) {
+        for (final Waiter waiter : granted) {
+            waiter.getFuture().complete(true);
+        }
+    }
+
+    /**
+     * Checks, if the lock can be acquired now.
+     *
+     * @param exclusive whether write lock is requested.
+     * @return <code>true</code> if the lock is available.
+     */
+    private boolean isAvailable(final boolean exclusive) {
+        return !writing && (!exclusive || readers == 0);
+    }
+
+    /**
+     * Marks the lock as acquired.
+     *
+     * @param exclusive whether write lock is acquired.
+     */
+    private void take(final boolean exclusive) {
+        if (exclusive) {
+            writing = true;
+        } else {
+            readers++;
+        }
+    }
+
+    /**
+     * Read or write lock, acquired by current thread.
+     */
+    private class QueuedLock implements Lock {
+
+        /**
+         * Whether it is the write lock.
+         */
+        private final boolean exclusive;
+
+        /**
+         * Constructor.
+         *
+         * @param exclusive whether it is the write lock.
+         */
+        QueuedLock(final boolean exclusive) {
+            this.exclusive = exclusive;
+        }
+
+        @Override
+        public void lock() {
+            if (enterHeld(exclusive)) {
+                return;
+            }
+
+            enqueue(exclusive).getFuture().join();
+            holds.set(new Hold(exclusive));
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            tryLock(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (enterHeld(exclusive)) {
+                return true;
+            }
+
+            if (!tryAcquire(exclusive)) {
+                return false;
+            }
+
+            holds.set(new Hold(exclusive));
+
+            return true;
+        }
+
+        @Override
+        @SneakyThrows(ExecutionException.class)
+        public boolean tryLock(final long time, final TimeUnit unit) throws InterruptedException {
+            if (enterHeld(exclusive)) {
+                return true;
+            }
+
+            final Waiter waiter = enqueue(exclusive);
+            try {
+                waiter.getFuture().get(time, unit);
+            } catch (TimeoutException e) {
+                if (cancel(waiter)) {
+                    return false;
+                }
+
+                waiter.getFuture().join();
+            } catch (InterruptedException e) {
+                if (!cancel(waiter)) {
+                    waiter.getFuture().join();
+                    release(exclusive);
+                }
+
+                throw e;
+            }
+
+            holds.set(new Hold(exclusive));
+
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            exit();
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("Conditions are not supported");
+        }
+    }
+
+    /**
+     * Request for the lock.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    private static class Waiter {
+
+        /**
+         * Whether write lock is requested.
+         */
+        private final boolean exclusive;
+
+        /**
+         * Future completed with <code>true</code> once the lock is acquired,
+         * or with <code>false</code> if waiting for it timed out.
+         */
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+    }
+
+    /**
+     * Lock held by a thread.
+     */
+    @RequiredArgsConstructor
+    private static class Hold {
+
+        /**
+         * Whether write lock is held.
+         */
+        private final boolean exclusive;
+
+        /**
+         * Number of acquisitions not released yet.
+         */
+        private int count = 1;
+    }
+}
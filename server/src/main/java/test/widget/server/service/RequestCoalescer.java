@@ -0,0 +1,107 @@
+package test.widget.server.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces concurrent identical requests, so that they share one in-flight computation and it's result.
+ * <p/>
+ * First caller with a key computes the result, callers with an equal key arriving before the computation
+ * is finished wait for it and receive the same result object. Result is not retained after computation.
+ *
+ * @param <K> request key type, should be immutable.
+ * @param <V> result type.
+ * @author Mikhail Kondratev
+ */
+public class RequestCoalescer<K, V> {
+
+    /**
+     * Computations in progress. Key - request key, value - future result of the computation.
+     */
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Computes result for specified key, or waits for the computation already started for an equal key.
+     *
+     * @param key         request key.
+     * @param computation computation of the result.
+     * @return computed result, shared between all callers with equal key.
+     * @throws InterruptedException if the thread was interrupted.
+     */
+    public V execute(final K key, final Computation<V> computation) throws InterruptedException {
+        while (true) {
+            final CompletableFuture<V> future = new CompletableFuture<>();
+            final CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+
+            if (existing == null) {
+                return compute(key, future, computation);
+            }
+
+            try {
+                return existing.get();
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+
+                //computing thread was interrupted, this one should try to compute the result itself.
+            }
+        }
+    }
+
+    /**
+     * Runs computation and completes the future with it's result.
+     *
+     * @param key         request key.
+     * @param future      future registered for the key.
+     * @param computation computation of the result.
+     * @return computed result.
+     * @throws InterruptedException if the thread was interrupted.
+     */
+    private V compute(final K key, final CompletableFuture<V> future, final Computation<V> computation)
+            throws InterruptedException {
+        try {
+            final V result = computation.compute();
+            future.complete(result);
+
+            return result;
+        } catch (final Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * @return number of computations in progress.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Computation of a request result.
+     *
+     * @param <V> result type.
+     */
+    @FunctionalInterface
+    public interface Computation<V> {
+
+        /**
+         * Computes the result.
+         *
+         * @return computed result.
+         * @throws InterruptedException if the thread was interrupted.
+         */
+        V compute() throws InterruptedException;
+    }
+}
@@ -0,0 +1,242 @@
+package test.widget.server.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.SneakyThrows;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import test.widget.server.ServerConfigurationProperties;
+import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQuery;
+import test.widget.server.domain.Widget;
+import test.widget.server.event.WidgetChange;
+import test.widget.server.event.WidgetsChangedEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of widgets found inside an area.
+ * <p/>
+ * Entries are keyed by area, query mode and loaded fields, so that widgets with a part of fields are never returned for full queries.
+ * On widget change only entries whose area intersects old or new bounds of the changed widget are dropped.
+ * Cache is disabled unless {@link ServerConfigurationProperties#isResultCacheEnabled()} is set,
+ * because widgets saved directly into {@link test.widget.server.repository.WidgetRepository}
+ * bypass invalidation.
+ * <p/>
+ * Copies of widgets are cached, as heap repository returns it's own widgets, which are modified in place
+ * before the change is saved and cached entries are invalidated.
+ *
+ * @author Mikhail Kondratev
+ */
+@Component
+public class WidgetAreaCache implements MeterBinder {
+
+    /**
+     * General server configuration properties.
+     */
+    private final ServerConfigurationProperties serverConfigurationProperties;
+
+    /**
+     * Cached widgets. Key - area query, value - widgets inside the area sorted by z-index.
+     */
+    private final Map<AreaQuery, List<Widget>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Invalidation counter.
+     * Result computed before an invalidation must not be put into the cache.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Lock for making put and invalidation mutually exclusive.
+     */
+    private final Lock lock = new ReentrantLock();
+
+    /**
+     * Cache hits count.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * Cache misses count.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param serverConfigurationProperties general server configuration properties.
+     */
+    public WidgetAreaCache(final ServerConfigurationProperties serverConfigurationProperties) {
+        this.serverConfigurationProperties = serverConfigurationProperties;
+    }
+
+    /**
+     * @return <code>true</code> if cache is enabled.
+     */
+    public boolean isEnabled() {
+        return serverConfigurationProperties.isResultCacheEnabled();
+    }
+
+    /**
+     * Gets current cache generation.
+     * Should be called before loading widgets and passed to {@link #put(AreaQuery, List, long)}.
+     *
+     * @return current cache generation.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Finds cached widgets for specified query.
+     *
+     * @param query area query.
+     * @return cached widgets sorted by z-index, or {@link Optional#empty()} if there is no entry for the query.
+     */
+    public Optional<List<Widget>> get(final AreaQuery query) {
+        final List<Widget> widgets = entries.get(query);
+
+        if (widgets == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        hits.incrementAndGet();
+        return Optional.of(widgets);
+    }
+
+    /**
+     * Puts copies of widgets into the cache, if no invalidation happened since specified generation.
+     *
+     * @param query      area query.
+     * @param widgets    widgets inside the area sorted by z-index.
+     * @param generation cache generation obtained before widgets were loaded.
+     */
+    public void put(final AreaQuery query, final List<Widget> widgets, final long generation) {
+        lock.lock();
+        try {
+            if (this.generation.get() != generation) {
+                return;
+            }
+
+            final Iterator<AreaQuery> iterator = entries.keySet().iterator();
+            while (entries.size() >= serverConfigurationProperties.getResultCacheMaxSize() && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+
+            final Area area = query.getArea();
+            entries.put(new AreaQuery(new Area(area.getX(), area.getY(), area.getWidth(), area.getHeight()),
+                    query.getMode(), Set.copyOf(query.getFields())), copyOf(widgets));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Creates unmodifiable list of widget copies, keeping the order.
+     *
+     * @param widgets widgets to be copied.
+     * @return copies of widgets.
+     */
+    @SneakyThrows(CloneNotSupportedException.class)
+    private static List<Widget> copyOf(final List<Widget> widgets) {
+        final List<Widget> copies = new ArrayList<>(widgets.size());
+        for (final Widget widget : widgets) {
+            copies.add(widget.clone());
+        }
+
+        return Collections.unmodifiableList(copies);
+    }
+
+    /**
+     * Drops entries affected by changed widgets.
+     *
+     * @param event widgets changed event.
+     */
+    @EventListener
+    public void onWidgetsChanged(final WidgetsChangedEvent event) {
+        lock.lock();
+        try {
+            generation.incrementAndGet();
+
+            for (final WidgetChange change : event.getChanges()) {
+                invalidate(change.getPrevious());
+                invalidate(change.getCurrent());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops all entries, e.g. to release memory of an idle canvas.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            generation.incrementAndGet();
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops entries whose area intersects specified widget.
+     *
+     * @param widget changed widget state.
+     */
+    private void invalidate(@Nullable final Widget widget) {
+        if (widget == null) {
+            return;
+        }
+
+        entries.keySet().removeIf(query -> query.getArea().intersects(widget));
+    }
+
+    /**
+     * @return cache hits count.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return cache misses count.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        FunctionCounter.builder("widget.area.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .description("Number of area queries answered from cache")
+                .register(registry);
+
+        FunctionCounter.builder("widget.area.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .description("Number of area queries not found in cache")
+                .register(registry);
+
+        Gauge.builder("widget.area.cache.size", entries, Map::size)
+                .description("Number of cached areas")
+                .register(registry);
+    }
+}
@@ -0,0 +1,163 @@
+package test.widget.server.service;
+
+import lombok.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import test.widget.server.ServerConfigurationProperties;
+import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetChanges;
+import test.widget.server.event.WidgetChange;
+import test.widget.server.event.WidgetsChangedEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Bounded in-memory log of widget changes.
+ * <p/>
+ * Holds up to {@link ServerConfigurationProperties#getChangeLogCapacity()} latest changes,
+ * older changes are dropped and requests for them should be answered with full resync.
+ *
+ * @author Mikhail Kondratev
+ */
+@Component
+public class WidgetChangeLog {
+
+    /**
+     * General server configuration properties.
+     */
+    private final ServerConfigurationProperties serverConfigurationProperties;
+
+    /**
+     * Logged changes in the order of versions.
+     */
+    private final Deque<Entry> entries = new ArrayDeque<>();
+
+    /**
+     * Lock for concurrent access to entries.
+     */
+    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+
+    /**
+     * All changes with version greater than this one are present in the log.
+     */
+    private long oldestVersion;
+
+    /**
+     * Version of the latest logged change.
+     */
+    private long latestVersion;
+
+    /**
+     * Constructor.
+     *
+     * @param serverConfigurationProperties general server configuration properties.
+     * @param widgetService                 widget service, which version the log starts with.
+     */
+    public WidgetChangeLog(final ServerConfigurationProperties serverConfigurationProperties,
+                           final WidgetService widgetService) {
+        this.serverConfigurationProperties = serverConfigurationProperties;
+        this.oldestVersion = widgetService.getVersion();
+        this.latestVersion = oldestVersion;
+    }
+
+    /**
+     * Appends changes to the log, dropping the oldest ones if capacity is exceeded.
+     *
+     * @param event widgets changed event.
+     */
+    @EventListener
+    public void onWidgetsChanged(final WidgetsChangedEvent event) {
+        readWriteLock.writeLock().lock();
+        try {
+            for (final WidgetChange change : event.getChanges()) {
+                final Widget widget = change.getCurrent() != null ? change.getCurrent() : requireNonNull(change.getPrevious());
+                entries.addLast(new Entry(event.getVersion(), requireNonNull(widget.getId()), change.getCurrent()));
+            }
+
+            latestVersion = event.getVersion();
+
+            while (entries.size() > serverConfigurationProperties.getChangeLogCapacity()) {
+                oldestVersion = entries.removeFirst().getVersion();
+            }
+        } finally {
+            readWriteLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets widgets changed since specified version.
+     * Widget changed several times is returned once, in it's latest state.
+     *
+     * @param since version, which changes are already known.
+     * @return changes since specified version,
+     * or {@link Optional#empty()} if the version is unknown or it's changes are already dropped.
+     */
+    public Optional<WidgetChanges> getChangesSince(final long since) {
+        readWriteLock.readLock().lock();
+        try {
+            if (since < oldestVersion || since > latestVersion) {
+                return Optional.empty();
+            }
+
+            final Map<String, Entry> latestEntries = new LinkedHashMap<>();
+            final Iterator<Entry> iterator = entries.descendingIterator();
+            while (iterator.hasNext()) {
+                final Entry entry = iterator.next();
+                if (entry.getVersion() <= since) {
+                    break;
+                }
+
+                latestEntries.putIfAbsent(entry.getWidgetId(), entry);
+            }
+
+            final List<Widget> updated = new ArrayList<>();
+            final List<String> deleted = new ArrayList<>();
+            for (final Entry entry : latestEntries.values()) {
+                if (entry.getWidget() == null) {
+                    deleted.add(entry.getWidgetId());
+                } else {
+                    updated.add(entry.getWidget());
+                }
+            }
+
+            return Optional.of(new WidgetChanges(latestVersion, false, updated, deleted));
+        } finally {
+            readWriteLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Logged change of a single widget.
+     */
+    @Value
+    private static class Entry {
+
+        /**
+         * Canvas version of the change.
+         */
+        long version;
+
+        /**
+         * Changed widget identifier.
+         */
+        String widgetId;
+
+        /**
+         * Widget state after the change, or <code>null</code> if widget was deleted.
+         */
+        @Nullable
+        Widget widget;
+    }
+}
@@ -1,9 +1,15 @@
 package test.widget.server.service;
 
 import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQueryMode;
 import test.widget.server.domain.Widget;
+import test.widget.server.repository.WidgetRepository;
 
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
 
 /**
  * Widgets filtering service interface.
@@ -20,5 +26,79 @@ public interface WidgetFilteringService {
      * @param area    filtering widgets area.
      * @return Set of widgets that fully fit inside the area.
      */
-    Collection<Widget> filterWidgetsInsideArea(Collection<Widget> widgets, final Area area);
+    default Collection<Widget> filterWidgetsInsideArea(final Collection<Widget> widgets, final Area area) {
+        return filterWidgets(widgets, area, AreaQueryMode.INSIDE);
+    }
+
+    /**
+     * Return widgets filtered to match an area in specified mode.
+     *
+     * @param widgets widgets to be filtered.
+     * @param area    filtering widgets area.
+     * @param mode    mode of matching widgets against the area.
+     * @return widgets that match the area.
+     * @see AreaQueryMode#matches(Area, Widget)
+     */
+    Collection<Widget> filterWidgets(Collection<Widget> widgets, Area area, AreaQueryMode mode);
+
+    /**
+     * Return widgets under a point, the topmost first.
+     * Widget edges are included.
+     * <p/>
+     * Default implementation keeps the topmost widgets under the point in a bounded heap, instead of sorting all of them.
+     *
+     * @param widgets widgets to be searched.
+     * @param x       point x-coordinate.
+     * @param y       point y-coordinate.
+     * @param limit   max number of widgets to be returned.
+     * @return widgets under the point, sorted by z-index, descending.
+     */
+    default List<Widget> findWidgetsAtPoint(final Collection<Widget> widgets, final int x, final int y, final int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+
+        final Comparator<Widget> lowestFirst = Comparator.comparingInt(Widget::getZ);
+
+        final PriorityQueue<Widget> topmost = new PriorityQueue<>(limit + 1, lowestFirst);
+        for (final Widget widget : filterWidgets(widgets, new Area(x, y, 0, 0), AreaQueryMode.INTERSECTS)) {
+            topmost.add(widget);
+            if (topmost.size() > limit) {
+                topmost.poll();
+            }
+        }
+
+        return topmost.stream()
+                .sorted(lowestFirst.reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Return widgets nearest to a point, the nearest first.
+     * Widgets at equal distance are ordered by z-index, descending.
+     * <p/>
+     * Default implementation scans all widgets, keeping the nearest ones in a bounded heap.
+     *
+     * @param widgets widgets to be searched.
+     * @param x       point x-coordinate.
+     * @param y       point y-coordinate.
+     * @param count   max number of widgets to be returned.
+     * @return nearest widgets, sorted by distance, ascending.
+     * @see #distance(Widget, int, int)
+     */
+    default List<Widget> findNearestWidgets(final Collection<Widget> widgets, final int x, final int y, final int count) {
+        return WidgetRepository.findNearest(widgets, x, y, count);
+    }
+
+    /**
+     * Calculates distance from a point to the nearest point of a widget, zero if point is under the widget.
+     *
+     * @param widget widget.
+     * @param x      point x-coordinate.
+     * @param y      point y-coordinate.
+     * @return euclidean distance.
+     */
+    static double distance(final Widget widget, final int x, final int y) {
+        return WidgetRepository.distance(widget, x, y);
+    }
 }
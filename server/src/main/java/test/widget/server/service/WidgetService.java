@@ -1,23 +1,47 @@
 package test.widget.server.service;
 
+import lombok.SneakyThrows;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import test.widget.server.ServerConfigurationProperties;
 import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQuery;
+import test.widget.server.domain.AreaQueryMode;
 import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetChanges;
+import test.widget.server.domain.WidgetField;
+import test.widget.server.domain.WidgetStats;
+import test.widget.server.event.WidgetChange;
+import test.widget.server.event.WidgetsChangedEvent;
+import test.widget.server.exception.ReadOnlyReplicaException;
 import test.widget.server.exception.WidgetNotFoundException;
 import test.widget.server.repository.WidgetRepository;
 
-import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 import static java.util.Objects.requireNonNull;
 
@@ -25,12 +49,20 @@ import static java.util.Objects.requireNonNull;
  * Service with basic operations with widgets.
  * <p>
  * Uses {@link UUID#randomUUID()} as an id when creating new widget.
+ * Publishes {@link WidgetsChangedEvent} after each modification.
+ * Queries run in read-only transactions, so loaded entities are not dirty-checked and may be read from a replica.
  *
  * @author Mikhail Kondratev
  */
 @Component
 public class WidgetService {
 
+    /**
+     * Fields, that are always loaded for area queries, as they are needed for filtering and sorting.
+     */
+    private static final Set<WidgetField> AREA_QUERY_FIELDS = Collections.unmodifiableSet(EnumSet.of(
+            WidgetField.ID, WidgetField.X, WidgetField.Y, WidgetField.Z, WidgetField.WIDTH, WidgetField.HEIGHT));
+
     /**
      * Widget repository.
      */
@@ -42,28 +74,65 @@ public class WidgetService {
     private final ServerConfigurationProperties serverConfigurationProperties;
 
     /**
-     * Lock for concurrent access to widgets.
+     * Lock for concurrent access to widgets, which can also be waited for without blocking a thread.
      */
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    private final QueuedReadWriteLock readWriteLock = new QueuedReadWriteLock();
 
     /**
      * Service for filtering widgets inside an area.
      */
     private final WidgetFilteringService widgetFilterService;
 
+    /**
+     * Cache of widgets found inside an area.
+     */
+    private final WidgetAreaCache widgetAreaCache;
+
+    /**
+     * Publisher for widget change events.
+     */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Coalescer of concurrent identical area queries.
+     */
+    private final RequestCoalescer<AreaQuery, Collection<Widget>> areaQueryCoalescer = new RequestCoalescer<>();
+
+    /**
+     * Canvas version, incremented after every modification of widgets.
+     * Starts from current time in microseconds, so that versions issued before server restart are lower.
+     */
+    private final AtomicLong version = new AtomicLong(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+
+    /**
+     * Lock for publishing events in the order of versions.
+     */
+    private final Lock publishLock = new ReentrantLock();
+
+    /**
+     * Clock for modification time of widgets.
+     */
+    private final CoarseClock clock = new CoarseClock(ZoneId.systemDefault());
+
     /**
      * Constructor.
      *
      * @param widgetRepository              widget repository.
      * @param serverConfigurationProperties general server configuration properties.
      * @param widgetFilterService           widgets filtering service.
+     * @param widgetAreaCache               cache of widgets found inside an area.
+     * @param eventPublisher                publisher for widget change events.
      */
     public WidgetService(final WidgetRepository widgetRepository,
                          final ServerConfigurationProperties serverConfigurationProperties,
-                         final WidgetFilteringService widgetFilterService) {
+                         final WidgetFilteringService widgetFilterService,
+                         final WidgetAreaCache widgetAreaCache,
+                         final ApplicationEventPublisher eventPublisher) {
         this.widgetRepository = widgetRepository;
         this.serverConfigurationProperties = serverConfigurationProperties;
         this.widgetFilterService = widgetFilterService;
+        this.widgetAreaCache = widgetAreaCache;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -87,33 +156,221 @@ public class WidgetService {
      *
      * @param widget    widget, whose z-index should be set.
      * @param newZIndex new z-index value.
+     * @return changes of other widgets, whose z-index was shifted.
      */
-    protected void updateWidgetZIndex(final Widget widget, @Nullable final Integer newZIndex) {
+    protected List<WidgetChange> updateWidgetZIndex(final Widget widget, @Nullable final Integer newZIndex) {
         if (newZIndex == null) {
             final int highestZIndex = getHighestZIndex();
 
             if (widget.isNew()) {
                 widget.setZ(highestZIndex + 1);
-                return;
+                return List.of();
             }
 
             if (highestZIndex > widget.getZ()) {
                 widget.setZ(highestZIndex + 1);
             }
 
-            return;
+            return List.of();
         }
 
         widget.setZ(newZIndex);
 
-        widgetRepository.findAll()
+        final List<Widget> shiftedWidgets = widgetRepository.findAll()
                 .stream()
                 .parallel()
                 .filter(existingWidget -> existingWidget.getZ() >= newZIndex)
                 .filter(existingWidget -> !requireNonNull(existingWidget.getId()).equals(widget.getId()))
-                .peek(existingWidget -> existingWidget.setZ(existingWidget.getZ() + 1))
-                .forEach(widgetRepository::save);
+                .collect(Collectors.toList());
+
+        final List<WidgetChange> changes = new ArrayList<>(shiftedWidgets.size());
+        for (final Widget shiftedWidget : shiftedWidgets) {
+            final Widget previous = snapshot(shiftedWidget);
+            shiftedWidget.setZ(shiftedWidget.getZ() + 1);
+            widgetRepository.save(shiftedWidget);
 
+            changes.add(new WidgetChange(previous, shiftedWidget));
+        }
+
+        return changes;
+    }
+
+    /**
+     * Creates a copy of widget's current state.
+     *
+     * @param widget widget to be copied.
+     * @return copy of the widget.
+     */
+    @SneakyThrows(CloneNotSupportedException.class)
+    protected Widget snapshot(final Widget widget) {
+        return widget.clone();
+    }
+
+    /**
+     * Gets canvas version.
+     * Version is incremented after every modification of widgets,
+     * so any data read after getting the version is not older than the version.
+     *
+     * @return current canvas version.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Executes operation with widgets on specified executor, once the lock is acquired, without blocking a thread
+     * while waiting for it. Like other methods, operation is executed without the lock, if lock timeout is exceeded.
+     * <p/>
+     * Methods of this service, called by the operation, don't wait for the lock again.
+     *
+     * @param exclusive whether operation requires exclusive access, like {@link #deleteById(String)} does.
+     * @param operation operation to be executed.
+     * @param executor  executor for the operation.
+     * @param <T>       operation result type.
+     * @return future of operation result,
+     * completed exceptionally with {@link RejectedExecutionException} if executor rejected the operation.
+     */
+    public <T> CompletableFuture<T> executeAsync(final boolean exclusive,
+                                                 final Callable<T> operation,
+                                                 final Executor executor) {
+        return readWriteLock.executeAsync(exclusive, serverConfigurationProperties.getLockTimeout(), TimeUnit.SECONDS,
+                operation, executor);
+    }
+
+    /**
+     * Increments canvas version and publishes {@link WidgetsChangedEvent} with specified changes.
+     * If transaction is active, it is done after commit,
+     * so that version readers and listeners never observe uncommitted state.
+     *
+     * @param changes widget changes.
+     */
+    protected void publishChanges(final List<WidgetChange> changes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            incrementVersionAndPublish(changes);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                incrementVersionAndPublish(changes);
+            }
+        });
+    }
+
+    /**
+     * Increments canvas version and publishes {@link WidgetsChangedEvent} with new version.
+     *
+     * @param changes widget changes.
+     */
+    private void incrementVersionAndPublish(final List<WidgetChange> changes) {
+        publishLock.lock();
+        try {
+            eventPublisher.publishEvent(new WidgetsChangedEvent(version.incrementAndGet(), changes));
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    /**
+     * Checks, that widgets can be modified directly.
+     *
+     * @throws ReadOnlyReplicaException if the server is a replica, that only applies changes of the leader.
+     */
+    private void checkWritable() {
+        if (serverConfigurationProperties.getReplicationLeader() != null) {
+            throw new ReadOnlyReplicaException();
+        }
+    }
+
+    /**
+     * Gets all widgets with current canvas version, e.g. for initializing a replica.
+     * Modifications are blocked while widgets are loaded, so that the widgets match the version.
+     *
+     * @return all widgets as full resync changes.
+     * @throws InterruptedException if the thread was interrupted.
+     * @throws TimeoutException     if modifications are not blocked within lock timeout, the call should be retried.
+     */
+    @Transactional(readOnly = true)
+    public WidgetChanges getSnapshot() throws InterruptedException, TimeoutException {
+        final Lock lock = lockExclusively();
+        try {
+            return new WidgetChanges(version.get(), true, widgetRepository.findAll(), List.of());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies changes made on the leader, setting canvas version to the version of the changes.
+     * On full resync widgets missing in the changes are deleted.
+     * Changes are applied as is, without updating z-index of other widgets or modification time.
+     *
+     * @param changes changes made on the leader.
+     * @throws InterruptedException if the thread was interrupted.
+     * @throws TimeoutException     if other operations are not blocked within lock timeout, the call should be retried.
+     */
+    @Transactional
+    public void applyReplicatedChanges(final WidgetChanges changes) throws InterruptedException, TimeoutException {
+        final Lock lock = lockExclusively();
+        try {
+            final List<WidgetChange> applied = new ArrayList<>();
+
+            if (changes.isFullResync()) {
+                final Set<String> updatedIds = changes.getUpdated().stream()
+                        .map(Widget::getId)
+                        .collect(Collectors.toSet());
+
+                for (final Widget widget : widgetRepository.findAll()) {
+                    if (!updatedIds.contains(widget.getId())) {
+                        widgetRepository.deleteById(requireNonNull(widget.getId()));
+                        applied.add(new WidgetChange(widget, null));
+                    }
+                }
+            }
+
+            for (final Widget widget : changes.getUpdated()) {
+                final Widget previous = widgetRepository.findById(requireNonNull(widget.getId())).map(this::snapshot).orElse(null);
+                widgetRepository.save(widget);
+                applied.add(new WidgetChange(previous, widget));
+            }
+
+            for (final String id : changes.getDeleted()) {
+                final Optional<Widget> previous = widgetRepository.findById(id);
+                if (previous.isPresent()) {
+                    widgetRepository.deleteById(id);
+                    applied.add(new WidgetChange(previous.get(), null));
+                }
+            }
+
+            publishLock.lock();
+            try {
+                version.set(changes.getVersion());
+                eventPublisher.publishEvent(new WidgetsChangedEvent(changes.getVersion(), applied));
+            } finally {
+                publishLock.unlock();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Acquires the write lock, unlike modifications, which proceed without it after lock timeout.
+     *
+     * @return acquired lock.
+     * @throws InterruptedException if the thread was interrupted.
+     * @throws TimeoutException     if the lock is not acquired within lock timeout.
+     */
+    private Lock lockExclusively() throws InterruptedException, TimeoutException {
+        final Lock lock = readWriteLock.writeLock();
+        final long timeout = serverConfigurationProperties.getLockTimeout();
+
+        if (!lock.tryLock() && !lock.tryLock(timeout, TimeUnit.SECONDS)) {
+            throw new TimeoutException("Widgets are not locked within " + timeout + " seconds");
+        }
+
+        return lock;
     }
 
     /**
@@ -124,7 +381,7 @@ public class WidgetService {
      * @throws InterruptedException    if the thread was interrupted.
      * @throws WidgetNotFoundException if widget with specified does not exist.
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public Widget findById(final String id) throws InterruptedException, WidgetNotFoundException {
         final Lock readLock = readWriteLock.readLock();
 
@@ -147,45 +404,302 @@ public class WidgetService {
      * Updated {@link Widget#getLastModified()} with current time.
      * Also, moves other widgets with greater or equal z-index up.
      *
-     * @param widget widget to be saved.
-     * @param z      z-index of a widget, if specified.
+     * @param widget   widget to be saved.
+     * @param previous widget state before modification, or <code>null</code> if widget is new.
+     * @param z        z-index of a widget, if specified.
      * @return saved widget.
      */
-    protected Widget save(final Widget widget, @Nullable final Integer z) {
-        widget.setLastModified(LocalDateTime.now());
-        updateWidgetZIndex(widget, z);
+    protected Widget save(final Widget widget, @Nullable final Widget previous, @Nullable final Integer z) {
+        widget.markModified(clock.currentLocalMillis());
+        final List<WidgetChange> changes = new ArrayList<>(updateWidgetZIndex(widget, z));
         widgetRepository.save(widget);
 
+        changes.add(new WidgetChange(previous, widget));
+        publishChanges(changes);
+
         return widget;
     }
 
     /**
      * Gets widgets inside specified area.
+     * If result cache is enabled, widgets are returned sorted by z-index.
+     * <p/>
+     * Concurrent queries with equal area share one computation, so returned collection must not be modified.
      *
      * @param area filtering criteria, or {@link Area#EMPTY_AREA} if no filtering is required.
-     * @return collection of widgets fits the area.
+     * @return unmodifiable collection of widgets fits the area.
      * @throws InterruptedException if the thread was interrupted.
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public Collection<Widget> getWidgetsInsideArea(final Area area) throws InterruptedException {
+        return getWidgetsInsideArea(area, WidgetField.ALL);
+    }
+
+    /**
+     * Gets widgets inside specified area with at least specified fields loaded.
+     * Identifier, position, z-index and size are always loaded, other fields not requested have default values.
+     *
+     * @param area   filtering criteria, or {@link Area#EMPTY_AREA} if no filtering is required.
+     * @param fields fields to be loaded.
+     * @return unmodifiable collection of widgets fits the area.
+     * @throws InterruptedException if the thread was interrupted.
+     * @see #getWidgetsInsideArea(Area)
+     */
+    @Transactional(readOnly = true)
+    public Collection<Widget> getWidgetsInsideArea(final Area area, final Set<WidgetField> fields) throws InterruptedException {
+        return getWidgetsInArea(area, AreaQueryMode.INSIDE, fields);
+    }
+
+    /**
+     * Gets widgets matching specified area in specified mode with at least specified fields loaded.
+     *
+     * @param area   filtering criteria, or {@link Area#EMPTY_AREA} if no filtering is required.
+     * @param mode   mode of matching widgets against the area.
+     * @param fields fields to be loaded.
+     * @return unmodifiable collection of widgets matching the area.
+     * @throws InterruptedException if the thread was interrupted.
+     * @see #getWidgetsInsideArea(Area, Set)
+     */
+    @Transactional(readOnly = true)
+    public Collection<Widget> getWidgetsInArea(final Area area,
+                                               final AreaQueryMode mode,
+                                               final Set<WidgetField> fields) throws InterruptedException {
+        final Set<WidgetField> loadedFields = EnumSet.copyOf(AREA_QUERY_FIELDS);
+        loadedFields.addAll(fields);
+
+        final AreaQuery query = new AreaQuery(area, mode, loadedFields);
+
+        if (!widgetAreaCache.isEnabled()) {
+            return areaQueryCoalescer.execute(query, () -> Collections.unmodifiableCollection(loadWidgetsInsideArea(query)));
+        }
+
+        final Optional<List<Widget>> cachedWidgets = widgetAreaCache.get(query);
+        if (cachedWidgets.isPresent()) {
+            return cachedWidgets.get();
+        }
+
+        return areaQueryCoalescer.execute(query, () -> {
+            final long generation = widgetAreaCache.getGeneration();
+            final List<Widget> widgets = loadWidgetsInsideArea(query)
+                    .stream()
+                    .sorted(Comparator.comparingInt(Widget::getZ))
+                    .collect(Collectors.toUnmodifiableList());
+
+            widgetAreaCache.put(query, widgets, generation);
+
+            return widgets;
+        });
+    }
+
+    /**
+     * Gets a page of widgets matching specified area, sorted by z-index, ascending.
+     * <p/>
+     * Matching widgets are not sorted as a whole: if result cache is enabled, they are already sorted,
+     * otherwise only <code>offset + pageSize</code> widgets with the lowest z-index are selected by a bounded heap.
+     *
+     * @param area     filtering criteria, or {@link Area#EMPTY_AREA} if no filtering is required.
+     * @param mode     mode of matching widgets against the area.
+     * @param fields   fields to be loaded.
+     * @param offset   number of widgets to be skipped.
+     * @param pageSize max number of widgets to be returned.
+     * @return page of widgets matching the area.
+     * @throws InterruptedException if the thread was interrupted.
+     */
+    @Transactional(readOnly = true)
+    public List<Widget> getWidgetsPageInArea(final Area area,
+                                             final AreaQueryMode mode,
+                                             final Set<WidgetField> fields,
+                                             final int offset,
+                                             final int pageSize) throws InterruptedException {
+        final Collection<Widget> widgets = getWidgetsInArea(area, mode, fields);
+
+        if (offset >= widgets.size() || pageSize <= 0) {
+            return List.of();
+        }
+
+        final int end = (int) Math.min((long) offset + pageSize, widgets.size());
+
+        if (widgetAreaCache.isEnabled() && widgets instanceof List) {
+            return new ArrayList<>(((List<Widget>) widgets).subList(offset, end));
+        }
+
+        final List<Widget> lowest = selectLowestZ(widgets, end);
+
+        return new ArrayList<>(lowest.subList(offset, end));
+    }
+
+    /**
+     * Selects widgets with the lowest z-index using a heap of limited size.
+     * Complexity is O(n log count) instead of O(n log n) of sorting all widgets.
+     *
+     * @param widgets widgets to select from.
+     * @param count   number of widgets to be selected.
+     * @return selected widgets, sorted by z-index, ascending.
+     */
+    private static List<Widget> selectLowestZ(final Collection<Widget> widgets, final int count) {
+        final Comparator<Widget> byZ = Comparator.comparingInt(Widget::getZ);
+
+        if (count >= widgets.size()) {
+            return widgets.stream()
+                    .sorted(byZ)
+                    .collect(Collectors.toList());
+        }
+
+        final PriorityQueue<Widget> highestFirst = new PriorityQueue<>(count + 1, byZ.reversed());
+        for (final Widget widget : widgets) {
+            if (highestFirst.size() < count) {
+                highestFirst.add(widget);
+            } else if (widget.getZ() < highestFirst.element().getZ()) {
+                highestFirst.poll();
+                highestFirst.add(widget);
+            }
+        }
+
+        final List<Widget> lowest = new ArrayList<>(highestFirst);
+        lowest.sort(byZ);
+
+        return lowest;
+    }
+
+    /**
+     * Gets widgets under a point, the topmost first, e.g. for handling clicks.
+     * <p/>
+     * Spatially indexed repository finds widgets under the point by itself, otherwise all widgets are scanned.
+     * Points bypass the result cache, as they are different on every mouse move.
+     *
+     * @param x     point x-coordinate.
+     * @param y     point y-coordinate.
+     * @param limit max number of widgets to be returned.
+     * @return widgets under the point, sorted by z-index, descending.
+     * @throws InterruptedException if the thread was interrupted.
+     * @see WidgetFilteringService#findWidgetsAtPoint(Collection, int, int, int)
+     */
+    @Transactional(readOnly = true)
+    public List<Widget> getWidgetsAtPoint(final int x, final int y, final int limit) throws InterruptedException {
+        if (limit <= 0) {
+            return List.of();
+        }
+
+        final AreaQuery query = new AreaQuery(new Area(x, y, 0, 0), AreaQueryMode.INTERSECTS, WidgetField.ALL);
+
+        return widgetFilterService.findWidgetsAtPoint(loadWidgetsInsideArea(query), x, y, limit);
+    }
+
+    /**
+     * Gets widgets nearest to a point, e.g. for snapping.
+     * <p/>
+     * Spatially indexed repository searches it's index from the point outwards, otherwise all widgets are scanned.
+     * Points bypass the result cache, as they are different on every mouse move.
+     *
+     * @param x     point x-coordinate.
+     * @param y     point y-coordinate.
+     * @param count max number of widgets to be returned.
+     * @return nearest widgets, sorted by distance, ascending.
+     * @throws InterruptedException if the thread was interrupted.
+     * @see WidgetRepository#findNearest(int, int, int)
+     */
+    @Transactional(readOnly = true)
+    public List<Widget> getNearestWidgets(final int x, final int y, final int count) throws InterruptedException {
+        if (count <= 0) {
+            return List.of();
+        }
+
+        final Lock readLock = readWriteLock.readLock();
+
+        boolean isLocked = false;
+        try {
+            isLocked = readLock.tryLock() || readLock.tryLock(serverConfigurationProperties.getLockTimeout(), TimeUnit.SECONDS);
+
+            return widgetRepository.findNearest(x, y, count);
+        } finally {
+            if (isLocked) {
+                readLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Counts widgets matching specified area without loading them into memory, where repository allows.
+     *
+     * @param area filtering criteria, or {@link Area#EMPTY_AREA} if no filtering is required.
+     * @param mode mode of matching widgets against the area.
+     * @return number of widgets matching the area.
+     * @throws InterruptedException if the thread was interrupted.
+     */
+    @Transactional(readOnly = true)
+    public long countInArea(final Area area, final AreaQueryMode mode) throws InterruptedException {
+        final Lock readLock = readWriteLock.readLock();
+
+        boolean isLocked = false;
+        try {
+            isLocked = readLock.tryLock() || readLock.tryLock(serverConfigurationProperties.getLockTimeout(), TimeUnit.SECONDS);
+
+            if (Area.EMPTY_AREA.equals(area)) {
+                return widgetRepository.count();
+            }
+
+            return widgetRepository.countInArea(area, mode);
+        } finally {
+            if (isLocked) {
+                readLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Gets aggregates of all widgets: count, bounding box and z-index range.
+     *
+     * @return widget aggregates.
+     * @throws InterruptedException if the thread was interrupted.
+     */
+    @Transactional(readOnly = true)
+    public WidgetStats getStats() throws InterruptedException {
+        final Lock readLock = readWriteLock.readLock();
+
+        boolean isLocked = false;
+        try {
+            isLocked = readLock.tryLock() || readLock.tryLock(serverConfigurationProperties.getLockTimeout(), TimeUnit.SECONDS);
+
+            return widgetRepository.getStats();
+        } finally {
+            if (isLocked) {
+                readLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Loads widgets from repository and filters them to match specified area.
+     * Spatially indexed repository finds widgets in area by itself.
+     *
+     * @param query area query.
+     * @return collection of widgets fits the area.
+     * @throws InterruptedException if the thread was interrupted.
+     */
+    protected Collection<Widget> loadWidgetsInsideArea(final AreaQuery query) throws InterruptedException {
         final Lock readLock = readWriteLock.readLock();
 
         List<Widget> widgets;
         boolean isLocked = false;
         try {
             isLocked = readLock.tryLock() || readLock.tryLock(serverConfigurationProperties.getLockTimeout(), TimeUnit.SECONDS);
-            widgets = widgetRepository.findAll();
+
+            if (widgetRepository.isSpatiallyIndexed() && !Area.EMPTY_AREA.equals(query.getArea())) {
+                return widgetRepository.findInArea(query.getArea(), query.getMode(), query.getFields());
+            }
+
+            widgets = widgetRepository.findAll(query.getFields());
         } finally {
             if (isLocked) {
                 readLock.unlock();
             }
         }
 
-        if (Area.EMPTY_AREA.equals(area)) {
+        if (Area.EMPTY_AREA.equals(query.getArea())) {
             return widgets;
         }
 
-        return widgetFilterService.filterWidgetsInsideArea(widgets, area);
+        return widgetFilterService.filterWidgets(widgets, query.getArea(), query.getMode());
     }
 
     /**
@@ -194,7 +708,8 @@ public class WidgetService {
      *
      * @param id id of a widget to be found and updated.
      * @return updated or newly created widget.
-     * @throws InterruptedException if the thread was interrupted.
+     * @throws InterruptedException     if the thread was interrupted.
+     * @throws ReadOnlyReplicaException if the server is a replica.
      */
     @Transactional
     public Widget updateOrCreate(final String id,
@@ -203,6 +718,8 @@ public class WidgetService {
                                  @Nullable final Integer width,
                                  @Nullable final Integer height,
                                  @Nullable final Integer z) throws InterruptedException {
+        checkWritable();
+
         final Lock readLock = readWriteLock.readLock();
 
         boolean isLocked = false;
@@ -217,6 +734,7 @@ public class WidgetService {
             }
 
             final Widget widget = foundWidgetOptional.get();
+            final Widget previous = snapshot(widget);
 
             if (x != null) {
                 widget.setX(x);
@@ -234,7 +752,7 @@ public class WidgetService {
                 widget.setHeight(height);
             }
 
-            return save(widget, z);
+            return save(widget, previous, z);
         } finally {
             if (isLocked) {
                 readLock.unlock();
@@ -246,17 +764,28 @@ public class WidgetService {
      * Deletes widget with specified id.
      *
      * @param id id of a widget to be removed.
-     * @throws InterruptedException if the thread was interrupted.
+     * @throws InterruptedException     if the thread was interrupted.
+     * @throws ReadOnlyReplicaException if the server is a replica.
      */
     @Transactional
     public void deleteById(final String id) throws InterruptedException {
+        checkWritable();
+
         final Lock lock = readWriteLock.writeLock();
 
         boolean isLocked = false;
         try {
             isLocked = lock.tryLock() || lock.tryLock(serverConfigurationProperties.getLockTimeout(), TimeUnit.SECONDS);
+
+            final Optional<Widget> foundWidgetOptional = widgetRepository.findById(id);
+            if (foundWidgetOptional.isEmpty()) {
+                return;
+            }
+
             widgetRepository.deleteById(id);
 
+            publishChanges(List.of(new WidgetChange(foundWidgetOptional.get(), null)));
+
         } finally {
             if (isLocked) {
                 lock.unlock();
@@ -273,10 +802,13 @@ public class WidgetService {
      * @param height a height of a widget.
      * @param z      z-index, if specified.
      * @return created widget.
-     * @throws InterruptedException if the thread was interrupted.
+     * @throws InterruptedException     if the thread was interrupted.
+     * @throws ReadOnlyReplicaException if the server is a replica.
      */
     @Transactional
     public Widget createNew(final int x, final int y, final int width, final int height, @Nullable final Integer z) throws InterruptedException {
+        checkWritable();
+
         final Lock readLock = readWriteLock.readLock();
 
         boolean isLocked = false;
@@ -291,7 +823,7 @@ public class WidgetService {
             widget.setWidth(width);
             widget.setHeight(height);
 
-            return save(widget, z);
+            return save(widget, null, z);
         } finally {
             if (isLocked) {
                 readLock.unlock();
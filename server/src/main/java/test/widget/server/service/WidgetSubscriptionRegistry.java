@@ -0,0 +1,444 @@
+package test.widget.server.service;
+
+import com.github.davidmoten.rtree2.Entry;
+import com.github.davidmoten.rtree2.RTree;
+import com.github.davidmoten.rtree2.geometry.Geometries;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import lombok.Getter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import test.widget.server.ServerConfigurationProperties;
+import test.widget.server.domain.Area;
+import test.widget.server.domain.Widget;
+import test.widget.server.event.WidgetChange;
+import test.widget.server.event.WidgetEventType;
+import test.widget.server.event.WidgetsChangedEvent;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Registry of subscriptions to widget changes inside an area.
+ * <p/>
+ * Subscription areas are held in R-Tree, so that on widget change only subscriptions
+ * whose area intersects old or new widget bounds are checked.
+ * <p/>
+ * Every subscription has it's own bounded queue of events, delivered in the order of changes by a fixed pool
+ * of threads, one thread per subscription at a time. Subscription, which queue is full, or which listener blocks
+ * on sending an event for longer than send timeout, is cancelled and it's overflow handler is called,
+ * so that slow clients neither pile up events, nor hold delivery threads.
+ *
+ * @author Mikhail Kondratev
+ */
+@Slf4j
+@Component
+public class WidgetSubscriptionRegistry {
+
+    /**
+     * Subscriptions indexed by area. Tree is immutable and replaced on every subscription change.
+     */
+    private volatile RTree<Subscription, Rectangle> subscriptions = RTree.create();
+
+    /**
+     * Lock for replacing subscriptions tree.
+     */
+    private final Lock lock = new ReentrantLock();
+
+    /**
+     * Subscriptions sending an event to listener. Cancelled ones are kept until sending ends,
+     * as they are no longer in the tree, but may still hold a delivery thread.
+     */
+    private final Set<Subscription> sending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Executor for delivering events to listeners.
+     * Every subscription has at most one delivery task, so the number of queued tasks is bounded by subscriptions.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Executor for cancelling subscriptions, which listeners block on sending for too long.
+     */
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "widget-events-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Max number of events queued for one subscription.
+     */
+    private final int queueCapacity;
+
+    /**
+     * Max time of sending one event, in milliseconds.
+     */
+    private final long sendTimeout;
+
+    /**
+     * Constructor.
+     *
+     * @param serverConfigurationProperties general server configuration properties.
+     */
+    public WidgetSubscriptionRegistry(final ServerConfigurationProperties serverConfigurationProperties) {
+        this.queueCapacity = serverConfigurationProperties.getSubscriptionQueueCapacity();
+        this.sendTimeout = serverConfigurationProperties.getSubscriptionSendTimeout();
+        this.executor = Executors.newFixedThreadPool(serverConfigurationProperties.getSubscriptionDeliveryThreads(), runnable -> {
+            final Thread thread = new Thread(runnable, "widget-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        final long checkInterval = Math.max(sendTimeout / 2, 1);
+        watchdog.scheduleWithFixedDelay(this::cancelStalledSubscriptions, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Subscribes listener to changes of widgets inside specified area.
+     *
+     * @param area            area of interest, or {@link Area#EMPTY_AREA} for all widgets.
+     * @param listener        listener of widget events.
+     * @param overflowHandler handler called in background, if subscription is cancelled because it's queue is full.
+     * @return created subscription.
+     */
+    public Subscription subscribe(final Area area, final WidgetEventListener listener, final Runnable overflowHandler) {
+        final Subscription subscription = new Subscription(new Area(area.getX(), area.getY(), area.getWidth(), area.getHeight()),
+                listener, overflowHandler);
+
+        lock.lock();
+        try {
+            subscriptions = subscriptions.add(subscription, subscription.getRectangle());
+        } finally {
+            lock.unlock();
+        }
+
+        return subscription;
+    }
+
+    /**
+     * @return number of active subscriptions.
+     */
+    public int getSubscriptionsCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Dispatches changes to subscriptions, whose area the changed widget is entering, leaving or changing inside.
+     *
+     * @param event widgets changed event.
+     */
+    @EventListener
+    public void onWidgetsChanged(final WidgetsChangedEvent event) {
+        final RTree<Subscription, Rectangle> currentSubscriptions = subscriptions;
+
+        if (currentSubscriptions.size() == 0) {
+            return;
+        }
+
+        for (final WidgetChange change : event.getChanges()) {
+            final Set<Subscription> candidates = new LinkedHashSet<>();
+            addCandidates(currentSubscriptions, change.getPrevious(), candidates);
+            addCandidates(currentSubscriptions, change.getCurrent(), candidates);
+
+            for (final Subscription subscription : candidates) {
+                dispatch(subscription, change);
+            }
+        }
+    }
+
+    /**
+     * Finds subscriptions, whose area intersects widget bounds.
+     *
+     * @param tree       subscriptions tree.
+     * @param widget     widget state, if present.
+     * @param candidates set to add found subscriptions.
+     */
+    private static void addCandidates(final RTree<Subscription, Rectangle> tree, @Nullable final Widget widget,
+                                      final Set<Subscription> candidates) {
+        if (widget == null) {
+            return;
+        }
+
+        final double x1 = widget.getX();
+        final double x2 = (double) widget.getX() + widget.getWidth();
+        final double y1 = widget.getY();
+        final double y2 = (double) widget.getY() + widget.getHeight();
+
+        for (final Entry<Subscription, Rectangle> entry : tree.search(
+                Geometries.rectangle(Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2)))) {
+            candidates.add(entry.value());
+        }
+    }
+
+    /**
+     * Queues widget event for subscription, if the change is visible inside subscription's area.
+     *
+     * @param subscription subscription to be notified.
+     * @param change       widget change.
+     */
+    private static void dispatch(final Subscription subscription, final WidgetChange change) {
+        final boolean wasInside = change.getPrevious() != null && subscription.getArea().contains(change.getPrevious());
+        final boolean isInside = change.getCurrent() != null && subscription.getArea().contains(change.getCurrent());
+
+        if (wasInside && isInside) {
+            subscription.offer(new Event(WidgetEventType.UPDATED, requireNonNull(change.getCurrent())));
+        } else if (isInside) {
+            subscription.offer(new Event(WidgetEventType.CREATED, requireNonNull(change.getCurrent())));
+        } else if (wasInside) {
+            subscription.offer(new Event(WidgetEventType.DELETED, requireNonNull(change.getPrevious())));
+        }
+    }
+
+    /**
+     * Cancels subscriptions, which listeners block on sending an event for longer than send timeout.
+     */
+    private void cancelStalledSubscriptions() {
+        final long now = System.currentTimeMillis();
+
+        for (final Subscription subscription : sending) {
+            subscription.cancelIfStalled(now);
+        }
+    }
+
+    /**
+     * Executes task on delivery executor, unless the registry is shut down.
+     *
+     * @param task task to be executed.
+     */
+    private void execute(final Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.debug("Widget events delivery is shut down", e);
+        }
+    }
+
+    /**
+     * Stops delivering events.
+     */
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Listener of widget events inside an area.
+     */
+    @FunctionalInterface
+    public interface WidgetEventListener {
+
+        /**
+         * Handles widget event.
+         *
+         * @param type   event type.
+         * @param widget widget state after the change, or before it, if widget was deleted or moved out of the area.
+         * @throws Exception if event could not be handled, subscription is cancelled in this case.
+         */
+        void onWidgetEvent(WidgetEventType type, Widget widget) throws Exception;
+    }
+
+    /**
+     * Widget event queued for delivery.
+     */
+    @Value
+    private static class Event {
+
+        /**
+         * Event type.
+         */
+        WidgetEventType type;
+
+        /**
+         * Widget state.
+         */
+        Widget widget;
+    }
+
+    /**
+     * Subscription to widget changes inside an area.
+     */
+    @Getter
+    public final class Subscription {
+
+        /**
+         * Area of interest.
+         */
+        private final Area area;
+
+        /**
+         * Area of interest as R-Tree rectangle.
+         */
+        private final Rectangle rectangle;
+
+        /**
+         * Listener of widget events.
+         */
+        private final WidgetEventListener listener;
+
+        /**
+         * Handler of cancellation because the queue is full.
+         */
+        private final Runnable overflowHandler;
+
+        /**
+         * Events to be delivered.
+         */
+        private final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        /**
+         * Flag of delivery task being scheduled or running, so that events are delivered by one thread at a time.
+         */
+        private final AtomicBoolean delivering = new AtomicBoolean();
+
+        /**
+         * Flag of cancelled subscription.
+         */
+        private volatile boolean cancelled;
+
+        /**
+         * Thread sending an event to listener, or <code>null</code> if not sending. Guarded by this subscription.
+         */
+        @Nullable
+        private Thread sendingThread;
+
+        /**
+         * Time of starting to send current event, in milliseconds. Guarded by this subscription.
+         */
+        private long sendStartTime;
+
+        /**
+         * Constructor.
+         *
+         * @param area            area of interest.
+         * @param listener        listener of widget events.
+         * @param overflowHandler handler of cancellation because the queue is full.
+         */
+        private Subscription(final Area area, final WidgetEventListener listener, final Runnable overflowHandler) {
+            this.area = area;
+            this.listener = listener;
+            this.overflowHandler = overflowHandler;
+            this.rectangle = Area.EMPTY_AREA.equals(area)
+                    ? Geometries.rectangle(-Double.MAX_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE)
+                    : Geometries.rectangle((double) area.getX(), area.getY(),
+                    (double) area.getX() + Math.max(area.getWidth(), 0), (double) area.getY() + Math.max(area.getHeight(), 0));
+        }
+
+        /**
+         * Stops delivering events to this subscription.
+         */
+        public void cancel() {
+            cancelled = true;
+            queue.clear();
+
+            lock.lock();
+            try {
+                subscriptions = subscriptions.delete(this, rectangle);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Queues event and schedules delivery. Cancels subscription, if the queue is full.
+         *
+         * @param event event to be delivered.
+         */
+        private void offer(final Event event) {
+            if (cancelled) {
+                return;
+            }
+
+            if (!queue.offer(event)) {
+                log.debug("Cancelling widget events subscription with {} undelivered events", queue.size());
+                cancel();
+                execute(overflowHandler);
+                return;
+            }
+
+            if (delivering.compareAndSet(false, true)) {
+                execute(this::deliver);
+            }
+        }
+
+        /**
+         * Interrupts sending and cancels this subscription, if current event is being sent for longer than send timeout.
+         * Overflow handler is called, as the client can't keep up with events, unless the subscription is already
+         * cancelled, e.g. by overflow while sending.
+         *
+         * @param now current time, in milliseconds.
+         */
+        private void cancelIfStalled(final long now) {
+            final boolean wasCancelled;
+
+            synchronized (this) {
+                if (sendingThread == null || now - sendStartTime < sendTimeout) {
+                    return;
+                }
+
+                log.debug("Interrupting widget events subscription blocked on sending for {} ms", now - sendStartTime);
+                //listener may cancel the subscription as soon as it is interrupted
+                wasCancelled = cancelled;
+                sendingThread.interrupt();
+            }
+
+            if (wasCancelled) {
+                return;
+            }
+
+            cancel();
+
+            //delivery threads may be all blocked, so the handler is called by the watchdog
+            overflowHandler.run();
+        }
+
+        /**
+         * Delivers queued events to listener, until the queue is empty. Cancels subscription on listener error.
+         */
+        private void deliver() {
+            do {
+                Event event;
+                while (!cancelled && (event = queue.poll()) != null) {
+                    synchronized (this) {
+                        sendingThread = Thread.currentThread();
+                        sendStartTime = System.currentTimeMillis();
+                    }
+                    sending.add(this);
+
+                    try {
+                        listener.onWidgetEvent(event.getType(), event.getWidget());
+                    } catch (Exception e) {
+                        log.debug("Cancelling widget events subscription on listener error", e);
+                        cancel();
+                    } finally {
+                        sending.remove(this);
+                        synchronized (this) {
+                            sendingThread = null;
+                            //clear interruption by the watchdog, which could come after sending
+                            Thread.interrupted();
+                        }
+                    }
+                }
+
+                delivering.set(false);
+            } while (!cancelled && !queue.isEmpty() && delivering.compareAndSet(false, true));
+        }
+    }
+}
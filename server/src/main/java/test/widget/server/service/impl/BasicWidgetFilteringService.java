@@ -1,28 +1,171 @@
 package test.widget.server.service.impl;
 
+import org.springframework.lang.Nullable;
 import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQueryMode;
 import test.widget.server.domain.Widget;
 import test.widget.server.service.WidgetFilteringService;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.stream.Collectors;
 
 /**
  * Basic filtering implementation.
  * Complexity is O(n).
+ * <p/>
+ * If parallelism is greater than one, large collections are scanned in chunks by a dedicated fork/join pool,
+ * so that filtering does not occupy common pool and request threads.
  *
  * @author Mikhail Kondratev
  */
-public class BasicWidgetFilteringService implements WidgetFilteringService {
+public class BasicWidgetFilteringService implements WidgetFilteringService, AutoCloseable {
+
+    /**
+     * Min number of widgets in a chunk, scanned by one task.
+     */
+    private static final int MIN_CHUNK_SIZE = 4096;
+
+    /**
+     * Number of chunks per pool thread, for balancing uneven chunks.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * Pool for parallel scans, or <code>null</code> if scans are sequential.
+     */
+    @Nullable
+    private final ForkJoinPool pool;
+
+    /**
+     * Min number of widgets to be scanned in parallel.
+     */
+    private final int parallelThreshold;
+
+    /**
+     * Constructor of sequential service.
+     */
+    public BasicWidgetFilteringService() {
+        this(1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param parallelism       number of threads for parallel scans, one for sequential scans only.
+     * @param parallelThreshold min number of widgets to be scanned in parallel.
+     */
+    public BasicWidgetFilteringService(final int parallelism, final int parallelThreshold) {
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        this.parallelThreshold = parallelThreshold;
+    }
 
     @Override
-    public Collection<Widget> filterWidgetsInsideArea(final Collection<Widget> widgets, final Area area) {
-        return widgets
-                .stream()
-                .filter(widget -> widget.getX() >= area.getX()
-                        && widget.getY() >= area.getY()
-                        && widget.getX() + widget.getWidth() <= area.getX() + area.getWidth()
-                        && widget.getY() + widget.getHeight() <= area.getY() + area.getHeight())
-                .collect(Collectors.toList());
+    public Collection<Widget> filterWidgets(final Collection<Widget> widgets, final Area area, final AreaQueryMode mode) {
+        if (pool == null || widgets.size() < parallelThreshold) {
+            return widgets
+                    .stream()
+                    .filter(widget -> mode.matches(area, widget))
+                    .collect(Collectors.toList());
+        }
+
+        final Widget[] items = widgets.toArray(new Widget[0]);
+        final int chunkSize = Math.max(items.length / (pool.getParallelism() * CHUNKS_PER_THREAD), MIN_CHUNK_SIZE);
+
+        return pool.invoke(new FilteringTask(items, 0, items.length, chunkSize, area, mode));
+    }
+
+    /**
+     * Shuts down parallel scans pool.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Task of filtering a range of widgets, split in halves until chunk size is reached.
+     * Found widgets keep the order of the source collection.
+     */
+    private static class FilteringTask extends RecursiveTask<List<Widget>> {
+
+        /**
+         * Widgets to be filtered.
+         */
+        private final Widget[] widgets;
+
+        /**
+         * Start of the range, inclusive.
+         */
+        private final int from;
+
+        /**
+         * End of the range, exclusive.
+         */
+        private final int to;
+
+        /**
+         * Max number of widgets, scanned without splitting.
+         */
+        private final int chunkSize;
+
+        /**
+         * Filtering area.
+         */
+        private final Area area;
+
+        /**
+         * Mode of matching widgets against the area.
+         */
+        private final AreaQueryMode mode;
+
+        /**
+         * Constructor.
+         *
+         * @param widgets   widgets to be filtered.
+         * @param from      start of the range, inclusive.
+         * @param to        end of the range, exclusive.
+         * @param chunkSize max number of widgets, scanned without splitting.
+         * @param area      filtering area.
+         * @param mode      mode of matching widgets against the area.
+         */
+        FilteringTask(final Widget[] widgets, final int from, final int to, final int chunkSize,
+                      final Area area, final AreaQueryMode mode) {
+            this.widgets = widgets;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.area = area;
+            this.mode = mode;
+        }
+
+        @Override
+        protected List<Widget> compute() {
+            if (to - from <= chunkSize) {
+                final List<Widget> found = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    if (mode.matches(area, widgets[i])) {
+                        found.add(widgets[i]);
+                    }
+                }
+
+                return found;
+            }
+
+            final int middle = (from + to) >>> 1;
+            final FilteringTask left = new FilteringTask(widgets, from, middle, chunkSize, area, mode);
+            left.fork();
+
+            final List<Widget> right = new FilteringTask(widgets, middle, to, chunkSize, area, mode).compute();
+            final List<Widget> found = left.join();
+            found.addAll(right);
+
+            return found;
+        }
     }
 }
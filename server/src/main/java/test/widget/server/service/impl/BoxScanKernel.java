@@ -0,0 +1,46 @@
+package test.widget.server.service.impl;
+
+/**
+ * Kernel of scanning boxes, given as struct-of-arrays edges, against an area.
+ * Results are written into a match bitmap: bit <code>i % 64</code> of word <code>i / 64</code> is set,
+ * if box <code>i</code> matches.
+ *
+ * @author Mikhail Kondratev
+ * @see VectorizedWidgetFilteringService
+ */
+public interface BoxScanKernel {
+
+    /**
+     * Marks boxes, that fall entirely inside an area.
+     *
+     * @param left       left edges of boxes.
+     * @param top        top edges of boxes.
+     * @param right      right edges of boxes.
+     * @param bottom     bottom edges of boxes.
+     * @param count      number of boxes.
+     * @param areaLeft   area left edge.
+     * @param areaTop    area top edge.
+     * @param areaRight  area right edge.
+     * @param areaBottom area bottom edge.
+     * @param matches    cleared bitmap of matching boxes, to be filled.
+     */
+    void scanInside(long[] left, long[] top, long[] right, long[] bottom, int count,
+                    long areaLeft, long areaTop, long areaRight, long areaBottom, long[] matches);
+
+    /**
+     * Marks boxes, that have at least one common point with an area.
+     *
+     * @param left       left edges of boxes.
+     * @param top        top edges of boxes.
+     * @param right      right edges of boxes.
+     * @param bottom     bottom edges of boxes.
+     * @param count      number of boxes.
+     * @param areaLeft   area left edge.
+     * @param areaTop    area top edge.
+     * @param areaRight  area right edge.
+     * @param areaBottom area bottom edge.
+     * @param matches    cleared bitmap of matching boxes, to be filled.
+     */
+    void scanIntersecting(long[] left, long[] top, long[] right, long[] bottom, int count,
+                          long areaLeft, long areaTop, long areaRight, long areaBottom, long[] matches);
+}
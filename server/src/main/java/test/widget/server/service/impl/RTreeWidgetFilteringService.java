@@ -5,9 +5,9 @@ import com.github.davidmoten.rtree2.Entry;
 import com.github.davidmoten.rtree2.RTree;
 import com.github.davidmoten.rtree2.geometry.Geometries;
 import com.github.davidmoten.rtree2.geometry.Rectangle;
-import com.github.davidmoten.rtree2.geometry.internal.RectangleFloat;
 import com.github.davidmoten.rtree2.internal.EntryDefault;
 import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQueryMode;
 import test.widget.server.domain.Widget;
 import test.widget.server.service.WidgetFilteringService;
 
@@ -20,28 +20,49 @@ import java.util.stream.StreamSupport;
  * Service for finding widgets inside an area based on R-Tree.
  * <p/>
  * Service is subscribed to Widget events to build trees for effectively searching widgets.
+ * Intersecting widgets are found by tree's own search, widgets inside an area - by the same search
+ * with a containment condition. Rectangles have double coordinates, so that int edges are exact.
  *
  * @author Mikhail Kondratev
  */
 public class RTreeWidgetFilteringService implements WidgetFilteringService {
 
     @Override
-    public Collection<Widget> filterWidgetsInsideArea(final Collection<Widget> widgets, final Area area) {
+    public Collection<Widget> filterWidgets(final Collection<Widget> widgets, final Area area, final AreaQueryMode mode) {
         final Set<Entry<Widget, Rectangle>> entries = widgets.stream()
-                .map(widget -> EntryDefault.entry(widget, RectangleFloat.create(widget.getX(), widget.getY(), widget.getX() + widget.getWidth(), widget.getY() + widget.getHeight())))
+                .map(widget -> EntryDefault.entry(widget, toRectangle(widget.getX(), widget.getY(), widget.getWidth(), widget.getHeight())))
                 .collect(Collectors.toSet());
 
         final RTree<Widget, Rectangle> tree = RTree.minChildren(8).maxChildren(64).<Widget, Rectangle>create().add(entries);
 
-        final Rectangle areaRectangle = Geometries.rectangle(area.getX(), area.getY(), area.getX() + area.getWidth(), area.getY() + area.getHeight());
+        final Rectangle areaRectangle = toRectangle(area.getX(), area.getY(), area.getWidth(), area.getHeight());
 
-        return StreamSupport.stream(
-                tree.search(areaRectangle, (g1, g2) ->
-                        g1.x1() >= g2.x1()
-                                && g1.y1() >= g2.y1()
-                                && g1.x2() <= g2.x2()
-                                && g1.y2() <= g2.y2()).spliterator(), false)
+        final Iterable<Entry<Widget, Rectangle>> found;
+        if (mode == AreaQueryMode.INTERSECTS) {
+            found = tree.search(areaRectangle);
+        } else {
+            found = tree.search(areaRectangle, (g1, g2) ->
+                    g1.x1() >= g2.x1()
+                            && g1.y1() >= g2.y1()
+                            && g1.x2() <= g2.x2()
+                            && g1.y2() <= g2.y2());
+        }
+
+        return StreamSupport.stream(found.spliterator(), false)
                 .map(Entry::value)
                 .collect(Collectors.toSet());
     }
+
+    /**
+     * Creates rectangle with exact edges, as widget's right and bottom edges may exceed int range.
+     *
+     * @param x      left edge.
+     * @param y      top edge.
+     * @param width  rectangle width.
+     * @param height rectangle height.
+     * @return created rectangle.
+     */
+    private static Rectangle toRectangle(final int x, final int y, final int width, final int height) {
+        return Geometries.rectangle((double) x, y, (double) x + width, (double) y + height);
+    }
 }
@@ -0,0 +1,38 @@
+package test.widget.server.service.impl;
+
+/**
+ * {@link BoxScanKernel}, that evaluates all four comparisons for every box with non-short-circuit operators.
+ * Loop has no data-dependent branches, so that JIT compiler can unroll it. Used, if Vector API is not available.
+ *
+ * @author Mikhail Kondratev
+ */
+public class ScalarBoxScanKernel implements BoxScanKernel {
+
+    @Override
+    public void scanInside(final long[] left, final long[] top, final long[] right, final long[] bottom, final int count,
+                           final long areaLeft, final long areaTop, final long areaRight, final long areaBottom,
+                           final long[] matches) {
+        for (int i = 0; i < count; i++) {
+            final boolean match = left[i] >= areaLeft
+                    & top[i] >= areaTop
+                    & right[i] <= areaRight
+                    & bottom[i] <= areaBottom;
+
+            matches[i >>> 6] |= (match ? 1L : 0L) << i;
+        }
+    }
+
+    @Override
+    public void scanIntersecting(final long[] left, final long[] top, final long[] right, final long[] bottom, final int count,
+                                 final long areaLeft, final long areaTop, final long areaRight, final long areaBottom,
+                                 final long[] matches) {
+        for (int i = 0; i < count; i++) {
+            final boolean match = left[i] <= areaRight
+                    & top[i] <= areaBottom
+                    & right[i] >= areaLeft
+                    & bottom[i] >= areaTop;
+
+            matches[i >>> 6] |= (match ? 1L : 0L) << i;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package test.widget.server.service.impl;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQueryMode;
+import test.widget.server.domain.Widget;
+import test.widget.server.service.WidgetFilteringService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Filtering implementation, that scans struct-of-arrays coordinates by a {@link BoxScanKernel}.
+ * Complexity is O(n).
+ * <p/>
+ * Edges of widgets are copied block by block into separate arrays, then the kernel evaluates
+ * all four comparisons for the block, and packs results into a match bitmap.
+ * Matching widgets are collected by iterating set bits of the bitmap.
+ * <p/>
+ * Kernel comparing several widgets at once by Vector API is used, if it is built and module
+ * <code>jdk.incubator.vector</code> is added to the JVM, otherwise scalar kernel is used.
+ *
+ * @author Mikhail Kondratev
+ */
+@Slf4j
+public class VectorizedWidgetFilteringService implements WidgetFilteringService {
+
+    /**
+     * Number of widgets, which coordinates are copied and scanned at once, so that arrays stay in CPU cache.
+     */
+    private static final int BLOCK_SIZE = 1024;
+
+    /**
+     * Name of Vector API module.
+     */
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    /**
+     * Name of kernel class using Vector API, which is built only by JDK with that module.
+     */
+    private static final String VECTOR_KERNEL_CLASS = "test.widget.server.service.impl.VectorBoxScanKernel";
+
+    /**
+     * Kernel scanning coordinates.
+     */
+    @Getter
+    private final BoxScanKernel kernel;
+
+    /**
+     * Constructor of service with Vector API kernel, if available, or with scalar kernel.
+     */
+    public VectorizedWidgetFilteringService() {
+        this(loadKernel());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param kernel kernel scanning coordinates.
+     */
+    public VectorizedWidgetFilteringService(final BoxScanKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    @Override
+    public Collection<Widget> filterWidgets(final Collection<Widget> widgets, final Area area, final AreaQueryMode mode) {
+        if (Area.EMPTY_AREA.equals(area)) {
+            return new ArrayList<>(widgets);
+        }
+
+        final Widget[] items = widgets.toArray(new Widget[0]);
+
+        final long[] left = new long[BLOCK_SIZE];
+        final long[] top = new long[BLOCK_SIZE];
+        final long[] right = new long[BLOCK_SIZE];
+        final long[] bottom = new long[BLOCK_SIZE];
+        final long[] matches = new long[BLOCK_SIZE / Long.SIZE];
+
+        final long areaLeft = area.getX();
+        final long areaTop = area.getY();
+        final long areaRight = (long) area.getX() + area.getWidth();
+        final long areaBottom = (long) area.getY() + area.getHeight();
+
+        final List<Widget> found = new ArrayList<>();
+
+        for (int blockStart = 0; blockStart < items.length; blockStart += BLOCK_SIZE) {
+            final int blockSize = Math.min(BLOCK_SIZE, items.length - blockStart);
+
+            for (int i = 0; i < blockSize; i++) {
+                final Widget widget = items[blockStart + i];
+                left[i] = widget.getX();
+                top[i] = widget.getY();
+                right[i] = (long) widget.getX() + widget.getWidth();
+                bottom[i] = (long) widget.getY() + widget.getHeight();
+            }
+
+            Arrays.fill(matches, 0);
+            if (mode == AreaQueryMode.INSIDE) {
+                kernel.scanInside(left, top, right, bottom, blockSize, areaLeft, areaTop, areaRight, areaBottom, matches);
+            } else {
+                kernel.scanIntersecting(left, top, right, bottom, blockSize, areaLeft, areaTop, areaRight, areaBottom, matches);
+            }
+
+            for (int word = 0; word < matches.length; word++) {
+                long bits = matches[word];
+                while (bits != 0) {
+                    found.add(items[blockStart + word * Long.SIZE + Long.numberOfTrailingZeros(bits)]);
+                    bits &= bits - 1;
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Loads Vector API kernel, if Vector API module is present and the kernel is built, otherwise creates scalar kernel.
+     *
+     * @return kernel scanning coordinates.
+     */
+    private static BoxScanKernel loadKernel() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            log.info("Module {} is not added, widgets are scanned by scalar kernel", VECTOR_MODULE);
+            return new ScalarBoxScanKernel();
+        }
+
+        try {
+            return (BoxScanKernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.info("Vector API kernel is not available, widgets are scanned by scalar kernel: {}", e.toString());
+            return new ScalarBoxScanKernel();
+        }
+    }
+}
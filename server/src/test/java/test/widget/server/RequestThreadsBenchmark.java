@@ -0,0 +1,196 @@
+package test.widget.server;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load benchmark of widget endpoints with database repository, handling requests on platform threads
+ * and on virtual threads.
+ * <p/>
+ * Server is started with embedded H2 database on a random port and is driven over HTTP by concurrent clients,
+ * so that requests go through Tomcat, widget service locking, database repository and Hikari connection pool.
+ * Three of four requests read a widget by id, the rest update a widget. Platform threads mode is limited
+ * by Tomcat threads, 200 by default; virtual threads mode is limited by database connections,
+ * as every request holds a connection for it's transaction. Virtual threads mode requires JDK 21 or later.
+ *
+ * @author Mikhail Kondratev
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestThreadsBenchmark {
+
+    /**
+     * Number of widgets in database.
+     */
+    private static final int WIDGETS_COUNT = 1000;
+
+    /**
+     * Pattern of widget identifier in JSON response.
+     */
+    private static final Pattern ID_PATTERN = Pattern.compile("\"id\"\\s*:\\s*\"([^\"]+)\"");
+
+    /**
+     * Threads type param.
+     */
+    @Param({"PLATFORM", "VIRTUAL"})
+    @SuppressWarnings("unused")
+    private ThreadsType threadsType;
+
+    /**
+     * Max number of database connections, 10 is Hikari default.
+     */
+    @Param({"10", "50"})
+    @SuppressWarnings("unused")
+    private Integer connectionPoolSize;
+
+    /**
+     * Concurrent requests count.
+     */
+    @Param({"200", "1000"})
+    @SuppressWarnings("unused")
+    private Integer requestsCount;
+
+    /**
+     * Started server.
+     */
+    private ServletWebServerApplicationContext context;
+
+    /**
+     * Client sending requests without a thread per request.
+     */
+    private HttpClient client;
+
+    /**
+     * URI of widgets endpoint.
+     */
+    private String widgetsUri;
+
+    /**
+     * Identifiers of widgets in database.
+     */
+    private List<String> ids;
+
+    /**
+     * Generator of requested widgets.
+     */
+    private final Random random = new Random(42);
+
+    public static void main(String[] args) throws RunnerException {
+        final Options opt = new OptionsBuilder()
+                .include(RequestThreadsBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        if (threadsType == ThreadsType.VIRTUAL && !VirtualThreads.isSupported()) {
+            throw new IllegalStateException("Virtual threads are not supported by JDK " + Runtime.version());
+        }
+
+        context = (ServletWebServerApplicationContext) SpringApplication.run(ServerApplication.class,
+                "--spring.profiles.active=h2",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID(),
+                "--spring.datasource.hikari.maximum-pool-size=" + connectionPoolSize,
+                "--server.port=0",
+                "--server.widget.virtual-threads-enabled=" + (threadsType == ThreadsType.VIRTUAL),
+                "--logging.level.root=WARN");
+
+        client = HttpClient.newHttpClient();
+        widgetsUri = "http://localhost:" + context.getWebServer().getPort() + "/widgets";
+
+        ids = new ArrayList<>(WIDGETS_COUNT);
+        for (int i = 0; i < WIDGETS_COUNT; i++) {
+            final HttpResponse<String> response = client.send(jsonRequest(widgetsUri)
+                    .POST(HttpRequest.BodyPublishers.ofString(widgetJson()))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+
+            final Matcher matcher = ID_PATTERN.matcher(response.body());
+            if (response.statusCode() != 201 || !matcher.find()) {
+                throw new IllegalStateException("Failed to create widget: " + response.statusCode() + " " + response.body());
+            }
+
+            ids.add(matcher.group(1));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Sends all requests concurrently and waits for their responses.
+     */
+    @Benchmark
+    public void benchmark() {
+        final List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(requestsCount);
+
+        for (int i = 0; i < requestsCount; i++) {
+            final String uri = widgetsUri + "/" + ids.get(random.nextInt(ids.size()));
+            final HttpRequest request = i % 4 == 0
+                    ? jsonRequest(uri).PUT(HttpRequest.BodyPublishers.ofString(widgetJson())).build()
+                    : jsonRequest(uri).GET().build();
+
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+
+        for (final CompletableFuture<HttpResponse<Void>> response : responses) {
+            final int status = response.join().statusCode();
+            if (status != 200) {
+                throw new IllegalStateException("Unexpected response status: " + status);
+            }
+        }
+    }
+
+    /**
+     * Creates request builder with JSON content type.
+     *
+     * @param uri request URI.
+     * @return request builder.
+     */
+    private static HttpRequest.Builder jsonRequest(final String uri) {
+        return HttpRequest.newBuilder(URI.create(uri))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json");
+    }
+
+    /**
+     * @return JSON of widget with random placement.
+     */
+    private String widgetJson() {
+        return "{\"x\":" + random.nextInt(10000) + ",\"y\":" + random.nextInt(10000)
+                + ",\"width\":" + (1 + random.nextInt(100)) + ",\"height\":" + (1 + random.nextInt(100)) + "}";
+    }
+
+    /**
+     * Type of threads, that handle requests.
+     */
+    public enum ThreadsType {
+        PLATFORM,
+        VIRTUAL
+    }
+}
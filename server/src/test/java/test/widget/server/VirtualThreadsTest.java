@@ -0,0 +1,45 @@
+package test.widget.server;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link VirtualThreads}.
+ *
+ * @author Mikhail Kondratev
+ */
+public class VirtualThreadsTest {
+
+    /**
+     * Executor should run tasks on named virtual threads if supported, and fail to be created otherwise.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testThreadPerTaskExecutor() throws Exception {
+        //given
+        //when
+        //then
+        if (!VirtualThreads.isSupported()) {
+            assertThatThrownBy(() -> VirtualThreads.newThreadPerTaskExecutor("test-"))
+                    .isInstanceOf(IllegalStateException.class);
+            return;
+        }
+
+        final ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test-");
+        try {
+            final String threadName = executor.submit(() -> Thread.currentThread().getName()).get();
+            final Boolean isVirtual = executor.submit(() -> (Boolean) Thread.class.getMethod("isVirtual")
+                    .invoke(Thread.currentThread())).get();
+
+            assertThat(threadName).startsWith("test-");
+            assertThat(isVirtual).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package test.widget.server.controller.converter;
+
+import org.junit.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import test.widget.server.domain.Widget;
+
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link WidgetBinaryHttpMessageConverter}.
+ *
+ * @author Mikhail Kondratev
+ */
+public class WidgetBinaryHttpMessageConverterTest {
+
+    /**
+     * Type of widget collections.
+     */
+    private static final Type WIDGETS_TYPE = new ParameterizedTypeReference<Collection<Widget>>() {
+    }.getType();
+
+    /**
+     * Converter to be tested.
+     */
+    private final WidgetBinaryHttpMessageConverter converter = new WidgetBinaryHttpMessageConverter();
+
+    /**
+     * Written widgets should be read back with the same values, timestamps truncated to milliseconds.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        //given
+        final List<Widget> widgets = List.of(
+                createWidget(UUID.randomUUID().toString(), -100, Integer.MIN_VALUE,
+                        LocalDateTime.of(2020, 5, 30, 12, 0, 1, 123_456_789)),
+                createWidget("custom id", 0, -1, null),
+                createWidget("\u00c4BC", Integer.MAX_VALUE, Integer.MAX_VALUE, LocalDateTime.of(1970, 1, 1, 0, 0)));
+
+        //when
+        final MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        converter.write(widgets, WIDGETS_TYPE, WidgetBinaryHttpMessageConverter.MEDIA_TYPE, outputMessage);
+
+        final List<Widget> readWidgets = new ArrayList<>(converter.read(WIDGETS_TYPE, null,
+                new MockHttpInputMessage(outputMessage.getBodyAsBytes())));
+
+        //then
+        assertThat(outputMessage.getHeaders().getContentType()).isEqualTo(WidgetBinaryHttpMessageConverter.MEDIA_TYPE);
+        assertThat(readWidgets).hasSize(widgets.size());
+
+        for (int i = 0; i < widgets.size(); i++) {
+            assertThat(readWidgets.get(i))
+                    .isEqualToIgnoringGivenFields(widgets.get(i), "lastModifiedSecond", "lastModifiedNano");
+        }
+
+        assertThat(readWidgets.get(0).getLastModified()).isEqualTo(LocalDateTime.of(2020, 5, 30, 12, 0, 1, 123_000_000));
+        assertThat(readWidgets.get(1).getLastModified()).isNull();
+        assertThat(readWidgets.get(2).getLastModified()).isEqualTo(widgets.get(2).getLastModified());
+    }
+
+    /**
+     * Widget with UUID identifier and z-sorted neighbour should take 41 fixed bytes and a single z byte.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testCompactEncoding() throws Exception {
+        //given
+        final List<Widget> widgets = List.of(
+                createWidget(UUID.randomUUID().toString(), 0, 0, null),
+                createWidget(UUID.randomUUID().toString(), 0, 1, null));
+
+        //when
+        final MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        converter.write(widgets, WIDGETS_TYPE, WidgetBinaryHttpMessageConverter.MEDIA_TYPE, outputMessage);
+
+        //then
+        assertThat(outputMessage.getBodyAsBytes()).hasSize(1 + 2 * (1 + 16 + 4 * 4 + 1 + 8));
+    }
+
+    /**
+     * Converter should only write widget collections.
+     */
+    @Test
+    public void testSupportedTypes() {
+        //given
+        final Type stringsType = new ParameterizedTypeReference<List<String>>() {
+        }.getType();
+
+        //when
+        //then
+        assertThat(converter.canWrite(WIDGETS_TYPE, List.class, WidgetBinaryHttpMessageConverter.MEDIA_TYPE)).isTrue();
+        assertThat(converter.canWrite(stringsType, List.class, WidgetBinaryHttpMessageConverter.MEDIA_TYPE)).isFalse();
+        assertThat(converter.canWrite(Widget.class, Widget.class, WidgetBinaryHttpMessageConverter.MEDIA_TYPE)).isFalse();
+        assertThat(converter.canWrite(WIDGETS_TYPE, List.class, MediaType.APPLICATION_JSON)).isFalse();
+    }
+
+    /**
+     * Creates widget with specified identifier, x coordinate, z-index and last modification time.
+     *
+     * @param id           widget identifier.
+     * @param x            x coordinate.
+     * @param z            z-index.
+     * @param lastModified last modification time.
+     * @return created widget.
+     */
+    private static Widget createWidget(final String id, final int x, final int z, final LocalDateTime lastModified) {
+        final Widget widget = new Widget();
+        widget.setId(id);
+        widget.setX(x);
+        widget.setY(x / 2);
+        widget.setZ(z);
+        widget.setWidth(10);
+        widget.setHeight(20);
+        widget.setLastModified(lastModified);
+
+        return widget;
+    }
+}
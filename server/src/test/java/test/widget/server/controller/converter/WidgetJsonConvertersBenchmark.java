@@ -0,0 +1,134 @@
+package test.widget.server.controller.converter;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import test.widget.server.domain.Widget;
+
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of writing widget pages to JSON by Jackson and by {@link WidgetJsonHttpMessageConverter}.
+ * <p/>
+ * Run with GC profiler to compare allocation rate per page.
+ *
+ * @author Mikhail Kondratev
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WidgetJsonConvertersBenchmark {
+
+    /**
+     * Type of widget collections.
+     */
+    private static final Type WIDGETS_TYPE = new ParameterizedTypeReference<List<Widget>>() {
+    }.getType();
+
+    /**
+     * Converter type param.
+     */
+    @Param({"JACKSON", "WIDGET"})
+    @SuppressWarnings("unused")
+    private ConverterType converterType;
+
+    /**
+     * Widgets count in a page.
+     */
+    @Param({"1", "10", "500"})
+    @SuppressWarnings("unused")
+    private Integer widgetsCount;
+
+    /**
+     * Converter to be measured.
+     */
+    private GenericHttpMessageConverter<Object> converter;
+
+    /**
+     * Page of widgets.
+     */
+    private List<Widget> widgets;
+
+    /**
+     * Output message, that discards written bytes.
+     */
+    private HttpOutputMessage outputMessage;
+
+    public static void main(String[] args) throws RunnerException {
+        final Options opt = new OptionsBuilder()
+                .include(WidgetJsonConvertersBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void setup() {
+        switch (converterType) {
+            case JACKSON:
+                converter = new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json()
+                        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                        .build());
+                break;
+
+            case WIDGET:
+                converter = new WidgetJsonHttpMessageConverter();
+                break;
+        }
+
+        widgets = new ArrayList<>(widgetsCount);
+        for (int i = 0; i < widgetsCount; i++) {
+            widgets.add(new Widget(UUID.randomUUID().toString(), i * 10, i * 20, i, 100, 200,
+                    LocalDateTime.of(2020, 5, 30, 12, 0, i % 60, i * 1_000_000), false));
+        }
+
+        final HttpHeaders headers = new HttpHeaders();
+        final OutputStream body = OutputStream.nullOutputStream();
+
+        outputMessage = new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return body;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        };
+    }
+
+    @Benchmark
+    public void benchmark() throws Exception {
+        converter.write(widgets, WIDGETS_TYPE, MediaType.APPLICATION_JSON, outputMessage);
+    }
+
+    /**
+     * Converter type as an enum for choosing implementation based on param.
+     */
+    public enum ConverterType {
+        JACKSON,
+        WIDGET
+    }
+}
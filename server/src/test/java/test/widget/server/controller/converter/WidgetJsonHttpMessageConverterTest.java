@@ -0,0 +1,152 @@
+package test.widget.server.controller.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import test.widget.server.domain.ProjectedWidget;
+import test.widget.server.domain.ProjectedWidgets;
+import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetField;
+
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link WidgetJsonHttpMessageConverter}.
+ *
+ * @author Mikhail Kondratev
+ */
+public class WidgetJsonHttpMessageConverterTest {
+
+    /**
+     * Type of widget collections.
+     */
+    private static final Type WIDGETS_TYPE = new ParameterizedTypeReference<List<Widget>>() {
+    }.getType();
+
+    /**
+     * Object mapper configured as in spring boot application.
+     */
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    /**
+     * Converter to be tested.
+     */
+    private final WidgetJsonHttpMessageConverter converter = new WidgetJsonHttpMessageConverter();
+
+    /**
+     * Widgets should be written exactly as by Jackson.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testSameOutputAsJackson() throws Exception {
+        //given
+        final List<Widget> widgets = List.of(
+                createWidget(UUID.randomUUID().toString(), 0, LocalDateTime.of(2020, 5, 30, 12, 0, 0)),
+                createWidget(null, Integer.MIN_VALUE, null),
+                createWidget("quote \" slash \\ / tab \t line \n\r\b\f \u0001 \u001f", Integer.MAX_VALUE,
+                        LocalDateTime.of(1, 1, 1, 0, 0, 0, 100_000_000)),
+                createWidget("\u00e9 \u20ac \ud83d\ude00", -12345, LocalDateTime.of(2020, 12, 31, 23, 59, 59, 123_456_789)),
+                createWidget("1", 7, LocalDateTime.of(2020, 1, 1, 1, 1, 1, 1_000)),
+                createWidget("2", 70, LocalDateTime.of(99999, 1, 1, 0, 0)));
+        widgets.get(0).setNew(true);
+
+        //when
+        //then
+        for (final Widget widget : widgets) {
+            assertThat(write(widget, Widget.class)).isEqualTo(objectMapper.writeValueAsString(widget));
+        }
+
+        assertThat(write(widgets, WIDGETS_TYPE)).isEqualTo(objectMapper.writeValueAsString(widgets));
+        assertThat(write(List.of(), WIDGETS_TYPE)).isEqualTo("[]");
+    }
+
+    /**
+     * Projected widgets should be written with requested fields only, in the order of declaration.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testProjectedWidgets() throws Exception {
+        //given
+        final Widget widget = createWidget("1", 5, null);
+        final Set<WidgetField> fields = EnumSet.of(WidgetField.Z, WidgetField.ID, WidgetField.LAST_MODIFIED);
+
+        //when
+        //then
+        assertThat(write(new ProjectedWidget(widget, fields), ProjectedWidget.class))
+                .isEqualTo("{\"id\":\"1\",\"z\":5,\"lastModified\":null}");
+        assertThat(write(new ProjectedWidgets(List.of(widget, widget), EnumSet.of(WidgetField.WIDTH)), ProjectedWidgets.class))
+                .isEqualTo("[{\"width\":100},{\"width\":100}]");
+    }
+
+    /**
+     * Converter should only write widgets and widget collections as JSON, and never read.
+     */
+    @Test
+    public void testSupportedTypes() {
+        //given
+        final Type stringsType = new ParameterizedTypeReference<List<String>>() {
+        }.getType();
+
+        //when
+        //then
+        assertThat(converter.canWrite(Widget.class, Widget.class, MediaType.APPLICATION_JSON)).isTrue();
+        assertThat(converter.canWrite(null, Widget.class, MediaType.APPLICATION_JSON)).isTrue();
+        assertThat(converter.canWrite(WIDGETS_TYPE, List.class, MediaType.APPLICATION_JSON)).isTrue();
+        assertThat(converter.canWrite(stringsType, List.class, MediaType.APPLICATION_JSON)).isFalse();
+        assertThat(converter.canWrite(Widget.class, Widget.class, MediaType.APPLICATION_XML)).isFalse();
+        assertThat(converter.canRead(Widget.class, null, MediaType.APPLICATION_JSON)).isFalse();
+    }
+
+    /**
+     * Writes value with converter.
+     *
+     * @param value value to be written.
+     * @param type  value type.
+     * @return written JSON.
+     * @throws Exception on write error.
+     */
+    private String write(final Object value, final Type type) throws Exception {
+        final MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        converter.write(value, type, MediaType.APPLICATION_JSON, outputMessage);
+
+        assertThat(outputMessage.getHeaders().getContentLength()).isEqualTo(outputMessage.getBodyAsBytes().length);
+
+        return outputMessage.getBodyAsString();
+    }
+
+    /**
+     * Creates widget with specified identifier, z-index and last modification time.
+     *
+     * @param id           widget identifier.
+     * @param z            z-index.
+     * @param lastModified last modification time.
+     * @return created widget.
+     */
+    private static Widget createWidget(final String id, final int z, final LocalDateTime lastModified) {
+        final Widget widget = new Widget();
+        widget.setId(id);
+        widget.setX(z * 3);
+        widget.setY(-z);
+        widget.setZ(z);
+        widget.setWidth(100);
+        widget.setHeight(0);
+        widget.setLastModified(lastModified);
+
+        return widget;
+    }
+}
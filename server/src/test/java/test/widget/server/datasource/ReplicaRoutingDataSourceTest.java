@@ -0,0 +1,194 @@
+package test.widget.server.datasource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import test.widget.server.event.WidgetsChangedEvent;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ReplicaRoutingDataSource} and {@link ReplicaStalenessGuard} with two embedded databases.
+ *
+ * @author Mikhail Kondratev
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    /**
+     * URL of the primary database.
+     */
+    private static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary";
+
+    /**
+     * URL of the replica database.
+     */
+    private static final String REPLICA_URL = "jdbc:h2:mem:routing-replica";
+
+    /**
+     * Primary database.
+     */
+    private JdbcTemplate primary;
+
+    /**
+     * Replica database.
+     */
+    private JdbcTemplate replica;
+
+    /**
+     * Guard to be tested.
+     */
+    private ReplicaStalenessGuard guard;
+
+    /**
+     * Data source to be tested.
+     */
+    private DataSource dataSource;
+
+    @Before
+    public void setUp() {
+        primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL + ";DB_CLOSE_DELAY=-1"));
+        replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL + ";DB_CLOSE_DELAY=-1"));
+        replica.execute("CREATE TABLE IF NOT EXISTS widget_replica_heartbeat (id INT PRIMARY KEY, version BIGINT NOT NULL)");
+
+        guard = new ReplicaStalenessGuard(primary.getDataSource(), replica.getDataSource(), 1000);
+        guard.start();
+        dataSource = ReplicaRoutingDataSource.create(guard);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        guard.close();
+        primary.execute("DROP ALL OBJECTS");
+        replica.execute("DROP ALL OBJECTS");
+    }
+
+    /**
+     * Replica should be fresh only after the heartbeat of all committed modifications is replicated,
+     * including modifications of canvases with lower versions.
+     */
+    @Test
+    public void testStalenessGuard() {
+        //given
+        //when
+        guard.check();
+
+        //then
+        assertThat(guard.isReplicaFresh()).isFalse();
+
+        replicateHeartbeat();
+        guard.check();
+        assertThat(guard.isReplicaFresh()).isTrue();
+
+        guard.onWidgetsChanged(new WidgetsChangedEvent(5, List.of()));
+        assertThat(guard.isReplicaFresh()).isFalse();
+
+        guard.check();
+        assertThat(guard.isReplicaFresh()).isFalse();
+
+        replicateHeartbeat();
+        guard.check();
+        assertThat(guard.isReplicaFresh()).isTrue();
+
+        guard.onWidgetsChanged(new WidgetsChangedEvent(1, List.of()));
+        assertThat(guard.isReplicaFresh()).isFalse();
+    }
+
+    /**
+     * Restarted guard should count commits on from the heartbeat of the previous start, so that the replica
+     * is stale until it has a heartbeat written after the restart, and a guard behind other servers
+     * should never lower the heartbeat.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testHeartbeatIsMonotonicAcrossRestarts() throws Exception {
+        //given
+        for (int i = 0; i < 41; i++) {
+            guard.onWidgetsChanged(new WidgetsChangedEvent(1, List.of()));
+        }
+        guard.check();
+        replicateHeartbeat();
+        guard.close();
+
+        //when
+        guard = new ReplicaStalenessGuard(primary.getDataSource(), replica.getDataSource(), 1000);
+        guard.start();
+
+        //then
+        guard.check();
+        assertThat(guard.isReplicaFresh()).isFalse();
+        assertThat(getHeartbeat()).isEqualTo(42);
+
+        replicateHeartbeat();
+        guard.check();
+        assertThat(guard.isReplicaFresh()).isTrue();
+
+        final ReplicaStalenessGuard behind = new ReplicaStalenessGuard(primary.getDataSource(), replica.getDataSource(), 1000);
+        behind.check();
+        assertThat(getHeartbeat()).isEqualTo(42);
+        behind.onWidgetsChanged(new WidgetsChangedEvent(1, List.of()));
+        assertThat(behind.isReplicaFresh()).isFalse();
+        behind.close();
+    }
+
+    /**
+     * Only read-only transactions should be routed to the replica, and only while it is fresh.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testRouting() throws Exception {
+        //given
+        guard.check();
+        replicateHeartbeat();
+        guard.check();
+
+        //when
+        //then
+        assertThat(getConnectionUrl(false)).isEqualTo(PRIMARY_URL);
+        assertThat(getConnectionUrl(true)).isEqualTo(REPLICA_URL);
+
+        guard.onWidgetsChanged(new WidgetsChangedEvent(1, List.of()));
+        assertThat(getConnectionUrl(true)).isEqualTo(PRIMARY_URL);
+    }
+
+    /**
+     * Copies heartbeat from the primary to the replica, as replication would do.
+     */
+    private void replicateHeartbeat() {
+        final Long version = primary.queryForObject("SELECT version FROM widget_replica_heartbeat WHERE id = 1", Long.class);
+        replica.update("DELETE FROM widget_replica_heartbeat");
+        replica.update("INSERT INTO widget_replica_heartbeat (id, version) VALUES (1, ?)", version);
+    }
+
+    /**
+     * @return heartbeat in the primary.
+     */
+    private long getHeartbeat() {
+        return requireNonNull(primary.queryForObject("SELECT version FROM widget_replica_heartbeat WHERE id = 1", Long.class));
+    }
+
+    /**
+     * Gets URL of the database, to which a connection is routed.
+     *
+     * @param readOnly whether current transaction is read-only.
+     * @return database URL.
+     * @throws Exception on connection error.
+     */
+    private String getConnectionUrl(final boolean readOnly) throws Exception {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getURL();
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package test.widget.server.replication;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import test.widget.server.ServerConfigurationProperties;
+import test.widget.server.domain.Area;
+import test.widget.server.domain.Widget;
+import test.widget.server.event.WidgetsChangedEvent;
+import test.widget.server.exception.ReadOnlyReplicaException;
+import test.widget.server.repository.impl.WidgetHeapRepository;
+import test.widget.server.service.WidgetAreaCache;
+import test.widget.server.service.WidgetService;
+import test.widget.server.service.impl.BasicWidgetFilteringService;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link WidgetReplicationLeader} and {@link WidgetReplicationFollower}.
+ *
+ * @author Mikhail Kondratev
+ */
+public class WidgetReplicationTest {
+
+    /**
+     * Max time to wait for replication, in milliseconds.
+     */
+    private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * Widget service of the leader.
+     */
+    private WidgetService leaderService;
+
+    /**
+     * Replication leader.
+     */
+    private WidgetReplicationLeader leader;
+
+    /**
+     * Widget service of the replica.
+     */
+    private WidgetService replicaService;
+
+    /**
+     * Replication follower.
+     */
+    private WidgetReplicationFollower follower;
+
+    @Before
+    public void setUp() throws Exception {
+        final ServerConfigurationProperties leaderProperties = new ServerConfigurationProperties();
+        leaderProperties.setLockTimeout(1);
+
+        final WidgetReplicationLeader[] leaderHolder = new WidgetReplicationLeader[1];
+        leaderService = new WidgetService(new WidgetHeapRepository(), leaderProperties, new BasicWidgetFilteringService(),
+                new WidgetAreaCache(leaderProperties), event -> leaderHolder[0].onWidgetsChanged((WidgetsChangedEvent) event));
+        leader = new WidgetReplicationLeader(leaderService, 0);
+        leaderHolder[0] = leader;
+        leader.start();
+
+        final ServerConfigurationProperties replicaProperties = new ServerConfigurationProperties();
+        replicaProperties.setLockTimeout(1);
+        replicaProperties.setReplicationLeader("localhost:" + leader.getLocalPort());
+
+        replicaService = new WidgetService(new WidgetHeapRepository(), replicaProperties, new BasicWidgetFilteringService(),
+                new WidgetAreaCache(replicaProperties), event -> {
+        });
+        follower = new WidgetReplicationFollower(replicaService, replicaProperties.getReplicationLeader());
+    }
+
+    @After
+    public void tearDown() {
+        follower.close();
+        leader.close();
+    }
+
+    /**
+     * Replica connected after changes should receive all widgets, then every following change,
+     * and should reach the version of the leader.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testReplication() throws Exception {
+        //given
+        final Widget first = leaderService.createNew(0, 0, 10, 10, null);
+        leaderService.createNew(10, 10, 10, 10, 0);
+
+        //when
+        follower.start();
+        await(() -> replicaService.getVersion() == leaderService.getVersion());
+
+        final Widget third = leaderService.createNew(20, 20, 10, 10, null);
+        leaderService.updateOrCreate(third.getId(), 30, null, null, null, 0);
+        leaderService.deleteById(first.getId());
+
+        //then
+        await(() -> replicaService.getVersion() == leaderService.getVersion());
+
+        assertThat(sorted(replicaService.getWidgetsInsideArea(Area.EMPTY_AREA)))
+                .usingElementComparatorIgnoringFields("isNew")
+                .containsExactlyElementsOf(sorted(leaderService.getWidgetsInsideArea(Area.EMPTY_AREA)));
+        assertThat(leader.getReplicasCount()).isEqualTo(1);
+    }
+
+    /**
+     * Snapshot should not be taken while modifications can't be blocked, and replica should get it once they can.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testSnapshotWhileWidgetsAreBusy() throws Exception {
+        //given
+        leaderService.createNew(0, 0, 10, 10, null);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<Boolean> busy = leaderService.executeAsync(false,
+                () -> release.await(TIMEOUT, TimeUnit.MILLISECONDS), command -> new Thread(command).start());
+
+        //when
+        follower.start();
+
+        //then
+        assertThatThrownBy(leaderService::getSnapshot).isInstanceOf(TimeoutException.class);
+        assertThat(replicaService.getWidgetsInsideArea(Area.EMPTY_AREA)).isEmpty();
+
+        release.countDown();
+        busy.get(TIMEOUT, TimeUnit.MILLISECONDS);
+
+        await(() -> replicaService.getVersion() == leaderService.getVersion());
+        assertThat(replicaService.getWidgetsInsideArea(Area.EMPTY_AREA)).hasSize(1);
+    }
+
+    /**
+     * Closed leader should stop threads sending changes, which wait for them.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testClosedLeaderStopsSenders() throws Exception {
+        //given
+        follower.start();
+        await(() -> leader.getReplicasCount() == 1);
+
+        //when
+        leader.close();
+
+        //then
+        assertThat(Thread.getAllStackTraces().keySet())
+                .noneMatch(thread -> thread.getName().equals("widget-replication-sender"));
+        assertThat(leader.getReplicasCount()).isZero();
+    }
+
+    /**
+     * Replica should reject direct modifications.
+     */
+    @Test
+    public void testReadOnlyReplica() {
+        //given
+        //when
+        //then
+        assertThatThrownBy(() -> replicaService.createNew(0, 0, 10, 10, null)).isInstanceOf(ReadOnlyReplicaException.class);
+        assertThatThrownBy(() -> replicaService.deleteById("1")).isInstanceOf(ReadOnlyReplicaException.class);
+    }
+
+    /**
+     * Sorts widgets by identifier.
+     *
+     * @param widgets widgets.
+     * @return sorted widgets.
+     */
+    private static List<Widget> sorted(final Collection<Widget> widgets) {
+        return widgets.stream().sorted(Comparator.comparing(Widget::getId)).collect(Collectors.toList());
+    }
+
+    /**
+     * Waits until condition is met.
+     *
+     * @param condition condition.
+     * @throws InterruptedException if the thread was interrupted.
+     */
+    private static void await(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("replication timeout").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
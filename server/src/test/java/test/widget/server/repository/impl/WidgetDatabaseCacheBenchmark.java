@@ -0,0 +1,108 @@
+package test.widget.server.repository.impl;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import test.widget.server.ServerApplication;
+import test.widget.server.domain.Widget;
+import test.widget.server.service.WidgetService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Benchmark of finding widgets by identifier in embedded database with and without second-level cache.
+ *
+ * @author Mikhail Kondratev
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WidgetDatabaseCacheBenchmark {
+
+    /**
+     * Whether second-level cache is enabled.
+     */
+    @Param({"false", "true"})
+    @SuppressWarnings("unused")
+    private boolean cacheEnabled;
+
+    /**
+     * Widgets count to be generated.
+     */
+    @Param({"1000", "10000"})
+    @SuppressWarnings("unused")
+    private Integer widgetsCount;
+
+    /**
+     * Application context with database repository.
+     */
+    private ConfigurableApplicationContext context;
+
+    /**
+     * Service to be measured.
+     */
+    private WidgetService widgetService;
+
+    /**
+     * Identifiers of generated widgets.
+     */
+    private List<String> ids;
+
+    public static void main(String[] args) throws RunnerException {
+        final Options opt = new OptionsBuilder()
+                .include(WidgetDatabaseCacheBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        context = new SpringApplicationBuilder(ServerApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("h2")
+                .properties("spring.datasource.url=jdbc:h2:mem:cache-benchmark",
+                        "spring.h2.console.enabled=false",
+                        "server.widget.database-cache-enabled=" + cacheEnabled)
+                .run();
+        widgetService = context.getBean(WidgetService.class);
+
+        final Random random = new Random(42);
+        ids = new ArrayList<>(widgetsCount);
+        for (int i = 0; i < widgetsCount; i++) {
+            final Widget widget = widgetService.createNew(random.nextInt(10000), random.nextInt(10000),
+                    random.nextInt(100) + 1, random.nextInt(100) + 1, null);
+            ids.add(requireNonNull(widget.getId()));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Finds a random widget.
+     *
+     * @return found widget.
+     * @throws Exception on service error.
+     */
+    @Benchmark
+    public Widget benchmark() throws Exception {
+        return widgetService.findById(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+    }
+}
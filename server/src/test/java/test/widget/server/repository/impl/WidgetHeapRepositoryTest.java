@@ -2,7 +2,10 @@ package test.widget.server.repository.impl;
 
 import org.junit.Before;
 import org.junit.Test;
+import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQueryMode;
 import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetStats;
 import test.widget.server.repository.WidgetRepository;
 
 import java.util.List;
@@ -133,4 +136,32 @@ public class WidgetHeapRepositoryTest {
                 .extracting(Widget::getId)
                 .contains("2", "3");
     }
-}
\ No newline at end of file
+
+    /**
+     * Count and stats should be calculated over all saved widgets, stats of empty repository have no bounds.
+     */
+    @Test
+    public void testCountAndStats() {
+        //given
+        final Widget widget1 = new Widget("1", 10, 20, 3, 100, 100, null, false);
+        final Widget widget2 = new Widget("2", -10, 50, -1, Integer.MAX_VALUE, 10, null, false);
+        final Area area = new Area();
+        area.setX(0);
+        area.setY(0);
+        area.setWidth(200);
+        area.setHeight(200);
+
+        //when
+        final WidgetStats emptyStats = repository.getStats();
+        repository.save(widget1);
+        repository.save(widget2);
+
+        //then
+        assertThat(emptyStats).isEqualTo(new WidgetStats(0, null, null, null, null, null, null));
+        assertThat(repository.count()).isEqualTo(2);
+        assertThat(repository.countInArea(area, AreaQueryMode.INSIDE)).isEqualTo(1);
+        assertThat(repository.countInArea(area, AreaQueryMode.INTERSECTS)).isEqualTo(2);
+        assertThat(repository.getStats())
+                .isEqualTo(new WidgetStats(2, -10, 20, (long) Integer.MAX_VALUE - 10, 120L, -1, 3));
+    }
+}
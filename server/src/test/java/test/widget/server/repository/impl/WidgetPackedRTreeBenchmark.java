@@ -0,0 +1,97 @@
+package test.widget.server.repository.impl;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQueryMode;
+import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetField;
+import test.widget.server.service.WidgetFilteringServiceTestUtils;
+import test.widget.server.service.WidgetFilteringServicesBenchmark;
+import test.widget.server.service.impl.RTreeWidgetFilteringService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of building an index of widgets in bulk and finding widgets inside an area by it:
+ * {@link WidgetPackedRTreeHeapRepository} against {@link RTreeWidgetFilteringService}.
+ * <p/>
+ * Widgets, area and widget counts are the same as in {@link WidgetFilteringServicesBenchmark}.
+ * Repository is filled with all widgets and builds it's tree once, when the last widget is saved.
+ *
+ * @author Mikhail Kondratev
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WidgetPackedRTreeBenchmark {
+
+    /**
+     * Index type param.
+     */
+    @Param({"PACKED_TREE_REPOSITORY", "TREE_SERVICE"})
+    @SuppressWarnings("unused")
+    private IndexType indexType;
+
+    /**
+     * Widgets count to be generated.
+     */
+    @Param({"10", "100", "1000", "10000", "100000", "1000000"})
+    @SuppressWarnings("unused")
+    private Integer widgetsCount;
+
+    /**
+     * Filtering area.
+     */
+    private Area area;
+
+    /**
+     * Widgets to be indexed.
+     */
+    private List<Widget> widgets;
+
+    public static void main(String[] args) throws RunnerException {
+        final Options opt = new OptionsBuilder()
+                .include(WidgetPackedRTreeBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void setup() {
+        area = WidgetFilteringServiceTestUtils.createArea();
+        widgets = WidgetFilteringServiceTestUtils.generateWidgets(widgetsCount);
+    }
+
+    @Benchmark
+    public void benchmark(final Blackhole blackhole) {
+        switch (indexType) {
+            case PACKED_TREE_REPOSITORY:
+                final WidgetPackedRTreeHeapRepository repository = new WidgetPackedRTreeHeapRepository(widgetsCount, Runnable::run);
+                widgets.forEach(repository::save);
+                blackhole.consume(repository.findInArea(area, AreaQueryMode.INSIDE, WidgetField.ALL));
+                break;
+
+            case TREE_SERVICE:
+                blackhole.consume(new RTreeWidgetFilteringService().filterWidgetsInsideArea(widgets, area));
+                break;
+        }
+    }
+
+    /**
+     * Type of widgets index.
+     */
+    public enum IndexType {
+        PACKED_TREE_REPOSITORY,
+        TREE_SERVICE
+    }
+}
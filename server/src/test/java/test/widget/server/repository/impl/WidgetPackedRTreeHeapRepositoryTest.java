@@ -0,0 +1,171 @@
+package test.widget.server.repository.impl;
+
+import org.junit.Test;
+import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQueryMode;
+import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetField;
+import test.widget.server.repository.WidgetRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link WidgetPackedRTreeHeapRepository}.
+ *
+ * @author Mikhail Kondratev
+ */
+public class WidgetPackedRTreeHeapRepositoryTest {
+
+    /**
+     * Number of written widgets, after which the tree is rebuilt.
+     */
+    private static final int REBUILD_THRESHOLD = 50;
+
+    /**
+     * Widgets found by the tree and among widgets written since it was built, in areas and nearest to points,
+     * should be the same as found by scanning all widgets, while rebuilds are pending, and after them.
+     */
+    @Test
+    public void testRandomWidgetsAcrossRebuilds() {
+        //given
+        final List<Runnable> rebuilds = new ArrayList<>();
+        final WidgetPackedRTreeHeapRepository repository = new WidgetPackedRTreeHeapRepository(REBUILD_THRESHOLD, rebuilds::add);
+        final Random random = new Random(42);
+
+        for (int i = 0; i < 2000; i++) {
+            repository.save(createRandomWidget(random, String.valueOf(i), i));
+        }
+
+        //when
+        //then
+        assertThat(rebuilds).hasSize(1);
+        assertQueriesMatchScan(repository, random);
+
+        rebuilds.remove(0).run();
+        assertQueriesMatchScan(repository, random);
+
+        for (int i = 0; i < 500; i++) {
+            repository.save(createRandomWidget(random, String.valueOf(random.nextInt(2000)), 2000 + i));
+            repository.deleteById(String.valueOf(random.nextInt(2000)));
+
+            if (i % 100 == 0) {
+                assertQueriesMatchScan(repository, random);
+            }
+
+            if (!rebuilds.isEmpty() && random.nextBoolean()) {
+                rebuilds.remove(0).run();
+            }
+        }
+
+        assertQueriesMatchScan(repository, random);
+    }
+
+    /**
+     * Widget moved after the tree was built should be found by it's new placement only.
+     */
+    @Test
+    public void testWidgetMovedAfterBuild() {
+        //given
+        final WidgetPackedRTreeHeapRepository repository = new WidgetPackedRTreeHeapRepository(2, Runnable::run);
+        final Widget widget = createWidget("1", 10, 10, 10, 10, 1);
+        repository.save(widget);
+        repository.save(createWidget("2", 500, 500, 10, 10, 2));
+
+        //when
+        widget.setX(1000);
+        repository.save(widget);
+
+        //then
+        assertThat(repository.findInArea(new Area(0, 0, 100, 100), AreaQueryMode.INTERSECTS, WidgetField.ALL)).isEmpty();
+        assertThat(repository.findInArea(new Area(900, 0, 200, 100), AreaQueryMode.INSIDE, WidgetField.ALL))
+                .extracting(Widget::getId)
+                .containsExactly("1");
+        assertThat(repository.countInArea(new Area(0, 0, 2000, 2000), AreaQueryMode.INSIDE)).isEqualTo(2);
+    }
+
+    /**
+     * Non-positive rebuild threshold should be rejected.
+     */
+    @Test
+    public void testInvalidRebuildThreshold() {
+        //given
+        //when
+        //then
+        assertThatThrownBy(() -> new WidgetPackedRTreeHeapRepository(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Asserts, that widgets found in random areas and nearest to random points are the same as found
+     * by scanning all widgets, and sorted the same way.
+     *
+     * @param repository repository to be checked.
+     * @param random     generator of areas.
+     */
+    private static void assertQueriesMatchScan(final WidgetPackedRTreeHeapRepository repository, final Random random) {
+        for (int i = 0; i < 50; i++) {
+            final Area area = new Area(random.nextInt(4000) - 2000, random.nextInt(4000) - 2000,
+                    random.nextInt(1500), random.nextInt(1500));
+
+            for (final AreaQueryMode mode : AreaQueryMode.values()) {
+                final List<Widget> expected = repository.findAll().stream()
+                        .filter(widget -> mode.matches(area, widget))
+                        .sorted(Comparator.comparingInt(Widget::getZ))
+                        .collect(Collectors.toList());
+
+                assertThat(repository.findInArea(area, mode, WidgetField.ALL)).containsExactlyElementsOf(expected);
+                assertThat(repository.countInArea(area, mode)).isEqualTo(expected.size());
+            }
+
+            final int x = random.nextInt(5000) - 2500;
+            final int y = random.nextInt(5000) - 2500;
+            final int count = 1 + random.nextInt(20);
+
+            assertThat(repository.findNearest(x, y, count))
+                    .containsExactlyElementsOf(WidgetRepository.findNearest(repository.findAll(), x, y, count));
+        }
+    }
+
+    /**
+     * Creates widget with random placement.
+     *
+     * @param random generator of placement.
+     * @param id     widget identifier.
+     * @param z      z-index.
+     * @return created widget.
+     */
+    private static Widget createRandomWidget(final Random random, final String id, final int z) {
+        final int width = random.nextInt(10) == 0 ? random.nextInt(2000) : random.nextInt(150);
+
+        return createWidget(id, random.nextInt(4000) - 2000, random.nextInt(4000) - 2000, width, random.nextInt(150), z);
+    }
+
+    /**
+     * Creates widget.
+     *
+     * @param id     widget identifier.
+     * @param x      x-coordinate.
+     * @param y      y-coordinate.
+     * @param width  width.
+     * @param height height.
+     * @param z      z-index.
+     * @return created widget.
+     */
+    private static Widget createWidget(final String id, final int x, final int y, final int width, final int height, final int z) {
+        final Widget widget = new Widget();
+        widget.setId(id);
+        widget.setX(x);
+        widget.setY(y);
+        widget.setWidth(width);
+        widget.setHeight(height);
+        widget.setZ(z);
+
+        return widget;
+    }
+}
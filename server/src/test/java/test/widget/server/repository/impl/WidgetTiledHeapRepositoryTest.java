@@ -0,0 +1,230 @@
+package test.widget.server.repository.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQueryMode;
+import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetField;
+import test.widget.server.repository.WidgetRepository;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link WidgetTiledHeapRepository}.
+ *
+ * @author Mikhail Kondratev
+ */
+public class WidgetTiledHeapRepositoryTest {
+
+    /**
+     * Side of tiles.
+     */
+    private static final int TILE_SIZE = 100;
+
+    /**
+     * Repository to be tested.
+     */
+    private WidgetTiledHeapRepository repository;
+
+    @Before
+    public void setUp() {
+        repository = new WidgetTiledHeapRepository(TILE_SIZE);
+    }
+
+    /**
+     * Widget spanning several tiles, or too many tiles, should be found once, by any overlapping area,
+     * and should leave old tiles when moved.
+     */
+    @Test
+    public void testWidgetsSpanningTiles() {
+        //given
+        final Widget spanning = createWidget("1", 50, 50, 200, 200, 1);
+        final Widget oversized = createWidget("2", -1000, -1000, 5000, 5000, 2);
+        final Widget small = createWidget("3", 10, 10, 10, 10, 0);
+
+        //when
+        repository.save(spanning);
+        repository.save(oversized);
+        repository.save(small);
+
+        //then
+        assertThat(repository.findInArea(new Area(0, 0, 300, 300), AreaQueryMode.INTERSECTS, WidgetField.ALL))
+                .extracting(Widget::getId)
+                .containsExactly("3", "1", "2");
+        assertThat(repository.findInArea(new Area(0, 0, 300, 300), AreaQueryMode.INSIDE, WidgetField.ALL))
+                .extracting(Widget::getId)
+                .containsExactly("3", "1");
+        assertThat(repository.findInArea(new Area(220, 220, 5, 5), AreaQueryMode.INTERSECTS, WidgetField.ALL))
+                .extracting(Widget::getId)
+                .containsExactly("1", "2");
+
+        spanning.setX(1000);
+        repository.save(spanning);
+        repository.deleteById("2");
+
+        assertThat(repository.findInArea(new Area(0, 0, 300, 300), AreaQueryMode.INTERSECTS, WidgetField.ALL))
+                .extracting(Widget::getId)
+                .containsExactly("3");
+        assertThat(repository.countInArea(new Area(900, 0, 1000, 1000), AreaQueryMode.INSIDE)).isEqualTo(1);
+        assertThat(repository.count()).isEqualTo(2);
+    }
+
+    /**
+     * Found widget modified before it is saved should be matched by it's saved placement, and found once.
+     */
+    @Test
+    public void testWidgetModifiedBeforeSave() {
+        //given
+        repository.save(createWidget("1", 50, 50, 200, 200, 1));
+        final Widget found = repository.findById("1").orElseThrow();
+
+        //when
+        found.setX(-500);
+        found.setY(-500);
+
+        //then
+        assertThat(repository.findInArea(new Area(0, 0, 300, 300), AreaQueryMode.INTERSECTS, WidgetField.ALL))
+                .extracting(Widget::getId)
+                .containsExactly("1");
+        assertThat(repository.countInArea(new Area(0, 0, 300, 300), AreaQueryMode.INSIDE)).isEqualTo(1);
+        assertThat(repository.findInArea(new Area(-500, -500, 100, 100), AreaQueryMode.INTERSECTS, WidgetField.ALL))
+                .isEmpty();
+    }
+
+    /**
+     * Tiles left without widgets should be removed, and created again for new widgets.
+     */
+    @Test
+    public void testEmptyTilesAreRemoved() {
+        //given
+        repository.save(createWidget("1", 50, 50, 200, 200, 1));
+        repository.save(createWidget("2", 60, 60, 10, 10, 2));
+        final int initialTilesCount = repository.getTilesCount();
+
+        //when
+        repository.save(createWidget("1", 1050, 1050, 10, 10, 1));
+        final int movedTilesCount = repository.getTilesCount();
+        repository.deleteById("1");
+        repository.deleteById("2");
+
+        //then
+        assertThat(initialTilesCount).isEqualTo(9);
+        assertThat(movedTilesCount).isEqualTo(2);
+        assertThat(repository.getTilesCount()).isZero();
+
+        repository.save(createWidget("3", 60, 60, 10, 10, 3));
+        assertThat(repository.findInArea(new Area(0, 0, 100, 100), AreaQueryMode.INSIDE, WidgetField.ALL))
+                .extracting(Widget::getId)
+                .containsExactly("3");
+        assertThat(repository.getTilesCount()).isEqualTo(1);
+    }
+
+    /**
+     * Widgets found in tiles should be the same as found by scanning all widgets, and sorted by z-index.
+     */
+    @Test
+    public void testRandomWidgets() {
+        //given
+        final Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            final int size = random.nextInt(10) == 0 ? random.nextInt(2000) : random.nextInt(150);
+            repository.save(createWidget(String.valueOf(i), random.nextInt(4000) - 2000, random.nextInt(4000) - 2000,
+                    size, random.nextInt(150), i));
+        }
+
+        for (int i = 0; i < 500; i++) {
+            final Widget widget = createWidget(String.valueOf(random.nextInt(2000)), random.nextInt(4000) - 2000,
+                    random.nextInt(4000) - 2000, random.nextInt(300), random.nextInt(300), 2000 + i);
+            repository.save(widget);
+            repository.deleteById(String.valueOf(random.nextInt(2000)));
+        }
+
+        //when
+        //then
+        for (int i = 0; i < 200; i++) {
+            final Area area = new Area(random.nextInt(4000) - 2000, random.nextInt(4000) - 2000,
+                    random.nextInt(1500), random.nextInt(1500));
+
+            for (final AreaQueryMode mode : AreaQueryMode.values()) {
+                final List<Widget> expected = repository.findAll().stream()
+                        .filter(widget -> mode.matches(area, widget))
+                        .sorted(Comparator.comparingInt(Widget::getZ))
+                        .collect(Collectors.toList());
+
+                assertThat(repository.findInArea(area, mode, WidgetField.ALL)).containsExactlyElementsOf(expected);
+                assertThat(repository.countInArea(area, mode)).isEqualTo(expected.size());
+            }
+        }
+    }
+
+    /**
+     * Nearest widgets found by rings of tiles around the point should be the same as found by scanning all widgets,
+     * for points among widgets and far from them.
+     */
+    @Test
+    public void testRandomNearestWidgets() {
+        //given
+        final Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            final int size = random.nextInt(10) == 0 ? random.nextInt(2000) : random.nextInt(150);
+            repository.save(createWidget(String.valueOf(i), random.nextInt(4000) - 2000, random.nextInt(4000) - 2000,
+                    size, random.nextInt(150), i));
+        }
+
+        //when
+        //then
+        for (int i = 0; i < 200; i++) {
+            final int range = i % 4 == 0 ? 100_000 : 5000;
+            final int x = random.nextInt(range) - range / 2;
+            final int y = random.nextInt(range) - range / 2;
+            final int count = 1 + random.nextInt(20);
+
+            assertThat(repository.findNearest(x, y, count))
+                    .containsExactlyElementsOf(WidgetRepository.findNearest(repository.findAll(), x, y, count));
+        }
+
+        assertThat(repository.findNearest(0, 0, 0)).isEmpty();
+        assertThat(repository.findNearest(0, 0, 3000)).hasSize(2000);
+    }
+
+    /**
+     * Tiles of size less than 2 should be rejected, as their coordinates don't fit into integers.
+     */
+    @Test
+    public void testInvalidTileSize() {
+        //given
+        //when
+        //then
+        assertThatThrownBy(() -> new WidgetTiledHeapRepository(1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Creates widget.
+     *
+     * @param id     widget identifier.
+     * @param x      x-coordinate.
+     * @param y      y-coordinate.
+     * @param width  width.
+     * @param height height.
+     * @param z      z-index.
+     * @return created widget.
+     */
+    private static Widget createWidget(final String id, final int x, final int y, final int width, final int height, final int z) {
+        final Widget widget = new Widget();
+        widget.setId(id);
+        widget.setX(x);
+        widget.setY(y);
+        widget.setWidth(width);
+        widget.setHeight(height);
+        widget.setZ(z);
+
+        return widget;
+    }
+}
@@ -0,0 +1,157 @@
+package test.widget.server.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import test.widget.server.ServerConfigurationProperties;
+import test.widget.server.domain.Area;
+import test.widget.server.domain.Widget;
+import test.widget.server.exception.CanvasNotFoundException;
+import test.widget.server.repository.WidgetRepository;
+import test.widget.server.service.impl.BasicWidgetFilteringService;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link CanvasRegistry}.
+ *
+ * @author Mikhail Kondratev
+ */
+public class CanvasRegistryTest {
+
+    /**
+     * Registry to be tested.
+     */
+    private CanvasRegistry canvasRegistry;
+
+    /**
+     * Application widget service.
+     */
+    private WidgetService widgetService;
+
+    /**
+     * Server configuration properties.
+     */
+    private ServerConfigurationProperties properties;
+
+    @Before
+    public void setUp() {
+        properties = new ServerConfigurationProperties();
+        properties.setLockTimeout(1);
+        properties.setCanvasIdleTimeout(60);
+
+        widgetService = Mockito.mock(WidgetService.class);
+
+        canvasRegistry = new CanvasRegistry(properties, new BasicWidgetFilteringService(),
+                Mockito.mock(WidgetRepository.class), new WidgetAreaCache(properties), widgetService,
+                Mockito.mock(WidgetChangeLog.class), new WidgetSubscriptionRegistry(properties));
+    }
+
+    @After
+    public void tearDown() {
+        canvasRegistry.shutdown();
+    }
+
+    /**
+     * Default canvas should use application services, other canvases should be created once
+     * and hold their own widgets, z-order and versions.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testIndependentCanvases() throws Exception {
+        //given
+        final Canvas first = canvasRegistry.getOrCreateCanvas("first");
+        final Canvas second = canvasRegistry.getOrCreateCanvas("second");
+        final long firstVersion = first.getWidgetService().getVersion();
+        final long secondVersion = second.getWidgetService().getVersion();
+
+        //when
+        final Widget widget = first.getWidgetService().createNew(0, 0, 10, 10, null);
+        first.getWidgetService().createNew(0, 0, 10, 10, null);
+
+        //then
+        assertThat(canvasRegistry.getCanvas(null).getWidgetService()).isSameAs(widgetService);
+        assertThat(canvasRegistry.getCanvas("first")).isSameAs(first);
+        assertThat(canvasRegistry.getCanvasesCount()).isEqualTo(2);
+
+        assertThat(first.getWidgetService().getWidgetsInsideArea(Area.EMPTY_AREA)).hasSize(2);
+        assertThat(first.getWidgetChangeLog().getChangesSince(firstVersion))
+                .hasValueSatisfying(changes -> assertThat(changes.getUpdated()).hasSize(2));
+        assertThat(second.getWidgetService().getWidgetsInsideArea(Area.EMPTY_AREA)).isEmpty();
+        assertThat(second.getWidgetService().getVersion()).isEqualTo(secondVersion);
+
+        assertThat(second.getWidgetService().createNew(0, 0, 10, 10, null).getZ()).isEqualTo(widget.getZ());
+    }
+
+    /**
+     * Idle canvases without widgets should be removed, idle canvases with widgets should be kept.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testEvictingIdleCanvases() throws Exception {
+        //given
+        canvasRegistry.getOrCreateCanvas("empty");
+        canvasRegistry.getOrCreateCanvas("filled").getWidgetService().createNew(0, 0, 10, 10, null);
+
+        //when
+        canvasRegistry.evictIdleCanvases(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30));
+        final int countBeforeTimeout = canvasRegistry.getCanvasesCount();
+        canvasRegistry.evictIdleCanvases(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(61));
+
+        //then
+        assertThat(countBeforeTimeout).isEqualTo(2);
+        assertThat(canvasRegistry.getCanvasesCount()).isEqualTo(1);
+        assertThat(canvasRegistry.getCanvas("filled").getWidgetService().getWidgetsInsideArea(Area.EMPTY_AREA)).hasSize(1);
+    }
+
+    /**
+     * Canvases other than default should not be available on database repository.
+     */
+    @Test
+    public void testCanvasesOnDatabase() {
+        //given
+        properties.setDatabaseEnabled(true);
+
+        //when
+        //then
+        assertThat(canvasRegistry.getCanvas("").getWidgetService()).isSameAs(widgetService);
+        assertThatThrownBy(() -> canvasRegistry.getOrCreateCanvas("first")).isInstanceOf(CanvasNotFoundException.class);
+    }
+
+    /**
+     * Reading unknown canvas should not create it.
+     */
+    @Test
+    public void testReadingUnknownCanvas() {
+        //given
+        //when
+        //then
+        assertThatThrownBy(() -> canvasRegistry.getCanvas("unknown")).isInstanceOf(CanvasNotFoundException.class);
+        assertThat(canvasRegistry.getCanvasesCount()).isZero();
+    }
+
+    /**
+     * Evicted canvas should not be found by reading, and should be created again by saving.
+     */
+    @Test
+    public void testEvictedCanvasIsCreatedAgain() {
+        //given
+        final Canvas canvas = canvasRegistry.getOrCreateCanvas("first");
+
+        //when
+        canvasRegistry.evictIdleCanvases(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(61));
+
+        //then
+        assertThatThrownBy(() -> canvasRegistry.getCanvas("first")).isInstanceOf(CanvasNotFoundException.class);
+
+        final Canvas created = canvasRegistry.getOrCreateCanvas("first");
+        assertThat(created).isNotSameAs(canvas);
+        assertThat(canvasRegistry.getCanvas("first")).isSameAs(created);
+    }
+}
@@ -0,0 +1,55 @@
+package test.widget.server.service;
+
+import org.junit.Test;
+import test.widget.server.domain.Widget;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link CoarseClock}.
+ *
+ * @author Mikhail Kondratev
+ */
+public class CoarseClockTest {
+
+    /**
+     * Local time of the clock should match local time of it's zone, for zones with and without offset transitions.
+     */
+    @Test
+    public void testLocalTime() {
+        for (final ZoneId zoneId : new ZoneId[]{ZoneOffset.UTC, ZoneOffset.ofHours(-5), ZoneId.of("Europe/Berlin")}) {
+            //given
+            final CoarseClock clock = new CoarseClock(zoneId);
+            final Widget widget = new Widget();
+
+            //when
+            final LocalDateTime before = LocalDateTime.now(zoneId).minusNanos(1_000_000);
+            widget.markModified(clock.currentLocalMillis());
+            final LocalDateTime after = LocalDateTime.now(zoneId);
+
+            //then
+            assertThat(widget.getLastModified())
+                    .as(zoneId.getId())
+                    .isBetween(before, after);
+        }
+    }
+
+    /**
+     * Modification time before 1970 should be converted without losing the sign of fraction of second.
+     */
+    @Test
+    public void testNegativeMillis() {
+        //given
+        final Widget widget = new Widget();
+
+        //when
+        widget.markModified(-1);
+
+        //then
+        assertThat(widget.getLastModified()).isEqualTo(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_000_000));
+    }
+}
@@ -0,0 +1,124 @@
+package test.widget.server.service;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link QueuedReadWriteLock}.
+ *
+ * @author Mikhail Kondratev
+ */
+public class QueuedReadWriteLockTest {
+
+    /**
+     * Executor running operations on the thread granting the lock.
+     */
+    private static final Executor DIRECT = Runnable::run;
+
+    /**
+     * Lock to be tested.
+     */
+    private final QueuedReadWriteLock lock = new QueuedReadWriteLock();
+
+    /**
+     * Waiting writer should not be overtaken by later readers, and waiting operations should run once the lock is released.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testWaitersAreGrantedInOrder() throws Exception {
+        //given
+        final List<String> executed = new CopyOnWriteArrayList<>();
+        assertThat(lock.readLock().tryLock()).isTrue();
+
+        //when
+        final CompletableFuture<Boolean> writer = lock.executeAsync(true, 10, TimeUnit.SECONDS,
+                () -> executed.add("writer"), DIRECT);
+        final CompletableFuture<Boolean> reader = lock.executeAsync(false, 10, TimeUnit.SECONDS,
+                () -> executed.add("reader"), DIRECT);
+
+        //then
+        assertThat(writer).isNotDone();
+        assertThat(reader).isNotDone();
+
+        lock.readLock().unlock();
+
+        assertThat(writer.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(reader.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(executed).containsExactly("writer", "reader");
+        assertThat(lock.writeLock().tryLock()).isTrue();
+    }
+
+    /**
+     * Operation holding the lock should acquire it again without waiting, but should not upgrade read lock.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testNestedAcquisition() throws Exception {
+        //when
+        final CompletableFuture<Boolean> writer = lock.executeAsync(true, 10, TimeUnit.SECONDS, () -> {
+            assertThat(lock.readLock().tryLock()).isTrue();
+            lock.readLock().unlock();
+
+            return lock.writeLock().tryLock(0, TimeUnit.SECONDS);
+        }, DIRECT);
+
+        final CompletableFuture<Boolean> reader = lock.executeAsync(false, 10, TimeUnit.SECONDS,
+                () -> lock.writeLock().tryLock(), DIRECT);
+
+        //then
+        assertThat(writer.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThatThrownBy(() -> reader.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(lock.writeLock().tryLock()).isTrue();
+    }
+
+    /**
+     * Operation should be executed without the lock after timeout, like blocking acquisitions proceed.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        //given
+        assertThat(lock.writeLock().tryLock()).isTrue();
+
+        //when
+        final CompletableFuture<String> operation = lock.executeAsync(false, 100, TimeUnit.MILLISECONDS,
+                () -> "executed", DIRECT);
+
+        //then
+        assertThat(operation.get(5, TimeUnit.SECONDS)).isEqualTo("executed");
+
+        lock.writeLock().unlock();
+        assertThat(lock.writeLock().tryLock()).isTrue();
+    }
+
+    /**
+     * Lock should be released, if executor rejects the operation.
+     */
+    @Test
+    public void testRejectedOperation() {
+        //when
+        final CompletableFuture<String> operation = lock.executeAsync(true, 10, TimeUnit.SECONDS, () -> "executed",
+                command -> {
+                    throw new RejectedExecutionException("test");
+                });
+
+        //then
+        assertThatThrownBy(operation::join).hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(lock.writeLock().tryLock()).isTrue();
+    }
+}
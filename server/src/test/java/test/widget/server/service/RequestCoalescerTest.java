@@ -0,0 +1,114 @@
+package test.widget.server.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link RequestCoalescer}.
+ *
+ * @author Mikhail Kondratev
+ */
+public class RequestCoalescerTest {
+
+    /**
+     * Coalescer to be tested.
+     */
+    private RequestCoalescer<String, Object> coalescer;
+
+    @Before
+    public void setUp() {
+        coalescer = new RequestCoalescer<>();
+    }
+
+    /**
+     * Concurrent requests with equal key should share one computation and receive the same result.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testConcurrentRequestsShareComputation() throws Exception {
+        //given
+        final int requestsCount = 8;
+        final AtomicInteger computationsCount = new AtomicInteger();
+        final CountDownLatch computationStarted = new CountDownLatch(1);
+        final CountDownLatch releaseComputation = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(requestsCount);
+
+        try {
+            //when
+            final List<Future<Object>> results = new ArrayList<>();
+            results.add(executor.submit(() -> coalescer.execute("key", () -> {
+                computationsCount.incrementAndGet();
+                computationStarted.countDown();
+                releaseComputation.await();
+                return new Object();
+            })));
+
+            computationStarted.await();
+
+            for (int i = 1; i < requestsCount; i++) {
+                results.add(executor.submit(() -> coalescer.execute("key", () -> {
+                    computationsCount.incrementAndGet();
+                    return new Object();
+                })));
+            }
+
+            //wait for all requests to join the computation in progress
+            Thread.sleep(200);
+            releaseComputation.countDown();
+
+            //then
+            final Object firstResult = results.get(0).get(5, TimeUnit.SECONDS);
+            for (final Future<Object> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(firstResult);
+            }
+
+            assertThat(computationsCount.get()).isEqualTo(1);
+            assertThat(coalescer.getInFlightCount()).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Result should not be retained after computation is finished.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testSequentialRequestsAreComputedAgain() throws Exception {
+        //given
+        final AtomicInteger computationsCount = new AtomicInteger();
+
+        //when
+        coalescer.execute("key", computationsCount::incrementAndGet);
+        coalescer.execute("key", computationsCount::incrementAndGet);
+
+        //then
+        assertThat(computationsCount.get()).isEqualTo(2);
+    }
+
+    /**
+     * Exception thrown by computation should be thrown to the caller.
+     */
+    @Test
+    public void testComputationException() {
+        assertThatThrownBy(() -> coalescer.execute("key", () -> {
+            throw new IllegalStateException("test");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(coalescer.getInFlightCount()).isZero();
+    }
+}
@@ -0,0 +1,163 @@
+package test.widget.server.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import test.widget.server.ServerConfigurationProperties;
+import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQuery;
+import test.widget.server.domain.AreaQueryMode;
+import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetField;
+import test.widget.server.event.WidgetChange;
+import test.widget.server.event.WidgetsChangedEvent;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link WidgetAreaCache}.
+ *
+ * @author Mikhail Kondratev
+ */
+public class WidgetAreaCacheTest {
+
+    /**
+     * Cache to be tested.
+     */
+    private WidgetAreaCache cache;
+
+    @Before
+    public void setUp() {
+        final ServerConfigurationProperties properties = new ServerConfigurationProperties();
+        properties.setResultCacheEnabled(true);
+        properties.setResultCacheMaxSize(10);
+
+        cache = new WidgetAreaCache(properties);
+    }
+
+    /**
+     * Cached widgets should be returned for equal area, hits and misses should be counted.
+     */
+    @Test
+    public void testHitAndMiss() {
+        //given
+        final List<Widget> widgets = List.of(createWidget("1", 0, 0, 10, 10));
+
+        //when
+        assertThat(cache.get(query(new Area(0, 0, 100, 100)))).isEmpty();
+        cache.put(query(new Area(0, 0, 100, 100)), widgets, cache.getGeneration());
+
+        //then
+        assertThat(cache.get(query(new Area(0, 0, 100, 100)))).contains(widgets);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    /**
+     * Widgets modified in place after caching, as heap repository does before saving, should not change cached widgets.
+     */
+    @Test
+    public void testCachedWidgetsAreCopies() {
+        //given
+        final Widget widget = createWidget("1", 0, 0, 10, 10);
+        cache.put(query(new Area(0, 0, 100, 100)), List.of(widget), cache.getGeneration());
+
+        //when
+        widget.setX(500);
+
+        //then
+        assertThat(cache.get(query(new Area(0, 0, 100, 100))))
+                .hasValueSatisfying(widgets -> assertThat(widgets).extracting(Widget::getX).containsExactly(0));
+    }
+
+    /**
+     * Only areas that intersect old or new widget bounds should be dropped.
+     */
+    @Test
+    public void testPreciseInvalidation() {
+        //given
+        final Area leftArea = new Area(0, 0, 100, 100);
+        final Area rightArea = new Area(1000, 0, 100, 100);
+        final Area farArea = new Area(5000, 5000, 100, 100);
+
+        cache.put(query(leftArea), List.of(), cache.getGeneration());
+        cache.put(query(rightArea), List.of(), cache.getGeneration());
+        cache.put(query(farArea), List.of(), cache.getGeneration());
+        cache.put(query(Area.EMPTY_AREA), List.of(), cache.getGeneration());
+
+        //when
+        cache.onWidgetsChanged(new WidgetsChangedEvent(1, List.of(new WidgetChange(
+                createWidget("1", 10, 10, 10, 10),
+                createWidget("1", 1010, 10, 10, 10)))));
+
+        //then
+        assertThat(cache.get(query(leftArea))).isEmpty();
+        assertThat(cache.get(query(rightArea))).isEmpty();
+        assertThat(cache.get(query(Area.EMPTY_AREA))).isEmpty();
+        assertThat(cache.get(query(farArea))).isPresent();
+    }
+
+    /**
+     * Widgets loaded before an invalidation should not be cached.
+     */
+    @Test
+    public void testStaleResultIsNotCached() {
+        //given
+        final long generation = cache.getGeneration();
+
+        //when
+        cache.onWidgetsChanged(new WidgetsChangedEvent(1, List.of(new WidgetChange(null, createWidget("1", 0, 0, 1, 1)))));
+        cache.put(query(new Area(0, 0, 100, 100)), List.of(), generation);
+
+        //then
+        assertThat(cache.get(query(new Area(0, 0, 100, 100)))).isEmpty();
+    }
+
+    /**
+     * Widgets loaded with a part of fields should not be returned for a query of all fields.
+     */
+    @Test
+    public void testQueriesWithDifferentFields() {
+        //given
+        final Area area = new Area(0, 0, 100, 100);
+
+        //when
+        cache.put(new AreaQuery(area, AreaQueryMode.INSIDE, WidgetField.STORED), List.of(), cache.getGeneration());
+
+        //then
+        assertThat(cache.get(new AreaQuery(area, AreaQueryMode.INSIDE, WidgetField.STORED))).isPresent();
+        assertThat(cache.get(query(area))).isEmpty();
+    }
+
+    /**
+     * Creates query of all fields of widgets inside an area.
+     *
+     * @param area filtering area.
+     * @return area query.
+     */
+    private static AreaQuery query(final Area area) {
+        return new AreaQuery(area, AreaQueryMode.INSIDE, WidgetField.ALL);
+    }
+
+    /**
+     * Creates widget with specified bounds.
+     *
+     * @param id     widget identifier.
+     * @param x      x coordinate.
+     * @param y      y coordinate.
+     * @param width  widget width.
+     * @param height widget height.
+     * @return created widget.
+     */
+    private static Widget createWidget(final String id, final int x, final int y, final int width, final int height) {
+        final Widget widget = new Widget();
+        widget.setId(id);
+        widget.setX(x);
+        widget.setY(y);
+        widget.setWidth(width);
+        widget.setHeight(height);
+
+        return widget;
+    }
+}
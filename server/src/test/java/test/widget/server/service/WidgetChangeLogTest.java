@@ -0,0 +1,108 @@
+package test.widget.server.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import test.widget.server.ServerConfigurationProperties;
+import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetChanges;
+import test.widget.server.event.WidgetChange;
+import test.widget.server.event.WidgetsChangedEvent;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link WidgetChangeLog}.
+ *
+ * @author Mikhail Kondratev
+ */
+public class WidgetChangeLogTest {
+
+    /**
+     * Log to be tested.
+     */
+    private WidgetChangeLog changeLog;
+
+    @Before
+    public void setUp() {
+        final ServerConfigurationProperties properties = new ServerConfigurationProperties();
+        properties.setChangeLogCapacity(3);
+
+        final WidgetService widgetService = Mockito.mock(WidgetService.class);
+        when(widgetService.getVersion()).thenReturn(100L);
+
+        changeLog = new WidgetChangeLog(properties, widgetService);
+    }
+
+    /**
+     * Widget changed several times should be returned once in it's latest state,
+     * deleted widget should be returned as an identifier.
+     */
+    @Test
+    public void testChangesSinceVersion() {
+        //given
+        changeLog.onWidgetsChanged(new WidgetsChangedEvent(101, List.of(new WidgetChange(null, createWidget("1", 1)))));
+        changeLog.onWidgetsChanged(new WidgetsChangedEvent(102, List.of(new WidgetChange(createWidget("1", 1), createWidget("1", 2)))));
+        changeLog.onWidgetsChanged(new WidgetsChangedEvent(103, List.of(new WidgetChange(createWidget("2", 5), null))));
+
+        //when
+        @SuppressWarnings("OptionalGetWithoutIsPresent") final WidgetChanges changes = changeLog.getChangesSince(101).get();
+
+        //then
+        assertThat(changes.getVersion()).isEqualTo(103);
+        assertThat(changes.isFullResync()).isFalse();
+        assertThat(changes.getUpdated()).extracting(Widget::getZ).containsExactly(2);
+        assertThat(changes.getDeleted()).containsExactly("2");
+    }
+
+    /**
+     * Requesting current version should return no changes.
+     */
+    @Test
+    public void testNoChanges() {
+        //given
+        //when
+        @SuppressWarnings("OptionalGetWithoutIsPresent") final WidgetChanges changes = changeLog.getChangesSince(100).get();
+
+        //then
+        assertThat(changes.getVersion()).isEqualTo(100);
+        assertThat(changes.getUpdated()).isEmpty();
+        assertThat(changes.getDeleted()).isEmpty();
+    }
+
+    /**
+     * Changes should not be returned for dropped or unknown versions.
+     */
+    @Test
+    public void testDroppedAndUnknownVersions() {
+        //given
+        for (int version = 101; version <= 105; version++) {
+            changeLog.onWidgetsChanged(new WidgetsChangedEvent(version, List.of(new WidgetChange(null, createWidget("1", version)))));
+        }
+
+        //when
+        //then
+        assertThat(changeLog.getChangesSince(100)).isEmpty();
+        assertThat(changeLog.getChangesSince(101)).isEmpty();
+        assertThat(changeLog.getChangesSince(102)).isPresent();
+        assertThat(changeLog.getChangesSince(106)).isEmpty();
+    }
+
+    /**
+     * Creates widget with specified id and z-index.
+     *
+     * @param id widget identifier.
+     * @param z  z-index.
+     * @return created widget.
+     */
+    private static Widget createWidget(final String id, final int z) {
+        final Widget widget = new Widget();
+        widget.setId(id);
+        widget.setZ(z);
+
+        return widget;
+    }
+}
@@ -4,13 +4,18 @@ import org.assertj.core.api.Assertions;
 import org.junit.Before;
 import org.junit.Test;
 import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQueryMode;
 import test.widget.server.domain.Widget;
 import test.widget.server.service.impl.BasicWidgetFilteringService;
 import test.widget.server.service.impl.RTreeWidgetFilteringService;
+import test.widget.server.service.impl.ScalarBoxScanKernel;
+import test.widget.server.service.impl.VectorizedWidgetFilteringService;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -100,6 +105,126 @@ public class WidgetFilteringComparisonTest {
         }
     }
 
+    /**
+     * Asserts that both implementations find the same intersecting widgets on random widgets,
+     * including widgets only touching the area.
+     */
+    @Test
+    public void testRandomWidgetsIntersecting() {
+        for (int i = 0; i < 10000; i++) {
+
+            final List<Widget> widgets = WidgetFilteringServiceTestUtils.generateWidgets(10);
+            final Area area = WidgetFilteringServiceTestUtils.createArea();
+
+            final Collection<Widget> inefficient = basicWidgetFilteringService.filterWidgets(widgets, area, AreaQueryMode.INTERSECTS);
+            final Collection<Widget> efficient = RTreeWidgetFilteringService.filterWidgets(widgets, area, AreaQueryMode.INTERSECTS);
+
+            assertThat(efficient).hasSameElementsAs(inefficient);
+            assertThat(inefficient).containsAll(basicWidgetFilteringService.filterWidgetsInsideArea(widgets, area));
+        }
+    }
+
+    /**
+     * Asserts that both implementations find the same widgets under a point, the topmost first.
+     */
+    @Test
+    public void testRandomWidgetsAtPoint() {
+        for (int i = 0; i < 10000; i++) {
+
+            final List<Widget> widgets = WidgetFilteringServiceTestUtils.generateWidgets(10);
+            for (int z = 0; z < widgets.size(); z++) {
+                widgets.get(z).setZ(z);
+            }
+
+            final Area area = WidgetFilteringServiceTestUtils.createArea();
+
+            final List<Widget> expected = widgets.stream()
+                    .filter(widget -> widget.getX() <= area.getX() && area.getX() <= widget.getX() + widget.getWidth()
+                            && widget.getY() <= area.getY() && area.getY() <= widget.getY() + widget.getHeight())
+                    .sorted(Comparator.comparingInt(Widget::getZ).reversed())
+                    .limit(3)
+                    .collect(Collectors.toList());
+
+            assertThat(basicWidgetFilteringService.findWidgetsAtPoint(widgets, area.getX(), area.getY(), 3))
+                    .containsExactlyElementsOf(expected);
+            assertThat(RTreeWidgetFilteringService.findWidgetsAtPoint(widgets, area.getX(), area.getY(), 3))
+                    .containsExactlyElementsOf(expected);
+        }
+    }
+
+    /**
+     * Asserts that parallel scan finds the same widgets in the same order as a sequential one.
+     */
+    @Test
+    public void testParallelScan() {
+        //given
+        final List<Widget> widgets = WidgetFilteringServiceTestUtils.generateWidgets(50000);
+        final Area area = WidgetFilteringServiceTestUtils.createArea();
+
+        try (BasicWidgetFilteringService parallelService = new BasicWidgetFilteringService(4, 1000)) {
+            //when
+            //then
+            for (final AreaQueryMode mode : AreaQueryMode.values()) {
+                assertThat(parallelService.filterWidgets(widgets, area, mode))
+                        .containsExactlyElementsOf(basicWidgetFilteringService.filterWidgets(widgets, area, mode));
+            }
+        }
+    }
+
+    /**
+     * Asserts that best-first search of the tree finds the same nearest widgets as a scan.
+     */
+    @Test
+    public void testRandomNearestWidgets() {
+        for (int i = 0; i < 1000; i++) {
+
+            final List<Widget> widgets = WidgetFilteringServiceTestUtils.generateWidgets(200);
+            for (int z = 0; z < widgets.size(); z++) {
+                widgets.get(z).setZ(z);
+            }
+
+            final Area area = WidgetFilteringServiceTestUtils.createArea();
+            final int x = area.getX() * 3 - 100;
+            final int y = area.getY() * 3 - 100;
+
+            final List<Widget> expected = widgets.stream()
+                    .sorted(Comparator.<Widget>comparingDouble(widget -> WidgetFilteringService.distance(widget, x, y))
+                            .thenComparing(Comparator.comparingInt(Widget::getZ).reversed()))
+                    .limit(5)
+                    .collect(Collectors.toList());
+
+            assertThat(basicWidgetFilteringService.findNearestWidgets(widgets, x, y, 5)).containsExactlyElementsOf(expected);
+            assertThat(RTreeWidgetFilteringService.findNearestWidgets(widgets, x, y, 5)).containsExactlyElementsOf(expected);
+        }
+    }
+
+    /**
+     * Asserts that scans of struct-of-arrays coordinates by available kernel and by scalar kernel find the same widgets
+     * in the same order as a basic one, including widgets with edges beyond int range and blocks with partial vectors.
+     */
+    @Test
+    public void testVectorizedScan() {
+        //given
+        final List<VectorizedWidgetFilteringService> services = List.of(new VectorizedWidgetFilteringService(),
+                new VectorizedWidgetFilteringService(new ScalarBoxScanKernel()));
+        final List<Widget> widgets = WidgetFilteringServiceTestUtils.generateWidgets(2051);
+        widgets.get(0).setX(Integer.MAX_VALUE);
+        widgets.get(0).setWidth(10);
+
+        for (int i = 0; i < 100; i++) {
+            final Area area = WidgetFilteringServiceTestUtils.createArea();
+
+            //when
+            //then
+            for (final AreaQueryMode mode : AreaQueryMode.values()) {
+                for (final VectorizedWidgetFilteringService service : services) {
+                    assertThat(service.filterWidgets(widgets, area, mode))
+                            .containsExactlyElementsOf(basicWidgetFilteringService.filterWidgets(widgets, area, mode));
+                }
+            }
+        }
+    }
+
     /**
      * Asserts that filter would return empty set when no widgets is present.
      */
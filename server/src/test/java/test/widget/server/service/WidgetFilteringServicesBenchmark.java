@@ -10,12 +10,16 @@ import test.widget.server.domain.Area;
 import test.widget.server.domain.Widget;
 import test.widget.server.service.impl.BasicWidgetFilteringService;
 import test.widget.server.service.impl.RTreeWidgetFilteringService;
+import test.widget.server.service.impl.VectorizedWidgetFilteringService;
 
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
  * {@link WidgetFilteringService} implementations benchmark.
+ * <p/>
+ * {@link VectorizedWidgetFilteringService} uses Vector API kernel, if server is built with profile
+ * <code>vector-api</code> and the benchmark is run by JDK 17 or later with <code>--add-modules jdk.incubator.vector</code>.
  *
  * @author Mikhail Kondratev
  */
@@ -30,7 +34,7 @@ public class WidgetFilteringServicesBenchmark {
     /**
      * {@link WidgetFilteringService} implementation name param.
      */
-    @Param({"BASIC", "TREE"})
+    @Param({"BASIC", "PARALLEL_BASIC", "TREE", "VECTORIZED"})
     @SuppressWarnings("unused")
     private ServiceType serviceType;
 
@@ -75,13 +79,28 @@ public class WidgetFilteringServicesBenchmark {
                 service = new BasicWidgetFilteringService();
                 break;
 
+            case PARALLEL_BASIC:
+                service = new BasicWidgetFilteringService(Runtime.getRuntime().availableProcessors(), 10000);
+                break;
+
             case TREE:
                 service = new RTreeWidgetFilteringService();
                 break;
+
+            case VECTORIZED:
+                service = new VectorizedWidgetFilteringService();
+                break;
         }
 
     }
 
+    @TearDown
+    public void tearDown() throws Exception {
+        if (service instanceof AutoCloseable) {
+            ((AutoCloseable) service).close();
+        }
+    }
+
     @Benchmark
     public void benchmark(final Blackhole blackhole) {
         blackhole.consume(service.filterWidgetsInsideArea(widgets, area));
@@ -92,7 +111,9 @@ public class WidgetFilteringServicesBenchmark {
      */
     public enum ServiceType {
         BASIC(BasicWidgetFilteringService.class),
-        TREE(RTreeWidgetFilteringService.class);
+        PARALLEL_BASIC(BasicWidgetFilteringService.class),
+        TREE(RTreeWidgetFilteringService.class),
+        VECTORIZED(VectorizedWidgetFilteringService.class);
 
         ServiceType(@SuppressWarnings("unused") final Class<? extends WidgetFilteringService> serviceClass) {
         }
@@ -4,11 +4,21 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.annotation.Transactional;
 import test.widget.server.ServerConfigurationProperties;
+import test.widget.server.domain.Area;
+import test.widget.server.domain.AreaQueryMode;
 import test.widget.server.domain.Widget;
+import test.widget.server.domain.WidgetField;
 import test.widget.server.repository.WidgetRepository;
+import test.widget.server.service.impl.BasicWidgetFilteringService;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -48,7 +58,8 @@ public class WidgetServiceTest {
         properties = new ServerConfigurationProperties();
         properties.setInitialZIndex(0);
 
-        widgetService = new WidgetService(widgetRepository, properties, widgetFilteringService);
+        widgetService = new WidgetService(widgetRepository, properties, widgetFilteringService,
+                new WidgetAreaCache(properties), Mockito.mock(ApplicationEventPublisher.class));
     }
 
     /**
@@ -195,4 +206,116 @@ public class WidgetServiceTest {
         //then
         assertThat(widget3.getZ()).isEqualTo(3);
     }
-}
\ No newline at end of file
+
+    /**
+     * Widgets under a point should be found by spatially indexed repository, the topmost first,
+     * without loading all widgets or filling the result cache.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testWidgetsAtPointFromSpatialIndex() throws Exception {
+        //given
+        properties.setResultCacheEnabled(true);
+
+        final WidgetAreaCache widgetAreaCache = new WidgetAreaCache(properties);
+        widgetService = new WidgetService(widgetRepository, properties, new BasicWidgetFilteringService(),
+                widgetAreaCache, Mockito.mock(ApplicationEventPublisher.class));
+
+        final Widget bottom = new Widget("1", 0, 0, 1, 100, 100, null, false);
+        final Widget middle = new Widget("2", 10, 10, 2, 10, 10, null, false);
+        final Widget top = new Widget("4", 20, 20, 4, 10, 10, null, false);
+
+        when(widgetRepository.isSpatiallyIndexed()).thenReturn(true);
+        when(widgetRepository.findInArea(new Area(20, 20, 0, 0), AreaQueryMode.INTERSECTS, WidgetField.ALL))
+                .thenReturn(List.of(top, bottom, middle));
+
+        //when
+        final List<Widget> topmost = widgetService.getWidgetsAtPoint(20, 20, 1);
+        final List<Widget> all = widgetService.getWidgetsAtPoint(20, 20, 10);
+
+        //then
+        assertThat(topmost).containsExactly(top);
+        assertThat(all).containsExactly(top, middle, bottom);
+        assertThat(widgetService.getWidgetsAtPoint(20, 20, 0)).isEmpty();
+        verify(widgetRepository, never()).findAll();
+        verify(widgetRepository, never()).findAll(any());
+        assertThat(widgetAreaCache.getMisses()).isZero();
+    }
+
+    /**
+     * Page of widgets should hold widgets with requested positions in z-index order,
+     * with or without result cache.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testWidgetsPage() throws Exception {
+        //given
+        final List<Widget> widgets = new ArrayList<>();
+        for (int z = 0; z < 100; z++) {
+            widgets.add(new Widget(Integer.toString(z), 0, 0, z, 10, 10, null, false));
+        }
+
+        Collections.shuffle(widgets);
+        when(widgetRepository.findAll(any())).thenReturn(widgets);
+
+        //when
+        final List<Widget> page = widgetService.getWidgetsPageInArea(Area.EMPTY_AREA, AreaQueryMode.INSIDE, WidgetField.ALL, 10, 5);
+        final List<Widget> lastPage = widgetService.getWidgetsPageInArea(Area.EMPTY_AREA, AreaQueryMode.INSIDE, WidgetField.ALL, 98, 5);
+        properties.setResultCacheEnabled(true);
+        final List<Widget> cachedPage = widgetService.getWidgetsPageInArea(Area.EMPTY_AREA, AreaQueryMode.INSIDE, WidgetField.ALL, 10, 5);
+
+        //then
+        assertThat(page).extracting(Widget::getZ).containsExactly(10, 11, 12, 13, 14);
+        assertThat(lastPage).extracting(Widget::getZ).containsExactly(98, 99);
+        assertThat(cachedPage).isEqualTo(page);
+        assertThat(widgetService.getWidgetsPageInArea(Area.EMPTY_AREA, AreaQueryMode.INSIDE, WidgetField.ALL, 100, 5)).isEmpty();
+    }
+
+    /**
+     * Spatially indexed repository should find widgets in area by itself, without loading all widgets.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testSpatiallyIndexedRepository() throws Exception {
+        //given
+        final Area area = new Area(0, 0, 50, 50);
+        final Widget widget = new Widget("1", 10, 10, 1, 10, 10, null, false);
+
+        when(widgetRepository.isSpatiallyIndexed()).thenReturn(true);
+        when(widgetRepository.findInArea(eq(area), eq(AreaQueryMode.INTERSECTS), any())).thenReturn(List.of(widget));
+
+        //when
+        final List<Widget> found = new ArrayList<>(widgetService.getWidgetsInArea(area, AreaQueryMode.INTERSECTS, WidgetField.ALL));
+
+        //then
+        assertThat(found).containsExactly(widget);
+        verify(widgetRepository, never()).findAll(any());
+        verifyNoInteractions(widgetFilteringService);
+    }
+
+    /**
+     * Queries should run in read-only transactions, so that loaded widgets are not dirty-checked,
+     * and modifications should run in read-write transactions.
+     */
+    @Test
+    public void testReadOnlyTransactions() {
+        //given
+        final Set<String> modifications = Set.of("updateOrCreate", "deleteById", "createNew", "applyReplicatedChanges");
+
+        //when
+        //then
+        for (final Method method : WidgetService.class.getDeclaredMethods()) {
+            final Transactional transactional = method.getAnnotation(Transactional.class);
+            if (transactional == null) {
+                continue;
+            }
+
+            assertThat(transactional.readOnly())
+                    .as(method.getName())
+                    .isEqualTo(!modifications.contains(method.getName()));
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package test.widget.server.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import test.widget.server.ServerConfigurationProperties;
+import test.widget.server.domain.Area;
+import test.widget.server.domain.Widget;
+import test.widget.server.event.WidgetChange;
+import test.widget.server.event.WidgetEventType;
+import test.widget.server.event.WidgetsChangedEvent;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link WidgetSubscriptionRegistry}.
+ *
+ * @author Mikhail Kondratev
+ */
+public class WidgetSubscriptionRegistryTest {
+
+    /**
+     * Max number of events queued for a subscription.
+     */
+    private static final int QUEUE_CAPACITY = 3;
+
+    /**
+     * Max time of sending one event, in milliseconds.
+     */
+    private static final long SEND_TIMEOUT = 300;
+
+    /**
+     * Registry to be tested.
+     */
+    private WidgetSubscriptionRegistry registry;
+
+    /**
+     * Events received by subscription on area (0, 0, 100, 100).
+     */
+    private BlockingQueue<WidgetEventType> events;
+
+    @Before
+    public void setUp() {
+        final ServerConfigurationProperties properties = new ServerConfigurationProperties();
+        properties.setSubscriptionQueueCapacity(QUEUE_CAPACITY);
+        properties.setSubscriptionDeliveryThreads(1);
+        properties.setSubscriptionSendTimeout(SEND_TIMEOUT);
+
+        registry = new WidgetSubscriptionRegistry(properties);
+        events = new LinkedBlockingQueue<>();
+
+        registry.subscribe(new Area(0, 0, 100, 100), (type, widget) -> events.add(type), () -> {
+        });
+    }
+
+    @After
+    public void tearDown() {
+        registry.shutdown();
+    }
+
+    /**
+     * Widget entering, changing inside and leaving the area should produce created, updated and deleted events.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testEnteringChangingAndLeavingArea() throws Exception {
+        //given
+        final Widget outside = createWidget(200, 200);
+        final Widget inside = createWidget(10, 10);
+        final Widget movedInside = createWidget(20, 20);
+
+        //when
+        publish(null, outside);
+        publish(outside, inside);
+        publish(inside, movedInside);
+        publish(movedInside, outside);
+        publish(outside, null);
+
+        //then
+        assertThat(events.poll(5, TimeUnit.SECONDS)).isEqualTo(WidgetEventType.CREATED);
+        assertThat(events.poll(5, TimeUnit.SECONDS)).isEqualTo(WidgetEventType.UPDATED);
+        assertThat(events.poll(5, TimeUnit.SECONDS)).isEqualTo(WidgetEventType.DELETED);
+        assertThat(events.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    /**
+     * Cancelled subscription should not receive events.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testCancelledSubscription() throws Exception {
+        //given
+        final BlockingQueue<WidgetEventType> allEvents = new LinkedBlockingQueue<>();
+        registry.subscribe(Area.EMPTY_AREA, (type, widget) -> allEvents.add(type), () -> {
+        }).cancel();
+
+        //when
+        publish(null, createWidget(10, 10));
+
+        //then
+        assertThat(events.poll(5, TimeUnit.SECONDS)).isEqualTo(WidgetEventType.CREATED);
+        assertThat(allEvents).isEmpty();
+        assertThat(registry.getSubscriptionsCount()).isEqualTo(1);
+    }
+
+    /**
+     * Failing listener should be unsubscribed.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testFailingListenerIsUnsubscribed() throws Exception {
+        //given
+        registry.subscribe(Area.EMPTY_AREA, (type, widget) -> {
+            throw new IllegalStateException("test");
+        }, () -> {
+        });
+
+        //when
+        publish(null, createWidget(10, 10));
+
+        //then
+        assertThat(events.poll(5, TimeUnit.SECONDS)).isEqualTo(WidgetEventType.CREATED);
+
+        //events are delivered in background, wait for the failing one
+        for (int attempt = 0; attempt < 50 && registry.getSubscriptionsCount() > 1; attempt++) {
+            Thread.sleep(100);
+        }
+
+        assertThat(registry.getSubscriptionsCount()).isEqualTo(1);
+    }
+
+    /**
+     * Listener blocked on a slow client should not delay events of other subscriptions,
+     * and should be cancelled with overflow handler called, once it's queue is full.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testSlowListenerOverflow() throws Exception {
+        //given
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch overflow = new CountDownLatch(1);
+        registry.subscribe(Area.EMPTY_AREA, (type, widget) -> release.await(), overflow::countDown);
+
+        //when
+        publish(null, createWidget(10, 10));
+
+        //then
+        assertThat(events.poll(5, TimeUnit.SECONDS)).isEqualTo(WidgetEventType.CREATED);
+
+        //first event is blocked in delivery, following ones outside of the other area fill the queue
+        for (int i = 0; i <= QUEUE_CAPACITY; i++) {
+            publish(createWidget(200, 200), createWidget(300, 300));
+        }
+
+        assertThat(overflow.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(registry.getSubscriptionsCount()).isEqualTo(1);
+
+        publish(createWidget(10, 10), createWidget(20, 20));
+        assertThat(events.poll(5, TimeUnit.SECONDS)).isEqualTo(WidgetEventType.UPDATED);
+
+        release.countDown();
+    }
+
+    /**
+     * Listener blocked on sending for longer than send timeout should be cancelled and interrupted,
+     * so that the only delivery thread is released for other subscriptions.
+     *
+     * @throws Exception on test error.
+     */
+    @Test
+    public void testStalledListenerIsCancelled() throws Exception {
+        //given
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final CountDownLatch overflow = new CountDownLatch(1);
+        registry.subscribe(new Area(0, 0, 100, 100), (type, widget) -> {
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+        }, overflow::countDown);
+
+        //when
+        publish(null, createWidget(10, 10));
+
+        //then
+        assertThat(overflow.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(registry.getSubscriptionsCount()).isEqualTo(1);
+
+        publish(createWidget(10, 10), createWidget(20, 20));
+        assertThat(events.poll(5, TimeUnit.SECONDS)).isEqualTo(WidgetEventType.CREATED);
+        assertThat(events.poll(5, TimeUnit.SECONDS)).isEqualTo(WidgetEventType.UPDATED);
+    }
+
+    /**
+     * Publishes single widget change.
+     *
+     * @param previous widget state before change.
+     * @param current  widget state after change.
+     */
+    private void publish(final Widget previous, final Widget current) {
+        registry.onWidgetsChanged(new WidgetsChangedEvent(1, List.of(new WidgetChange(previous, current))));
+    }
+
+    /**
+     * Creates widget with id "1" and size 10x10 at specified position.
+     *
+     * @param x x coordinate.
+     * @param y y coordinate.
+     * @return created widget.
+     */
+    private static Widget createWidget(final int x, final int y) {
+        final Widget widget = new Widget();
+        widget.setId("1");
+        widget.setX(x);
+        widget.setY(y);
+        widget.setWidth(10);
+        widget.setHeight(10);
+
+        return widget;
+    }
+}